@@ -0,0 +1,111 @@
+package com.example.nlwebspringai.benchmark;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic, page-like snapshots for the benchmarks: nested regions and lists whose leaves are links,
+ * buttons, text boxes and static text, with the attributes Playwright typically reports.
+ */
+final class BenchmarkFixtures {
+
+    private static final String[] LEAF_ROLES = {"link", "link", "text", "text", "button", "textbox", "img", "checkbox"};
+    private static final String[] WORDS = {"home", "products", "pricing", "docs", "blog", "about", "contact", "search",
+            "login", "sign", "up", "cart", "checkout", "account", "settings", "help", "support", "news", "careers", "terms"};
+
+    private BenchmarkFixtures() {
+    }
+
+    static SnapshotData snapshot(int nodes) {
+        Random random = new Random(nodes);
+        int[] remaining = {nodes - 1};
+        AccessibleElement root = element(random, "main", 0);
+        root.setChildren(children(random, remaining, 1));
+        SnapshotData snapshot = new SnapshotData();
+        snapshot.setUrl("https://shop.example.com/catalog?page=1");
+        snapshot.setTitle("Catalog - Example Shop");
+        snapshot.setAccessibleTree(List.of(root));
+        return snapshot;
+    }
+
+    static McpResponse snapshotResponse(ObjectMapper objectMapper, int nodes) {
+        McpResponse response = new McpResponse();
+        response.setId("snapshot-" + nodes);
+        response.setType("snapshot");
+        response.setData(objectMapper.valueToTree(snapshot(nodes)));
+        return response;
+    }
+
+    static McpResponse ack() {
+        McpResponse ack = new McpResponse();
+        ack.setId("ack");
+        ack.setType("ack");
+        return ack;
+    }
+
+    static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static List<AccessibleElement> children(Random random, int[] remaining, int depth) {
+        List<AccessibleElement> children = new ArrayList<>();
+        int width = depth < 3 ? 6 + random.nextInt(6) : 3 + random.nextInt(8);
+        for (int i = 0; i < width && remaining[0] > 0; i++) {
+            remaining[0]--;
+            boolean container = depth < 8 && random.nextInt(4) == 0;
+            AccessibleElement child = element(random, container ? (depth % 2 == 0 ? "region" : "list") : LEAF_ROLES[random.nextInt(LEAF_ROLES.length)], remaining[0]);
+            if (container) {
+                child.setChildren(children(random, remaining, depth + 1));
+            }
+            children.add(child);
+        }
+        // Keep filling breadth-first at the top level until the node budget is spent.
+        while (depth == 1 && remaining[0] > 0) {
+            remaining[0]--;
+            AccessibleElement region = element(random, "region", remaining[0]);
+            region.setChildren(children(random, remaining, depth + 1));
+            children.add(region);
+        }
+        return children;
+    }
+
+    private static AccessibleElement element(Random random, String role, int id) {
+        AccessibleElement element = new AccessibleElement();
+        element.setRef("e" + id);
+        element.setRole(role);
+        String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        if ("text".equals(role)) {
+            element.setText(name + " " + WORDS[random.nextInt(WORDS.length)]);
+        } else {
+            element.setName(name);
+        }
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("class", "c-" + role + " c-" + WORDS[random.nextInt(WORDS.length)]);
+        if ("link".equals(role)) {
+            attributes.put("href", "/" + name.replace(' ', '/'));
+        } else if ("textbox".equals(role)) {
+            attributes.put("placeholder", name);
+        }
+        if (random.nextInt(20) == 0) {
+            attributes.put("aria-hidden", "true");
+        }
+        element.setAttributes(attributes);
+        return element;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.nlwebspringai.benchmark;
+
+import com.example.nlwebspringai.NlwebSpringAiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code POST /api/v1/process-nl} under concurrent load with a slow NLWeb, comparing how translations are run:
+ * <ul>
+ *     <li>{@code reactive}: the default non-blocking NLWeb client;</li>
+ *     <li>{@code platform}: the blocking client on the platform-thread application task executor;</li>
+ *     <li>{@code virtual}: the blocking client, with Tomcat and the task executor on virtual threads (Java 21).</li>
+ * </ul>
+ * NLWeb answers after {@code nlWebLatencyMs}, standing in for its LLM call, so throughput shows how many
+ * translations each mode keeps in flight. Every query is different, so none is answered by the cache or shared
+ * through single-flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(200)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    @Param({"reactive", "platform", "virtual"})
+    public String mode;
+
+    @Param({"100"})
+    public long nlWebLatencyMs;
+
+    private HttpServer stubs;
+    private ExecutorService stubExecutor;
+    private ExecutorService clientExecutor;
+    private ConfigurableApplicationContext application;
+    private final AtomicLong queries = new AtomicLong();
+    private HttpClient httpClient;
+    private URI processNl;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("mode=virtual needs Java 21, running on " + Runtime.version());
+        }
+        byte[] nlWebAnswer = "{\"mcpCommand\":{\"action\":\"navigate\",\"target\":\"https://shop.example.com/\"}}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] mcpEvents = ("data:" + new ObjectMapper().writeValueAsString(BenchmarkFixtures.ack()) + "\n\n"
+                + "data:{\"type\":\"stream_end\"}\n\n").getBytes(StandardCharsets.UTF_8);
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stubs = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Unbounded, so the stubs never become the bottleneck being measured.
+        stubExecutor = Executors.newCachedThreadPool();
+        stubs.setExecutor(stubExecutor);
+        stubs.createContext("/ask", exchange -> {
+            try {
+                Thread.sleep(nlWebLatencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            BenchmarkFixtures.respond(exchange, "application/json", nlWebAnswer);
+        });
+        stubs.createContext("/sse", exchange -> BenchmarkFixtures.respond(exchange, "text/event-stream", mcpEvents));
+        stubs.start();
+        String stubBase = "http://127.0.0.1:" + stubs.getAddress().getPort();
+
+        application = new SpringApplicationBuilder(NlwebSpringAiApplication.class).run(
+                "--server.port=0",
+                "--nlweb.service.url=" + stubBase + "/ask",
+                "--playwright.mcp.sse.url=" + stubBase + "/sse",
+                "--nlweb.cache.enabled=false",
+                // The adaptive limiter would shed the 200 benchmark threads with 503s before the modes differ.
+                "--nlweb.limit.enabled=false",
+                "--nlweb.client.blocking=" + !"reactive".equals(mode),
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.nlwebspringai=WARN");
+        String port = application.getEnvironment().getProperty("local.server.port");
+
+        clientExecutor = Executors.newCachedThreadPool();
+        httpClient = HttpClient.newBuilder().executor(clientExecutor).build();
+        processNl = URI.create("http://127.0.0.1:" + port + "/api/v1/process-nl");
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+        stubs.stop(0);
+        stubExecutor.shutdownNow();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String processNl() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(processNl)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"benchmark navigate " + queries.incrementAndGet() + "\"}"))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        // A failed translation is still a 200 with an error event, and a fast one; it must not count as throughput.
+        if (response.statusCode() != 200 || response.body().contains("\"type\":\"error\"")) {
+            throw new IllegalStateException("Unexpected response " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
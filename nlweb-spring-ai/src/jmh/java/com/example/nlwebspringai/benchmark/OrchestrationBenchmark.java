@@ -0,0 +1,114 @@
+package com.example.nlwebspringai.benchmark;
+
+import com.example.nlwebspringai.cache.PageCommandMemo;
+import com.example.nlwebspringai.cache.TranslationCache;
+import com.example.nlwebspringai.client.NlWebClient;
+import com.example.nlwebspringai.client.ReactiveNlWebClient;
+import com.example.nlwebspringai.intent.FastPath;
+import com.example.nlwebspringai.journal.EventJournal;
+import com.example.nlwebspringai.limit.AdaptiveLimit;
+import com.example.nlwebspringai.mcp.client.PlaywrightMcpClient;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.service.PlaywrightMcpService;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStore;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.recording.SessionRecorder;
+import com.example.nlwebspringai.service.NlWebService;
+import com.example.nlwebspringai.service.OrchestrationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code McpCommand} to {@code McpBaseRequest} dispatch through {@link OrchestrationService}, with NLWeb and
+ * Playwright-MCP replaced by in-memory stubs that answer immediately. What is left is validation, ref
+ * resolution against the session's latest snapshot, request construction and the Reactor plumbing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrchestrationBenchmark {
+
+    private static final String SESSION_ID = "benchmark";
+
+    @Param({"navigate", "click", "type", "plan"})
+    public String action;
+
+    private OrchestrationService orchestrationService;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        McpResponse ack = new McpResponse();
+        ack.setId("ack");
+        ack.setType("ack");
+        PlaywrightMcpClient playwright = request -> Flux.just(ack);
+
+        SnapshotStore snapshotStore = new SnapshotStore(objectMapper, 5, 100_000, 1000, Duration.ofHours(1), false, 0.5);
+        snapshotStore.record(SESSION_ID, BenchmarkFixtures.snapshot(1_000));
+
+        McpCommand command = command(action);
+        ReactiveNlWebClient nlWeb = request -> Mono.just(command);
+        NlWebClient unusedBlockingClient = request -> command;
+        TranslationCache noCache = new TranslationCache(false, 0, Duration.ZERO, false, 1.0,
+                new DefaultListableBeanFactory().getBeanProvider(EmbeddingModel.class));
+
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+        orchestrationService = new OrchestrationService(
+                new NlWebService(unusedBlockingClient, nlWeb, new FastPath(false, List.of()), noCache, metrics, AdaptiveLimit.unlimited("translation")),
+                new PlaywrightMcpService(playwright, snapshotStore, metrics,
+                        new CircuitBreaker("playwright-mcp", new CircuitBreaker.Settings(0.5, 20, 10, Duration.ofSeconds(10), 2)),
+                        Retry.backoff(2, Duration.ofMillis(100)), EventJournal.disabled()),
+                metrics, AdaptiveLimit.unlimited("mcp"),
+                new SessionRecorder(false, Path.of("recordings"), "session.ndjson", true, new ObjectMapper()),
+                new PageCommandMemo(false, 0, Duration.ZERO), EventJournal.disabled());
+    }
+
+    @Benchmark
+    public McpResponse dispatch() {
+        return orchestrationService.processNaturalLanguageCommand("benchmark query")
+                .contextWrite(McpSessionContext.withSessionId(SESSION_ID))
+                .blockLast();
+    }
+
+    private static McpCommand command(String action) {
+        return switch (action) {
+            case "navigate" -> new McpCommand("navigate", "https://shop.example.com/", null);
+            case "click" -> new McpCommand("click", "e42", Map.of("elementDescription", "checkout button"));
+            case "type" -> new McpCommand("type", "e42", Map.of("elementDescription", "search field", "text", "shoes", "submit", true));
+            case "plan" -> McpCommand.plan(List.of(
+                    new McpCommand("navigate", "https://shop.example.com/", null),
+                    new McpCommand("snapshot", null, null),
+                    new McpCommand("click", "e42", Map.of("elementDescription", "checkout button"))));
+            default -> throw new IllegalArgumentException("Unknown action " + action);
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.nlwebspringai.benchmark;
+
+import com.example.nlwebspringai.NlwebSpringAiApplication;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /api/v1/process-nl} through the whole application, with NLWeb and Playwright-MCP replaced by
+ * in-process HTTP stubs on loopback. The translation cache is off, so every operation pays for the NLWeb
+ * round trip, the MCP event stream and the SSE response to the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessNlEndToEndBenchmark {
+
+    @Param({"navigate", "snapshot"})
+    public String action;
+
+    private HttpServer stubs;
+    private ConfigurableApplicationContext application;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        byte[] nlWebAnswer = ("navigate".equals(action)
+                ? "{\"mcpCommand\":{\"action\":\"navigate\",\"target\":\"https://shop.example.com/\"}}"
+                : "{\"mcpCommand\":{\"action\":\"snapshot\"}}").getBytes(StandardCharsets.UTF_8);
+        McpResponse result = "navigate".equals(action)
+                ? BenchmarkFixtures.ack()
+                : BenchmarkFixtures.snapshotResponse(objectMapper, 1_000);
+        byte[] mcpEvents = ("data:" + objectMapper.writeValueAsString(result) + "\n\n"
+                + "data:{\"type\":\"stream_end\"}\n\n").getBytes(StandardCharsets.UTF_8);
+
+        // Without TCP_NODELAY the JDK server's small writes hit the 40 ms Nagle/delayed-ACK stall.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stubs = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubs.setExecutor(Executors.newFixedThreadPool(8));
+        stubs.createContext("/ask", exchange -> BenchmarkFixtures.respond(exchange, "application/json", nlWebAnswer));
+        stubs.createContext("/sse", exchange -> BenchmarkFixtures.respond(exchange, "text/event-stream", mcpEvents));
+        stubs.start();
+        String stubBase = "http://127.0.0.1:" + stubs.getAddress().getPort();
+
+        // Command-line arguments, because builder default properties lose to application.properties.
+        application = new SpringApplicationBuilder(NlwebSpringAiApplication.class).run(
+                "--server.port=0",
+                "--nlweb.service.url=" + stubBase + "/ask",
+                "--playwright.mcp.sse.url=" + stubBase + "/sse",
+                "--nlweb.cache.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.nlwebspringai=WARN");
+        String port = application.getEnvironment().getProperty("local.server.port");
+
+        httpClient = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/process-nl"))
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"benchmark " + action + "\"}"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+        stubs.stop(0);
+    }
+
+    @Benchmark
+    public String processNl() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.nlwebspringai.benchmark;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.snapshot.CompactAccessibilityTree;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotFilter;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStreamDecoder;
+import com.example.nlwebspringai.mcp.snapshot.StringPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of {@code McpResponse} and {@code SnapshotData} for page-sized snapshots, next to
+ * the streaming decoder and the compact tree that exist to avoid the full object graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotSerializationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int nodes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SnapshotStreamDecoder decoder = new SnapshotStreamDecoder();
+    private McpResponse response;
+    private SnapshotData snapshot;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        response = BenchmarkFixtures.snapshotResponse(objectMapper, nodes);
+        snapshot = objectMapper.treeToValue(response.getData(), SnapshotData.class);
+        json = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public McpResponse deserializeResponse() throws IOException {
+        return objectMapper.readValue(json, McpResponse.class);
+    }
+
+    @Benchmark
+    public SnapshotData dataToSnapshot() throws IOException {
+        return objectMapper.treeToValue(response.getData(), SnapshotData.class);
+    }
+
+    @Benchmark
+    public CompactAccessibilityTree snapshotToCompactTree() {
+        return CompactAccessibilityTree.from(snapshot, new StringPool());
+    }
+
+    // What SnapshotStore does with every recorded snapshot; compare with dataToSnapshot plus snapshotToCompactTree.
+    @Benchmark
+    public CompactAccessibilityTree dataToCompactTree() throws IOException {
+        return decoder.decodeTree(response.getData().get("accessibleTree").traverse(), null, null, new StringPool());
+    }
+
+    // Minus snapshotToCompactTree, the cost of fingerprinting a page for the command memo.
+    @Benchmark
+    public long snapshotToFingerprint() {
+        return CompactAccessibilityTree.from(snapshot, new StringPool()).fingerprint();
+    }
+
+    @Benchmark
+    public Long streamInteractiveElements() {
+        return decoder.decode(json, SnapshotFilter.interactive()).count().block();
+    }
+}
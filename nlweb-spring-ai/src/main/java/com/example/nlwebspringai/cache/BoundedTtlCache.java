@@ -0,0 +1,92 @@
+package com.example.nlwebspringai.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Small LRU map with a time-to-live per entry. Access-ordered, so the eldest entry is evicted once
+ * {@code maxSize} is exceeded; expired entries are dropped lazily on read and during {@link #values()}.
+ * All operations lock the instance, which is fine for the short critical sections used here.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Stamped<V>> entries;
+
+    public BoundedTtlCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    BoundedTtlCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Stamped<V>> eldest) {
+                return size() > BoundedTtlCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Stamped<V> stamped = entries.get(key);
+        if (stamped == null) {
+            return null;
+        }
+        if (isExpired(stamped, nanoClock.getAsLong())) {
+            entries.remove(key);
+            return null;
+        }
+        return stamped.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxSize <= 0) {
+            return;
+        }
+        entries.put(key, new Stamped<>(value, nanoClock.getAsLong()));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    // Live values, eldest first. Copied so callers can scan without holding the lock.
+    public synchronized List<V> values() {
+        long now = nanoClock.getAsLong();
+        List<V> live = new ArrayList<>(entries.size());
+        Iterator<Stamped<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Stamped<V> stamped = iterator.next();
+            if (isExpired(stamped, now)) {
+                iterator.remove();
+            } else {
+                live.add(stamped.value);
+            }
+        }
+        return live;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private boolean isExpired(Stamped<V> stamped, long now) {
+        return ttlNanos > 0 && now - stamped.createdNanos >= ttlNanos;
+    }
+
+    private record Stamped<V>(V value, long createdNanos) {
+    }
+}
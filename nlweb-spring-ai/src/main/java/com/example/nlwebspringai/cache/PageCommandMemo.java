@@ -0,0 +1,99 @@
+package com.example.nlwebspringai.cache;
+
+import com.example.nlwebspringai.model.McpCommand;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memo of translations that depend on the page they were made on. "Click Submit" becomes a click on whatever
+ * ref Submit has on the current page, so such commands are kept out of {@link TranslationCache} and stored
+ * here instead, keyed on the {@link QueryNormalizer normalized} query and the
+ * {@link com.example.nlwebspringai.mcp.snapshot.CompactAccessibilityTree#fingerprint() structural fingerprint}
+ * of the page. The same query on a page with the same structure reuses the command.
+ */
+@Component
+public class PageCommandMemo implements MeterBinder {
+
+    // Actions that act on an element of the current page; a plan depends on the page if any step does.
+    private static final Set<String> PAGE_ACTIONS = Set.of("click", "type");
+
+    private record Key(String query, long fingerprint) {
+    }
+
+    private final boolean enabled;
+    private final BoundedTtlCache<Key, McpCommand> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PageCommandMemo(@Value("${nlweb.memo.enabled:true}") boolean enabled,
+                           @Value("${nlweb.memo.max-size:1000}") int maxSize,
+                           @Value("${nlweb.memo.ttl:30m}") Duration ttl) {
+        this.enabled = enabled;
+        this.entries = new BoundedTtlCache<>(maxSize, ttl);
+    }
+
+    public static boolean dependsOnPage(McpCommand command) {
+        if (command == null || command.getAction() == null) {
+            return false;
+        }
+        if ("plan".equalsIgnoreCase(command.getAction())) {
+            return command.getSteps() != null && command.getSteps().stream().anyMatch(PageCommandMemo::dependsOnPage);
+        }
+        return PAGE_ACTIONS.contains(command.getAction().toLowerCase(Locale.ROOT));
+    }
+
+    public McpCommand get(String query, long fingerprint) {
+        if (!enabled) {
+            return null;
+        }
+        McpCommand command = entries.get(new Key(QueryNormalizer.normalize(query), fingerprint));
+        if (command == null) {
+            // Not a miss yet: most queries don't depend on the page at all. put() counts the ones that do.
+            return null;
+        }
+        hits.incrementAndGet();
+        return TranslationCache.copyOf(command);
+    }
+
+    // Called with the fresh translation of a query get() had no command for.
+    public void put(String query, long fingerprint, McpCommand command) {
+        if (!enabled || !dependsOnPage(command)) {
+            return;
+        }
+        misses.incrementAndGet();
+        entries.put(new Key(QueryNormalizer.normalize(query), fingerprint), TranslationCache.copyOf(command));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.memo.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Page-dependent translations looked up by query and page fingerprint")
+                .register(registry);
+        FunctionCounter.builder("nlweb.memo.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Page-dependent translations looked up by query and page fingerprint")
+                .register(registry);
+        Gauge.builder("nlweb.memo.size", entries, BoundedTtlCache::size)
+                .description("Memoized page-dependent translations")
+                .register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.nlwebspringai.cache;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Canonical form of a natural-language query, so "Take a snapshot." and "take  a snapshot" share one key.
+public final class QueryNormalizer {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[.!?;,]+$");
+
+    private QueryNormalizer() {
+    }
+
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String collapsed = WHITESPACE.matcher(query.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("").trim();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.nlwebspringai.cache;
+
+import io.micrometer.core.instrument.Counter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent work by key: while a call for a key is in flight, further calls for the same key
+ * subscribe to it instead of starting their own. Every subscriber sees the whole result, including what was
+ * emitted before it joined, and the same error if the call fails. The call is cancelled once all its subscribers
+ * have cancelled, and is forgotten as soon as it terminates, so nothing is cached beyond its lifetime.
+ * <p>
+ * The shared call runs in the Reactor context of the subscriber that started it.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, Call<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter joined;
+
+    public SingleFlight(Counter joined) {
+        this.joined = joined;
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> work) {
+        return Mono.from(executeMany(key, () -> work.get().flux()));
+    }
+
+    public Flux<V> executeMany(K key, Supplier<Flux<V>> work) {
+        return Flux.defer(() -> {
+            Call<V> call = new Call<>();
+            // Forgotten before the terminal signal is delivered, so a caller arriving later starts a fresh call.
+            call.shared = Flux.defer(work)
+                    .doOnTerminate(() -> inFlight.remove(key, call))
+                    .doOnCancel(() -> inFlight.remove(key, call))
+                    .replay()
+                    .refCount(1);
+            Call<V> existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                joined.increment();
+                return existing.shared;
+            }
+            return call.shared;
+        });
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static final class Call<V> {
+        private Flux<V> shared;
+    }
+}
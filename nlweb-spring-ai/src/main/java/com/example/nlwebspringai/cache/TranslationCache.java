@@ -0,0 +1,221 @@
+package com.example.nlwebspringai.cache;
+
+import com.example.nlwebspringai.model.McpCommand;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of natural-language query to {@link McpCommand} translations, consulted before NLWeb.
+ * <p>
+ * The first tier is an exact match on the {@link QueryNormalizer normalized} query. When enabled and an
+ * {@link EmbeddingModel} bean is available, a second tier compares the query's embedding against the
+ * embeddings of cached queries and reuses a translation whose cosine similarity clears the threshold.
+ * Embeddings are computed off the caller's thread, so storing an entry never waits on the embedding API.
+ * {@code error} commands are never stored, nor are commands that act on an element of the current page, which
+ * {@link PageCommandMemo} keeps per page structure instead.
+ */
+@Component
+public class TranslationCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranslationCache.class);
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final EmbeddingModel embeddingModel;
+    private final BoundedTtlCache<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TranslationCache(@Value("${nlweb.cache.enabled:true}") boolean enabled,
+                            @Value("${nlweb.cache.max-size:1000}") int maxSize,
+                            @Value("${nlweb.cache.ttl:10m}") Duration ttl,
+                            @Value("${nlweb.cache.semantic.enabled:false}") boolean semanticEnabled,
+                            @Value("${nlweb.cache.semantic.threshold:0.95}") double similarityThreshold,
+                            ObjectProvider<EmbeddingModel> embeddingModel) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.embeddingModel = enabled && semanticEnabled ? embeddingModel.getIfAvailable() : null;
+        this.entries = new BoundedTtlCache<>(maxSize, ttl);
+        if (enabled && semanticEnabled && this.embeddingModel == null) {
+            logger.warn("Semantic translation cache requested but no EmbeddingModel bean is available; using exact matches only.");
+        }
+    }
+
+    // Blocking lookup for the RestTemplate path; may call the embedding API on a miss.
+    public McpCommand get(String query) {
+        if (!enabled) {
+            return null;
+        }
+        String key = QueryNormalizer.normalize(query);
+        McpCommand command = exactMatch(key);
+        if (command == null && embeddingModel != null) {
+            command = semanticMatch(key);
+        }
+        if (command == null) {
+            misses.incrementAndGet();
+        }
+        return command;
+    }
+
+    // Reactive lookup: completes empty on a miss, and only hops to boundedElastic if the semantic tier has to run.
+    public Mono<McpCommand> lookup(String query) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            String key = QueryNormalizer.normalize(query);
+            McpCommand command = exactMatch(key);
+            if (command != null) {
+                return Mono.just(command);
+            }
+            if (embeddingModel == null) {
+                misses.incrementAndGet();
+                return Mono.empty();
+            }
+            return Mono.fromCallable(() -> semanticMatch(key))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .switchIfEmpty(Mono.fromRunnable(misses::incrementAndGet));
+        });
+    }
+
+    public void put(String query, McpCommand command) {
+        if (!enabled || command == null || command.getAction() == null || "error".equalsIgnoreCase(command.getAction())
+                || PageCommandMemo.dependsOnPage(command)) {
+            return;
+        }
+        String key = QueryNormalizer.normalize(query);
+        Entry entry = new Entry(copyOf(command));
+        entries.put(key, entry);
+        if (embeddingModel != null) {
+            Mono.fromCallable(() -> embeddingModel.embed(key))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(vector -> entry.embedding = vector,
+                            e -> logger.warn("Could not embed cached query '{}': {}", key, e.getMessage()));
+        }
+    }
+
+    public void invalidate(String query) {
+        entries.remove(QueryNormalizer.normalize(query));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getSemanticHitCount() {
+        return semanticHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Translation cache lookups")
+                .register(registry);
+        FunctionCounter.builder("nlweb.cache.requests", semanticHits, AtomicLong::get)
+                .tag("result", "semantic_hit")
+                .description("Translation cache lookups")
+                .register(registry);
+        FunctionCounter.builder("nlweb.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Translation cache lookups")
+                .register(registry);
+        Gauge.builder("nlweb.cache.size", entries, BoundedTtlCache::size)
+                .description("Cached query translations")
+                .register(registry);
+    }
+
+    private McpCommand exactMatch(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return copyOf(entry.command);
+    }
+
+    private McpCommand semanticMatch(String key) {
+        float[] probe;
+        try {
+            probe = embeddingModel.embed(key);
+        } catch (Exception e) {
+            // The cache must never fail a request; fall through to NLWeb instead.
+            logger.warn("Could not embed query '{}' for semantic cache lookup: {}", key, e.getMessage());
+            return null;
+        }
+        Entry best = null;
+        double bestScore = similarityThreshold;
+        for (Entry candidate : entries.values()) {
+            float[] vector = candidate.embedding;
+            if (vector == null || vector.length != probe.length) {
+                continue;
+            }
+            double score = cosine(probe, vector);
+            if (score >= bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        semanticHits.incrementAndGet();
+        logger.debug("Semantic cache hit for '{}' (similarity {})", key, bestScore);
+        return copyOf(best.command);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    // Callers are free to mutate what they get back, so never hand out the cached instance.
+    static McpCommand copyOf(McpCommand command) {
+        McpCommand copy = new McpCommand(command.getAction(), command.getTarget(),
+                command.getParams() != null ? new HashMap<>(command.getParams()) : null);
+        if (command.getSteps() != null) {
+            copy.setSteps(command.getSteps().stream().map(TranslationCache::copyOf).toList());
+        }
+        return copy;
+    }
+
+    private static final class Entry {
+        private final McpCommand command;
+        private volatile float[] embedding;
+
+        private Entry(McpCommand command) {
+            this.command = command;
+        }
+    }
+}
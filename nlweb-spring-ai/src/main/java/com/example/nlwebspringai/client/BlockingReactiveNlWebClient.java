@@ -0,0 +1,49 @@
+package com.example.nlwebspringai.client;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves the reactive contract with the blocking {@link NlWebClient}, one task of the application task executor
+ * per translation. Meant for {@code spring.threads.virtual.enabled=true} on Java 21, where that executor starts a
+ * virtual thread per task and a translation waiting on NLWeb parks nothing but its own virtual thread. With
+ * platform threads the executor's pool size ({@code spring.task.execution.pool.*}) caps concurrent translations.
+ */
+@Component
+@ConditionalOnProperty(name = "nlweb.client.blocking", havingValue = "true")
+public class BlockingReactiveNlWebClient implements ReactiveNlWebClient {
+
+    private final NlWebClient nlWebClient;
+    private final Scheduler scheduler;
+
+    public BlockingReactiveNlWebClient(NlWebClient nlWebClient,
+                                       @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.nlWebClient = nlWebClient;
+        this.scheduler = Schedulers.fromExecutor(taskExecutor);
+    }
+
+    @Override
+    public Mono<McpCommand> translateNaturalLanguageToMcp(NlWebQueryRequest request) {
+        return Mono.deferContextual(context -> {
+            // The executor thread has no observation of its own; without this the RestTemplate span loses its trace.
+            Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+            return Mono.fromCallable(() -> {
+                if (parent == null) {
+                    return nlWebClient.translateNaturalLanguageToMcp(request);
+                }
+                try (Observation.Scope scope = parent.openScope()) {
+                    return nlWebClient.translateNaturalLanguageToMcp(request);
+                }
+            });
+        }).subscribeOn(scheduler);
+    }
+}
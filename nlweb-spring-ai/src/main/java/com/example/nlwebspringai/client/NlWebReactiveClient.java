@@ -0,0 +1,65 @@
+package com.example.nlwebspringai.client;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.model.NlWebMcpResponse;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import com.example.nlwebspringai.resilience.Hedging;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+@Component
+@ConditionalOnProperty(name = "nlweb.client.blocking", havingValue = "false", matchIfMissing = true)
+public class NlWebReactiveClient implements ReactiveNlWebClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(NlWebReactiveClient.class);
+
+    private final WebClient webClient;
+    private final String nlWebUrl;
+    private final CircuitBreaker circuitBreaker;
+    private final Hedging hedging;
+
+    public NlWebReactiveClient(WebClient.Builder webClientBuilder,
+                               @Qualifier("nlWebHttpClient") HttpClient httpClient,
+                               @Value("${nlweb.service.url:http://localhost:8000/ask}") String nlWebUrl,
+                               @Qualifier("nlWebCircuitBreaker") CircuitBreaker circuitBreaker,
+                               @Qualifier("nlWebHedging") Hedging hedging) {
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(nlWebUrl)
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+        this.nlWebUrl = nlWebUrl;
+        this.circuitBreaker = circuitBreaker;
+        this.hedging = hedging;
+    }
+
+    @Override
+    public Mono<McpCommand> translateNaturalLanguageToMcp(NlWebQueryRequest request) {
+        // Same contract as NlWebRestClient, but the calling thread is released while NLWeb/LLM is working.
+        // A translation has no side effects, so a slow one is hedged; each attempt goes through the breaker.
+        return hedging.hedge(() -> circuitBreaker.protect(send(request)));
+    }
+
+    private Mono<McpCommand> send(NlWebQueryRequest request) {
+        return webClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(NlWebMcpResponse.class)
+                .doOnSubscribe(subscription -> logger.info("Sending query to NLWeb service at {}: {}", nlWebUrl, request.getQuery()))
+                .mapNotNull(NlWebMcpResponse::toCommand)
+                .doOnNext(command -> logger.info("Received MCP command from NLWeb service: {}", command.getAction()))
+                .doOnError(e -> logger.error("Error calling NLWeb service for query: {}", request.getQuery(), e));
+    }
+}
@@ -3,6 +3,8 @@ package com.example.nlwebspringai.client;
 import com.example.nlwebspringai.model.McpCommand;
 import com.example.nlwebspringai.model.NlWebMcpResponse;
 import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -16,23 +18,38 @@ public class NlWebRestClient implements NlWebClient {
 
     private final RestTemplate restTemplate;
     private final String nlWebUrl;
+    private final CircuitBreaker circuitBreaker;
 
     public NlWebRestClient(RestTemplate restTemplate,
-                           @Value("${nlweb.service.url:http://localhost:8000/ask}") String nlWebUrl) {
+                           @Value("${nlweb.service.url:http://localhost:8000/ask}") String nlWebUrl,
+                           @Qualifier("nlWebCircuitBreaker") CircuitBreaker circuitBreaker) {
         this.restTemplate = restTemplate;
         this.nlWebUrl = nlWebUrl;
+        this.circuitBreaker = circuitBreaker;
     }
 
     @Override
     public McpCommand translateNaturalLanguageToMcp(NlWebQueryRequest request) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            logger.warn("NLWeb circuit breaker is open, not sending query: {}", request.getQuery());
+            return createErrorCommand("NLWeb service is unavailable (circuit breaker open)");
+        }
         try {
             logger.info("Sending query to NLWeb service at {}: {}", nlWebUrl, request.getQuery());
             // Assuming NLWeb service expects NlWebQueryRequest and returns NlWebMcpResponse
             // which contains the McpCommand.
-            NlWebMcpResponse response = restTemplate.postForObject(nlWebUrl, request, NlWebMcpResponse.class);
-            if (response != null && response.getMcpCommand() != null) {
-                logger.info("Received MCP command from NLWeb service: {}", response.getMcpCommand().getAction());
-                return response.getMcpCommand();
+            NlWebMcpResponse response;
+            try {
+                response = restTemplate.postForObject(nlWebUrl, request, NlWebMcpResponse.class);
+                circuitBreaker.onSuccess();
+            } catch (RuntimeException e) {
+                circuitBreaker.onError(e);
+                throw e;
+            }
+            McpCommand command = response != null ? response.toCommand() : null;
+            if (command != null) {
+                logger.info("Received MCP command from NLWeb service: {}", command.getAction());
+                return command;
             } else {
                 logger.warn("Received null or empty response from NLWeb service for query: {}", request.getQuery());
                 // Return a default/error command or throw an exception
@@ -0,0 +1,10 @@
+package com.example.nlwebspringai.client;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveNlWebClient {
+    // Completes empty when NLWeb answers without a command; transport failures are signalled as errors.
+    Mono<McpCommand> translateNaturalLanguageToMcp(NlWebQueryRequest request);
+}
@@ -0,0 +1,80 @@
+package com.example.nlwebspringai.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams events to clients as Jackson Smile, the binary form of JSON: one Smile header, then the events back
+ * to back, each flushed as soon as it is encoded. This is the {@code application/stream+x-jackson-smile} format
+ * WebFlux's Smile codecs read and write; any Jackson {@code SmileFactory} parser reads it as a sequence of values.
+ * <p>
+ * Spring MVC only streams reactive return values as SSE or NDJSON, and collects anything else into one list
+ * before writing it, so Smile streams are written through a {@link ResponseBodyEmitter} instead. Events are
+ * requested one at a time as the client takes them, which keeps the back-pressure {@code ResponseRelay} relies on.
+ */
+@Component
+public class SmileStreams {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String SMILE_STREAM_VALUE = "application/stream+x-jackson-smile";
+    public static final MediaType SMILE_STREAM = MediaType.parseMediaType(SMILE_STREAM_VALUE);
+
+    private static final Logger logger = LoggerFactory.getLogger(SmileStreams.class);
+
+    private final ObjectMapper smileMapper;
+
+    // Same Jackson settings as the JSON mapper, on a Smile factory.
+    public SmileStreams(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.smileMapper = objectMapperBuilder.createXmlMapper(false).factory(new SmileFactory()).build();
+    }
+
+    public ObjectMapper getSmileMapper() {
+        return smileMapper;
+    }
+
+    public ResponseEntity<ResponseBodyEmitter> emit(Flux<?> events) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(-1L);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        SequenceWriter writer;
+        try {
+            writer = smileMapper.writer().writeValues(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Blocking writes to the servlet response stay off the threads that produce the events.
+        Disposable subscription = events
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .subscribe(event -> {
+                    try {
+                        writer.write(event);
+                        writer.flush();
+                        emitter.send(buffer.toByteArray(), SMILE_STREAM);
+                        buffer.reset();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, error -> {
+                    logger.debug("Smile stream ended with error: {}", error.toString());
+                    emitter.completeWithError(error instanceof UncheckedIOException io ? io.getCause() : error);
+                }, emitter::complete);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return ResponseEntity.ok().contentType(SMILE_STREAM).body(emitter);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.nlwebspringai.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Gzips the body if, by the time it is first written, the response is a successful one of a streaming content
+ * type and not already encoded. Anything else passes through untouched.
+ */
+final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private final List<MediaType> mediaTypes;
+    private final int level;
+    private final int minEventSize;
+    private GzipEventStream stream;
+    private PrintWriter writer;
+    private boolean decided;
+
+    CompressingResponse(HttpServletResponse response, List<MediaType> mediaTypes, int level, int minEventSize) {
+        super(response);
+        this.mediaTypes = mediaTypes;
+        this.level = level;
+        this.minEventSize = minEventSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        return compress() ? stream : super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (!compress()) {
+            return super.getWriter();
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    // Emitters flush once before their first event to commit the headers, so the decision can't wait for the body.
+    @Override
+    public void flushBuffer() throws IOException {
+        if (!compress()) {
+            super.flushBuffer();
+        } else if (writer != null) {
+            writer.flush();
+        } else {
+            stream.flush();
+        }
+    }
+
+    GzipEventStream getStream() {
+        return stream;
+    }
+
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        }
+    }
+
+    private boolean compress() throws IOException {
+        if (!decided) {
+            decided = true;
+            if (!isCommitted() && getStatus() == HttpServletResponse.SC_OK && getContentType() != null
+                    && getHeader(HttpHeaders.CONTENT_ENCODING) == null && isStreaming(MediaType.parseMediaType(getContentType()))) {
+                setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                stream = new GzipEventStream(super.getOutputStream(), level, minEventSize,
+                        eventDelimiter(MediaType.parseMediaType(getContentType())));
+            }
+        }
+        return stream != null;
+    }
+
+    private static byte[] eventDelimiter(MediaType contentType) {
+        if (MediaType.TEXT_EVENT_STREAM.includes(contentType)) {
+            return "\n\n".getBytes(StandardCharsets.US_ASCII);
+        }
+        if (MediaType.APPLICATION_NDJSON.includes(contentType)) {
+            return "\n".getBytes(StandardCharsets.US_ASCII);
+        }
+        return null;
+    }
+
+    private boolean isStreaming(MediaType contentType) {
+        return mediaTypes.stream().anyMatch(type -> type.includes(contentType));
+    }
+}
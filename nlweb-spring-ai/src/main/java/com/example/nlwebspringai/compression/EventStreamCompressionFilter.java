@@ -0,0 +1,145 @@
+package com.example.nlwebspringai.compression;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips streamed responses ({@code nlweb.compression.mime-types}: SSE, NDJSON and Smile streams by default) for
+ * clients that accept it, flushing every event on its own (see {@link GzipEventStream}) so compression adds no
+ * delay. Events under {@code min-event-size} bytes, such as acks, are sent without compressing them.
+ * <p>
+ * Streams end after the request's last (async) dispatch, so the filter also runs on async dispatches and writes
+ * the gzip trailer once the response is no longer in async mode. Tomcat's own {@code server.compression} should
+ * stay off for these types.
+ */
+@Component
+public class EventStreamCompressionFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamCompressionFilter.class);
+
+    private static final String RESPONSE_ATTRIBUTE = EventStreamCompressionFilter.class.getName() + ".response";
+
+    private final boolean enabled;
+    private final int level;
+    private final int minEventSize;
+    private final List<MediaType> mediaTypes;
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressedEvents = new AtomicLong();
+    private final AtomicLong storedEvents = new AtomicLong();
+    private DistributionSummary ratio;
+
+    public EventStreamCompressionFilter(@Value("${nlweb.compression.enabled:true}") boolean enabled,
+                                        @Value("${nlweb.compression.level:6}") int level,
+                                        @Value("${nlweb.compression.min-event-size:256}") int minEventSize,
+                                        @Value("${nlweb.compression.mime-types:text/event-stream,application/x-ndjson,application/stream+x-jackson-smile}") List<MediaType> mediaTypes) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("nlweb.compression.level must be between 1 and 9");
+        }
+        this.enabled = enabled;
+        this.level = level;
+        this.minEventSize = minEventSize;
+        this.mediaTypes = mediaTypes;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (compressing == null) {
+            if (!enabled || !acceptsGzip(request)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response, mediaTypes, level, minEventSize);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+            chain.doFilter(request, compressing);
+        } else {
+            chain.doFilter(request, response);
+        }
+        if (!request.isAsyncStarted()) {
+            request.removeAttribute(RESPONSE_ATTRIBUTE);
+            finish(compressing);
+        }
+    }
+
+    private void finish(CompressingResponse compressing) {
+        GzipEventStream stream = compressing.getStream();
+        if (stream == null) {
+            return;
+        }
+        try {
+            compressing.finish();
+        } catch (IOException e) {
+            // Usually a client that went away before the stream ended.
+            logger.debug("Could not finish gzip stream: {}", e.toString());
+        }
+        rawBytes.addAndGet(stream.getRawBytes());
+        compressedBytes.addAndGet(stream.getCompressedBytes());
+        compressedEvents.addAndGet(stream.getCompressedEvents());
+        storedEvents.addAndGet(stream.getStoredEvents());
+        if (ratio != null && stream.getRawBytes() > 0) {
+            ratio.record((double) stream.getCompressedBytes() / stream.getRawBytes());
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.compression.bytes", rawBytes, AtomicLong::get)
+                .description("Bytes of streamed responses before and after gzip")
+                .tag("type", "raw")
+                .register(registry);
+        FunctionCounter.builder("nlweb.compression.bytes", compressedBytes, AtomicLong::get)
+                .description("Bytes of streamed responses before and after gzip")
+                .tag("type", "compressed")
+                .register(registry);
+        FunctionCounter.builder("nlweb.compression.events", compressedEvents, AtomicLong::get)
+                .description("Streamed events by how they were sent")
+                .tag("result", "compressed")
+                .register(registry);
+        FunctionCounter.builder("nlweb.compression.events", storedEvents, AtomicLong::get)
+                .description("Streamed events by how they were sent")
+                .tag("result", "stored")
+                .register(registry);
+        ratio = DistributionSummary.builder("nlweb.compression.ratio")
+                .description("Compressed to raw size of each gzipped response")
+                .register(registry);
+    }
+}
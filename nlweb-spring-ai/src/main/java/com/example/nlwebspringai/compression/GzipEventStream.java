@@ -0,0 +1,208 @@
+package com.example.nlwebspringai.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * One gzip stream over a response's events. Writes are held until the response is flushed at the end of an event:
+ * emitters flush after every part they write, so with a {@code delimiter} (a blank line for SSE, a newline for
+ * NDJSON) a flush only counts once the pending bytes end with it. The event is then deflated and sync-flushed,
+ * so the client can decompress it at once and later events are still compressed against the earlier ones. Events
+ * smaller than {@code minEventSize} are written as stored (uncompressed) deflate blocks.
+ */
+final class GzipEventStream extends ServletOutputStream {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] NO_INPUT = new byte[0];
+
+    private final ServletOutputStream out;
+    private final int level;
+    private final int minEventSize;
+    private final byte[] delimiter;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final EventBuffer pending = new EventBuffer();
+    // Not synchronized: holding a monitor while writing to the client would pin a virtual thread.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] buffer = new byte[8192];
+    private int currentLevel;
+    private boolean headerWritten;
+    private boolean finished;
+    private long rawBytes;
+    private long compressedBytes;
+    private int compressedEvents;
+    private int storedEvents;
+
+    GzipEventStream(ServletOutputStream out, int level, int minEventSize, byte[] delimiter) {
+        this.out = out;
+        this.level = level;
+        this.minEventSize = minEventSize;
+        this.delimiter = delimiter;
+        this.deflater = new Deflater(level, true);
+        this.currentLevel = level;
+    }
+
+    @Override
+    public void write(int b) {
+        lock.lock();
+        try {
+            pending.write(b);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        lock.lock();
+        try {
+            pending.write(bytes, offset, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            if (finished || !atEventEnd()) {
+                return;
+            }
+            writeEvent();
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean atEventEnd() {
+        return delimiter == null || pending.size() == 0 || pending.endsWith(delimiter);
+    }
+
+    // Writes what is pending and the gzip trailer. The underlying stream is left to the container to close.
+    void finish() throws IOException {
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            writeEvent();
+            writeHeader();
+            deflater.finish();
+            while (!deflater.finished()) {
+                writeOutput(buffer, deflater.deflate(buffer));
+            }
+            int crcValue = (int) crc.getValue();
+            int size = (int) rawBytes;
+            writeOutput(new byte[]{(byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)}, 8);
+            out.flush();
+        } finally {
+            deflater.end();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    private void writeEvent() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        writeHeader();
+        int length = pending.size();
+        boolean store = length < minEventSize;
+        int eventLevel = store ? Deflater.NO_COMPRESSION : level;
+        if (eventLevel != currentLevel) {
+            // A level change applies to the next deflate call; make that one without input, so it holds no event bytes.
+            deflater.setLevel(eventLevel);
+            deflater.setInput(NO_INPUT);
+            drain(Deflater.NO_FLUSH);
+            currentLevel = eventLevel;
+        }
+        crc.update(pending.bytes(), 0, length);
+        rawBytes += length;
+        deflater.setInput(pending.bytes(), 0, length);
+        drain(Deflater.SYNC_FLUSH);
+        pending.reset();
+        if (store) {
+            storedEvents++;
+        } else {
+            compressedEvents++;
+        }
+    }
+
+    private void drain(int flush) throws IOException {
+        int length;
+        while ((length = deflater.deflate(buffer, 0, buffer.length, flush)) > 0) {
+            writeOutput(buffer, length);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            headerWritten = true;
+            writeOutput(HEADER);
+        }
+    }
+
+    private void writeOutput(byte[] bytes) throws IOException {
+        writeOutput(bytes, bytes.length);
+    }
+
+    private void writeOutput(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        compressedBytes += length;
+    }
+
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    int getCompressedEvents() {
+        return compressedEvents;
+    }
+
+    int getStoredEvents() {
+        return storedEvents;
+    }
+
+    @Override
+    public boolean isReady() {
+        return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        out.setWriteListener(writeListener);
+    }
+
+    // Deflated in place rather than copied out first.
+    private static final class EventBuffer extends ByteArrayOutputStream {
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        boolean endsWith(byte[] suffix) {
+            return count >= suffix.length && Arrays.equals(buf, count - suffix.length, count, suffix, 0, suffix.length);
+        }
+    }
+}
@@ -1,14 +1,83 @@
 package com.example.nlwebspringai.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 
 @Configuration
 public class AppConfig {
 
+    // Built from Boot's builder so that calls are observed and carry the trace context. Shares the NLWeb
+    // connection pool and timeouts with the reactive client (see HttpClientConfig).
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder,
+                                     @Qualifier("nlWebHttpClient") HttpClient nlWebHttpClient,
+                                     @Value("${nlweb.http.response-timeout:30s}") Duration responseTimeout) {
+        return restTemplateBuilder
+                .requestFactory(() -> {
+                    ReactorNettyClientRequestFactory requestFactory = new ReactorNettyClientRequestFactory(nlWebHttpClient);
+                    // The factory's own defaults (5s for the whole exchange) are too short for an LLM round trip.
+                    requestFactory.setExchangeTimeout(responseTimeout);
+                    requestFactory.setReadTimeout(responseTimeout);
+                    return requestFactory;
+                })
+                .additionalInterceptors((request, body, execution) -> new PooledConnectionResponse(execution.execute(request, body)))
+                .build();
+    }
+
+    /**
+     * Closes a Reactor Netty response by reading its body to the end, which hands the connection back to the pool,
+     * rather than by closing the connection. Spring 6.1's {@code ReactorNettyClientResponse.close()} disposes the
+     * connection even after it has gone back to the pool, so the next request on it, blocking or reactive, fails
+     * with a {@code PrematureCloseException}.
+     */
+    private static final class PooledConnectionResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+
+        private PooledConnectionResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.getBody().close();
+            } catch (IOException | RuntimeException e) {
+                // An empty body has already released the connection; a failed read has already closed it.
+            }
+        }
     }
 }
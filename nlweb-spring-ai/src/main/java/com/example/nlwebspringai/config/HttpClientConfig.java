@@ -0,0 +1,91 @@
+package com.example.nlwebspringai.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection pools and timeouts for the two outbound services, NLWeb ({@code nlweb.http.*}) and Playwright-MCP
+ * ({@code playwright.mcp.http.*}). Each gets its own Reactor Netty pool, so a slow NLWeb cannot starve MCP
+ * commands of connections and vice versa. Callers waiting for a connection are queued up to
+ * {@code pending-acquire-max-count} and fail after {@code pending-acquire-timeout}; a response that stalls
+ * for longer than {@code response-timeout} between reads fails instead of holding its connection.
+ * <p>
+ * Pool metrics are published as {@code reactor.netty.connection.provider.*}, tagged with the pool name.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider nlWebConnectionProvider(
+            @Value("${nlweb.http.max-connections:50}") int maxConnections,
+            @Value("${nlweb.http.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${nlweb.http.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${nlweb.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${nlweb.http.max-life-time:5m}") Duration maxLifeTime) {
+        return connectionProvider("nlweb", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    @Bean
+    public HttpClient nlWebHttpClient(
+            @Qualifier("nlWebConnectionProvider") ConnectionProvider connectionProvider,
+            @Value("${nlweb.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${nlweb.http.response-timeout:30s}") Duration responseTimeout,
+            @Value("${nlweb.http.keep-alive:true}") boolean keepAlive,
+            @Value("${nlweb.http.protocols:HTTP11}") List<HttpProtocol> protocols) {
+        return httpClient(connectionProvider, connectTimeout, responseTimeout, keepAlive, protocols);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider mcpConnectionProvider(
+            @Value("${playwright.mcp.http.max-connections:100}") int maxConnections,
+            @Value("${playwright.mcp.http.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${playwright.mcp.http.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${playwright.mcp.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${playwright.mcp.http.max-life-time:5m}") Duration maxLifeTime) {
+        return connectionProvider("playwright-mcp", maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    @Bean
+    public HttpClient mcpHttpClient(
+            @Qualifier("mcpConnectionProvider") ConnectionProvider connectionProvider,
+            @Value("${playwright.mcp.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${playwright.mcp.http.response-timeout:60s}") Duration responseTimeout,
+            @Value("${playwright.mcp.http.keep-alive:true}") boolean keepAlive,
+            @Value("${playwright.mcp.http.protocols:HTTP11}") List<HttpProtocol> protocols) {
+        return httpClient(connectionProvider, connectTimeout, responseTimeout, keepAlive, protocols);
+    }
+
+    static ConnectionProvider connectionProvider(String name, int maxConnections, int pendingAcquireMaxCount,
+                                                 Duration pendingAcquireTimeout, Duration maxIdleTime, Duration maxLifeTime) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                // Closes idle connections even when the pool sees no traffic, so half-closed sockets don't pile up.
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    // H2 is negotiated over TLS with HTTP11 as fallback; H2C needs a server that speaks cleartext HTTP/2.
+    static HttpClient httpClient(ConnectionProvider connectionProvider, Duration connectTimeout, Duration responseTimeout,
+                                 boolean keepAlive, List<HttpProtocol> protocols) {
+        return HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive)
+                .keepAlive(keepAlive)
+                .responseTimeout(responseTimeout)
+                .protocol(protocols.toArray(HttpProtocol[]::new));
+    }
+}
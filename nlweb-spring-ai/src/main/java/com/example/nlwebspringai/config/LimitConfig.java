@@ -0,0 +1,52 @@
+package com.example.nlwebspringai.config;
+
+import com.example.nlwebspringai.limit.AdaptiveLimit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+
+/**
+ * Adaptive concurrency limits for the two stages of {@code /process-nl}: NLWeb translation
+ * ({@code nlweb.limit.translation.*}) and Playwright-MCP command execution ({@code nlweb.limit.mcp.*}).
+ * Each stage has its own budget, so a slow LLM cannot hold back commands for queries already translated.
+ * Shed requests are answered with {@code nlweb.limit.rejection-status} and a {@code Retry-After} header.
+ */
+@Configuration
+public class LimitConfig {
+
+    @Bean
+    public AdaptiveLimit translationLimit(
+            @Value("${nlweb.limit.enabled:true}") boolean enabled,
+            @Value("${nlweb.limit.translation.initial-limit:20}") int initialLimit,
+            @Value("${nlweb.limit.translation.min-limit:2}") int minLimit,
+            @Value("${nlweb.limit.translation.max-limit:200}") int maxLimit,
+            @Value("${nlweb.limit.translation.max-queue:100}") int maxQueue,
+            @Value("${nlweb.limit.translation.queue-timeout:2s}") Duration queueTimeout,
+            @Value("${nlweb.limit.rejection-status:503}") int rejectionStatus) {
+        return limit("translation", enabled, initialLimit, minLimit, maxLimit, maxQueue, queueTimeout, rejectionStatus);
+    }
+
+    @Bean
+    public AdaptiveLimit mcpLimit(
+            @Value("${nlweb.limit.enabled:true}") boolean enabled,
+            @Value("${nlweb.limit.mcp.initial-limit:8}") int initialLimit,
+            @Value("${nlweb.limit.mcp.min-limit:1}") int minLimit,
+            @Value("${nlweb.limit.mcp.max-limit:64}") int maxLimit,
+            @Value("${nlweb.limit.mcp.max-queue:50}") int maxQueue,
+            @Value("${nlweb.limit.mcp.queue-timeout:5s}") Duration queueTimeout,
+            @Value("${nlweb.limit.rejection-status:503}") int rejectionStatus) {
+        return limit("mcp", enabled, initialLimit, minLimit, maxLimit, maxQueue, queueTimeout, rejectionStatus);
+    }
+
+    static AdaptiveLimit limit(String stage, boolean enabled, int initialLimit, int minLimit, int maxLimit, int maxQueue,
+                               Duration queueTimeout, int rejectionStatus) {
+        if (!enabled) {
+            return AdaptiveLimit.unlimited(stage);
+        }
+        return new AdaptiveLimit(stage, new AdaptiveLimit.Settings(initialLimit, minLimit, maxLimit, maxQueue, queueTimeout,
+                HttpStatusCode.valueOf(rejectionStatus)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.nlwebspringai.config;
+
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import com.example.nlwebspringai.resilience.Hedging;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+/**
+ * Resilience policies for the outbound services: a circuit breaker each for NLWeb
+ * ({@code nlweb.circuit-breaker.*}) and Playwright-MCP ({@code playwright.mcp.circuit-breaker.*}), hedged NLWeb
+ * translations ({@code nlweb.hedge.*}) and jittered retries for idempotent MCP commands
+ * ({@code playwright.mcp.retry.*}).
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker nlWebCircuitBreaker(
+            @Value("${nlweb.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${nlweb.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${nlweb.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${nlweb.circuit-breaker.open-duration:15s}") Duration openDuration,
+            @Value("${nlweb.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        return new CircuitBreaker("nlweb", new CircuitBreaker.Settings(failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls));
+    }
+
+    @Bean
+    public CircuitBreaker mcpCircuitBreaker(
+            @Value("${playwright.mcp.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${playwright.mcp.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${playwright.mcp.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${playwright.mcp.circuit-breaker.open-duration:10s}") Duration openDuration,
+            @Value("${playwright.mcp.circuit-breaker.half-open-calls:2}") int halfOpenCalls) {
+        return new CircuitBreaker("playwright-mcp", new CircuitBreaker.Settings(failureRateThreshold, slidingWindowSize,
+                minimumCalls, openDuration, halfOpenCalls));
+    }
+
+    @Bean
+    public Hedging nlWebHedging(
+            @Value("${nlweb.hedge.percentile:0.95}") double percentile,
+            @Value("${nlweb.hedge.min-delay:250ms}") Duration minDelay,
+            @Value("${nlweb.hedge.min-samples:20}") int minSamples,
+            @Value("${nlweb.hedge.budget:0.1}") double budget) {
+        return new Hedging("nlweb", new Hedging.Settings(percentile, minDelay, minSamples, budget));
+    }
+
+    // Backoff is randomized by +-jitter, so clients retrying after the same hiccup do not return in lockstep.
+    @Bean
+    public RetryBackoffSpec mcpRetry(
+            @Value("${playwright.mcp.retry.max-retries:2}") int maxRetries,
+            @Value("${playwright.mcp.retry.min-backoff:100ms}") Duration minBackoff,
+            @Value("${playwright.mcp.retry.max-backoff:1s}") Duration maxBackoff,
+            @Value("${playwright.mcp.retry.jitter:0.5}") double jitter) {
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+}
@@ -1,19 +1,31 @@
 package com.example.nlwebspringai.controller;
 
+import com.example.nlwebspringai.codec.SmileStreams;
+import com.example.nlwebspringai.limit.LimitExceededException;
 import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.model.BatchMcpResponse;
 import com.example.nlwebspringai.model.NlWebQueryRequest; // Using existing DTO
+import com.example.nlwebspringai.service.BatchProcessingService;
 import com.example.nlwebspringai.service.OrchestrationService;
+import com.example.nlwebspringai.service.ResponseRelay;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1") // Base path for the API
 public class NaturalLanguageController {
@@ -21,9 +33,16 @@ public class NaturalLanguageController {
     private static final Logger logger = LoggerFactory.getLogger(NaturalLanguageController.class);
 
     private final OrchestrationService orchestrationService;
+    private final BatchProcessingService batchProcessingService;
+    private final ResponseRelay responseRelay;
+    private final SmileStreams smileStreams;
 
-    public NaturalLanguageController(OrchestrationService orchestrationService) {
+    public NaturalLanguageController(OrchestrationService orchestrationService, BatchProcessingService batchProcessingService,
+                                     ResponseRelay responseRelay, SmileStreams smileStreams) {
         this.orchestrationService = orchestrationService;
+        this.batchProcessingService = batchProcessingService;
+        this.responseRelay = responseRelay;
+        this.smileStreams = smileStreams;
     }
 
     @PostMapping(value = "/process-nl", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -31,22 +50,25 @@ public class NaturalLanguageController {
         if (request == null || request.getQuery() == null || request.getQuery().trim().isEmpty()) {
             logger.warn("Received empty or null query in request.");
             // Return a Flux that signals an error, which can be mapped to HTTP 400
-            return Flux.error(new org.springframework.web.server.ResponseStatusException(
-                    org.springframework.http.HttpStatus.BAD_REQUEST,
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Query cannot be null or empty in the request body."));
         }
 
         try {
             logger.info("Controller: Received natural language query: {}", request.getQuery());
-            return orchestrationService.processNaturalLanguageCommand(request.getQuery())
+            // The relay decouples the MCP stream from the client's read speed (see ResponseRelay).
+            return responseRelay.relay(orchestrationService.processNaturalLanguageCommand(request.getQuery())
                     .doOnError(e -> logger.error("Controller: Error processing command for query '{}': {}", request.getQuery(), e.getMessage()))
-                    .onErrorResume(e -> {
+                    // Shed requests fail before the first event, so they still get their 503/429 and Retry-After.
+                    .onErrorResume(e -> !(e instanceof LimitExceededException), e -> {
                         McpResponse errorResponse = new McpResponse();
                         errorResponse.setId("error-controller-stream-" + System.currentTimeMillis());
                         errorResponse.setType("error");
                         errorResponse.setError("Failed to process query: " + e.getMessage());
                         return Flux.just(errorResponse);
-                    });
+                    })
+                    .contextWrite(McpSessionContext.withSnapshotDelta(request.getSnapshotDelta()))
+                    .contextWrite(McpSessionContext.withSessionId(request.getSessionId())));
         } catch (Exception e) {
             // This catch block might be redundant if all exceptions are handled by onErrorResume in the Flux chain.
             // However, it can catch synchronous errors from the initial part of processNaturalLanguageCommand if any.
@@ -58,4 +80,47 @@ public class NaturalLanguageController {
             return Flux.just(errorResponse);
         }
     }
+
+    // The same events as Smile for clients that send Accept: application/stream+x-jackson-smile (servlet stack).
+    @PostMapping(value = "/process-nl", consumes = {MediaType.APPLICATION_JSON_VALUE, SmileStreams.SMILE_VALUE},
+            produces = SmileStreams.SMILE_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> processNaturalLanguageQueryAsSmile(@RequestBody NlWebQueryRequest request) {
+        return smileStreams.emit(processNaturalLanguageQuery(request));
+    }
+
+    @PostMapping(value = "/process-nl/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BatchMcpResponse> processBatch(@RequestBody List<NlWebQueryRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            logger.warn("Received empty batch request.");
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch must contain at least one query."));
+        }
+        logger.info("Controller: Received batch of {} queries", requests.size());
+        return batchProcessingService.processBatch(requests);
+    }
+
+    // NDJSON is read as a whole body so the endpoint behaves the same on the servlet and reactive stacks.
+    @PostMapping(value = "/process-nl/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<BatchMcpResponse> processNdjsonBatch(@RequestBody String body) {
+        if (body == null || body.isBlank()) {
+            logger.warn("Received empty NDJSON batch request.");
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch must contain at least one query."));
+        }
+        return batchProcessingService.processNdjsonBatch(body);
+    }
+
+    @PostMapping(value = "/process-nl/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, SmileStreams.SMILE_VALUE},
+            produces = SmileStreams.SMILE_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> processBatchAsSmile(@RequestBody List<NlWebQueryRequest> requests) {
+        return smileStreams.emit(processBatch(requests));
+    }
+
+    // No body: a shed /process-nl request only accepts an event stream, and the status says it all.
+    @ExceptionHandler(LimitExceededException.class)
+    public ResponseEntity<Void> handleLimitExceeded(LimitExceededException e) {
+        return ResponseEntity.status(e.getStatusCode()).headers(e.getHeaders()).build();
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.nlwebspringai.controller;
+
+import com.example.nlwebspringai.recording.ReplayReport;
+import com.example.nlwebspringai.recording.SessionReplayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1")
+public class ReplayController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayController.class);
+
+    private final SessionReplayer sessionReplayer;
+
+    public ReplayController(SessionReplayer sessionReplayer) {
+        this.sessionReplayer = sessionReplayer;
+    }
+
+    // Replays a session log from nlweb.recording.dir; speed 0 runs the requests back to back.
+    @PostMapping(value = "/replay", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ReplayReport> replay(@RequestParam String recording, @RequestParam(defaultValue = "0") double speed) {
+        logger.info("Controller: Replaying recording {} at speed {}", recording, speed);
+        return sessionReplayer.replay(recording, speed);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.nlwebspringai.intent;
+
+import com.example.nlwebspringai.model.McpCommand;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local translation of unambiguous queries ("navigate to https://…", "snapshot", "click e12"), tried before the
+ * translation cache and NLWeb. The first {@link IntentMatcher} that returns a command wins; a query none of them
+ * is sure about goes to NLWeb as before.
+ */
+@Component
+public class FastPath implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(FastPath.class);
+
+    private final boolean enabled;
+    private final List<IntentMatcher> matchers;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FastPath(@Value("${nlweb.fast-path.enabled:true}") boolean enabled, List<IntentMatcher> matchers) {
+        this.enabled = enabled;
+        this.matchers = List.copyOf(matchers);
+    }
+
+    public McpCommand match(String query) {
+        if (!enabled || query == null || query.isBlank()) {
+            return null;
+        }
+        for (IntentMatcher matcher : matchers) {
+            McpCommand command;
+            try {
+                command = matcher.match(query);
+            } catch (RuntimeException e) {
+                // A broken matcher must never fail a request; NLWeb can still translate the query.
+                logger.warn("Intent matcher {} failed on query '{}': {}", matcher.getClass().getSimpleName(), query, e.toString());
+                continue;
+            }
+            if (command != null) {
+                hits.incrementAndGet();
+                return command;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.fast-path.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Queries checked against the local intent matchers before NLWeb")
+                .register(registry);
+        FunctionCounter.builder("nlweb.fast-path.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Queries checked against the local intent matchers before NLWeb")
+                .register(registry);
+    }
+}
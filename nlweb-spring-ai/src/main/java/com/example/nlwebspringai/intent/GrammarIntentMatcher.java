@@ -0,0 +1,162 @@
+package com.example.nlwebspringai.intent;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link IntentMatcher} driven by grammar rules loaded from {@code nlweb.fast-path.rules} (a JSON array, see
+ * {@code fast-path-rules.json} for the defaults). Each rule is a regular expression that has to match the whole
+ * query, case-insensitively, and a command template whose {@code {group}} placeholders are filled from the
+ * pattern's named groups; parameters that come out empty are left out. Rules are tried in file order.
+ * <p>
+ * Rules match the query tidied up (whitespace collapsed, trailing {@code .!} dropped), but placeholders are filled
+ * from the query as written, so typed text keeps its spacing, punctuation and case. A navigate target without a
+ * scheme gets {@code https://}.
+ */
+@Component
+public class GrammarIntentMatcher implements IntentMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrammarIntentMatcher.class);
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://");
+
+    public record Rule(String name, String pattern, String action, String target, Map<String, String> params) {
+    }
+
+    private record CompiledRule(Rule rule, Pattern pattern) {
+    }
+
+    private final List<CompiledRule> rules;
+
+    @Autowired
+    public GrammarIntentMatcher(ObjectMapper objectMapper,
+                                @Value("${nlweb.fast-path.rules:classpath:fast-path-rules.json}") Resource rules) {
+        this(load(objectMapper, rules));
+        logger.info("Loaded {} fast-path grammar rules from {}", this.rules.size(), rules.getDescription());
+    }
+
+    public GrammarIntentMatcher(List<Rule> rules) {
+        // Compiled once here; an invalid pattern fails startup rather than a request.
+        this.rules = rules.stream()
+                .map(rule -> new CompiledRule(rule, Pattern.compile(rule.pattern(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)))
+                .toList();
+    }
+
+    @Override
+    public McpCommand match(String query) {
+        TidiedQuery tidied = TidiedQuery.of(query);
+        for (CompiledRule compiled : rules) {
+            Matcher matcher = compiled.pattern().matcher(tidied.text());
+            if (matcher.matches()) {
+                logger.debug("Fast-path rule '{}' matched query: {}", compiled.rule().name(), query);
+                return toCommand(compiled.rule(), group -> tidied.original(matcher, group));
+            }
+        }
+        return null;
+    }
+
+    private static McpCommand toCommand(Rule rule, UnaryOperator<String> groups) {
+        String target = rule.target() != null ? expand(rule.target(), groups) : null;
+        if ("navigate".equalsIgnoreCase(rule.action()) && target != null && !SCHEME.matcher(target).find()) {
+            target = "https://" + target;
+        }
+        Map<String, Object> params = new HashMap<>();
+        if (rule.params() != null) {
+            rule.params().forEach((name, template) -> {
+                String value = expand(template, groups);
+                if (!value.isEmpty()) {
+                    params.put(name, value);
+                }
+            });
+        }
+        return new McpCommand(rule.action(), target == null || target.isEmpty() ? null : target, params);
+    }
+
+    private static String expand(String template, UnaryOperator<String> groups) {
+        return PLACEHOLDER.matcher(template).replaceAll(placeholder -> {
+            String value = groups.apply(placeholder.group(1));
+            return Matcher.quoteReplacement(value != null ? value : "");
+        });
+    }
+
+    /**
+     * The query as the rules see it, with whitespace runs collapsed to one space, the ends trimmed and trailing
+     * {@code .!} dropped, plus where each of its characters came from, so that what a group captured can be
+     * taken from the query as it was written.
+     */
+    private record TidiedQuery(String query, String text, int[] starts, int[] ends) {
+
+        static TidiedQuery of(String query) {
+            StringBuilder text = new StringBuilder(query.length());
+            // Character i of text came from query[starts[i], ends[i]); a collapsed space from the whole run.
+            int[] starts = new int[query.length()];
+            int[] ends = new int[query.length()];
+            int spaceStart = -1;
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (isWhitespace(c)) {
+                    if (spaceStart < 0 && text.length() > 0) {
+                        spaceStart = i;
+                    }
+                    continue;
+                }
+                if (spaceStart >= 0) {
+                    starts[text.length()] = spaceStart;
+                    ends[text.length()] = i;
+                    text.append(' ');
+                    spaceStart = -1;
+                }
+                starts[text.length()] = i;
+                ends[text.length()] = i + 1;
+                text.append(c);
+            }
+            int end = text.length();
+            while (end > 0 && (text.charAt(end - 1) == '.' || text.charAt(end - 1) == '!')) {
+                end--;
+            }
+            text.setLength(end);
+            return new TidiedQuery(query, text.toString(), starts, ends);
+        }
+
+        String original(Matcher matcher, String group) {
+            int start = matcher.start(group);
+            int end = matcher.end(group);
+            if (start < 0) {
+                return null;
+            }
+            return start == end ? "" : query.substring(starts[start], ends[end - 1]);
+        }
+
+        // What \s matches.
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || (c >= '\t' && c <= '\r');
+        }
+    }
+
+    private static List<Rule> load(ObjectMapper objectMapper, Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, new TypeReference<List<Rule>>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read fast-path rules from " + resource.getDescription(), e);
+        }
+    }
+}
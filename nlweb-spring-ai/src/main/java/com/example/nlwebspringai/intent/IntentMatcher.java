@@ -0,0 +1,13 @@
+package com.example.nlwebspringai.intent;
+
+import com.example.nlwebspringai.model.McpCommand;
+
+/**
+ * Translates a query locally, without NLWeb. Implementations return a command only when the query leaves no
+ * doubt about it, and {@code null} otherwise; every bean of this type is consulted by {@link FastPath}, in
+ * {@link org.springframework.core.annotation.Order order}, before a query is sent to NLWeb.
+ */
+public interface IntentMatcher {
+
+    McpCommand match(String query);
+}
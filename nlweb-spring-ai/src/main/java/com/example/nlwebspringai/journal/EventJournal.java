@@ -0,0 +1,202 @@
+package com.example.nlwebspringai.journal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Structured journal of what each request did, for when the INFO logs are turned off
+ * ({@code nlweb.journal.enabled}). Recording an event only puts it in a lock-free ring of {@code buffer-size}
+ * slots; one writer thread formats the events and appends them to memory-mapped files under {@code dir}
+ * (see {@link JournalWriter}). When the ring is full the event is dropped and counted rather than making the
+ * request wait.
+ * <p>
+ * With {@code sample-rate} below 1, only that share of requests is kept, chosen by id so a request's events
+ * stay together: every event of a request is recorded under the correlation id {@link #correlate()} puts in
+ * its Reactor context. A failed command is always kept, together with the event that sent it. Values of
+ * {@code text} fields, i.e. what was typed into the page, and {@link JournalEvent.Sensitive} values are replaced
+ * by their length unless {@code redact-text} is off. {@link JournalReader} prints the files.
+ */
+@Component
+public class EventJournal implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    public static final String CORRELATION_ID_KEY = EventJournal.class.getName() + ".correlationId";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final EventRing<JournalEvent> ring;
+    private final JournalWriter writer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    public EventJournal(@Value("${nlweb.journal.enabled:false}") boolean enabled,
+                        @Value("${nlweb.journal.dir:journal}") Path dir,
+                        @Value("${nlweb.journal.buffer-size:65536}") int bufferSize,
+                        @Value("${nlweb.journal.file-size:64MB}") DataSize fileSize,
+                        @Value("${nlweb.journal.max-files:8}") int maxFiles,
+                        @Value("${nlweb.journal.sample-rate:1.0}") double sampleRate,
+                        @Value("${nlweb.journal.redact-text:true}") boolean redactText,
+                        @Value("${nlweb.journal.max-value-length:1024}") int maxValueLength) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("nlweb.journal.sample-rate must be in [0, 1]");
+        }
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.ring = new EventRing<>(enabled ? bufferSize : 2);
+        this.writer = new JournalWriter(dir, Math.toIntExact(fileSize.toBytes()), maxFiles, redactText, maxValueLength);
+        this.writerThread = new Thread(this::drain, "nlweb-journal-writer");
+        this.writerThread.setDaemon(true);
+        if (enabled) {
+            running = true;
+            writerThread.start();
+            logger.info("Journaling events to {} ({} files of {} at most, sample rate {})",
+                    dir.toAbsolutePath(), maxFiles, fileSize, sampleRate);
+        }
+    }
+
+    public static EventJournal disabled() {
+        return new EventJournal(false, Path.of("journal"), 2, DataSize.ofMegabytes(1), 1, 1.0, true, 1024);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // A correlation id for the events of one request, unless an enclosing request already has one.
+    public Function<Context, Context> correlate() {
+        return context -> !enabled || context.hasKey(CORRELATION_ID_KEY)
+                ? context
+                : context.put(CORRELATION_ID_KEY, UUID.randomUUID().toString());
+    }
+
+    public static String correlationId(ContextView context, String fallback) {
+        return context.getOrDefault(CORRELATION_ID_KEY, fallback);
+    }
+
+    /**
+     * Records an event unless sampling leaves its id out; failures are always recorded. fields alternate names and
+     * values; values are formatted later on the writer thread. Returns whether sampling kept the event.
+     */
+    public boolean record(JournalEvent.Type type, String id, String name, Object... fields) {
+        if (!enabled) {
+            return false;
+        }
+        if (type != JournalEvent.Type.MCP_FAILED && !isSampled(id)) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+        offer(new JournalEvent(System.currentTimeMillis(), type, id, name, fields));
+        return true;
+    }
+
+    // Records an event sampling left out when it happened, e.g. the MCP_SENT of a command that then failed.
+    public void recordLate(long epochMillis, JournalEvent.Type type, String id, String name, Object... fields) {
+        if (enabled) {
+            offer(new JournalEvent(epochMillis, type, id, name, fields));
+        }
+    }
+
+    private void offer(JournalEvent event) {
+        if (!ring.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private boolean isSampled(String id) {
+        if (sampleRate >= 1) {
+            return true;
+        }
+        // Ids like "req-1", "req-2" have close hash codes; multiplying spreads them over the whole range.
+        double draw = id != null
+                ? ((id.hashCode() * 0x9E3779B97F4A7C15L) >>> 11) * 0x1.0p-53
+                : ThreadLocalRandom.current().nextDouble();
+        return draw < sampleRate;
+    }
+
+    private void drain() {
+        boolean warned = false;
+        while (true) {
+            JournalEvent event = ring.poll();
+            if (event == null) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                writer.write(event);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                dropped.incrementAndGet();
+                if (!warned) {
+                    logger.warn("Could not write journal event, dropping it and counting further failures: {}", e.toString());
+                    warned = true;
+                }
+            }
+        }
+    }
+
+    // Writes what is still in the ring and flushes the current file.
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        writer.close();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.journal.events", written, AtomicLong::get)
+                .description("Journal events by outcome")
+                .tag("result", "written")
+                .register(registry);
+        FunctionCounter.builder("nlweb.journal.events", dropped, AtomicLong::get)
+                .description("Journal events by outcome")
+                .tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("nlweb.journal.events", sampledOut, AtomicLong::get)
+                .description("Journal events by outcome")
+                .tag("result", "sampled_out")
+                .register(registry);
+        Gauge.builder("nlweb.journal.queued", ring, EventRing::size)
+                .description("Journal events waiting for the writer thread")
+                .register(registry);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.nlwebspringai.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring of events for many producers and one consumer. Each slot carries a sequence number:
+ * a producer claims a slot by advancing {@code tail} with a CAS, stores its event and publishes it by bumping
+ * the slot's sequence; the consumer takes a slot only once it is published, and hands it back for the next lap
+ * the same way. A full ring rejects the event instead of making the producer wait.
+ */
+final class EventRing<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // Only written by the consumer
+
+    EventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, got " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E event) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[slot] = event;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer hasn't freed this slot since the last lap.
+                return false;
+            }
+            // Another producer claimed the slot first; try the next one.
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = head;
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) {
+            return null;
+        }
+        E event = (E) slots[slot];
+        slots[slot] = null;
+        sequences.lazySet(slot, position + slots.length);
+        head = position + 1;
+        return event;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
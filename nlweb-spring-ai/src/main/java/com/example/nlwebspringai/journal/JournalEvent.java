@@ -0,0 +1,18 @@
+package com.example.nlwebspringai.journal;
+
+/**
+ * One entry of the {@link EventJournal}. {@code fields} alternate names and values; values are turned into
+ * text on the journal's writer thread, so they must not be changed after they are recorded. A {@link java.util.Map}
+ * value is written as one field per entry, named {@code name.key}.
+ */
+public record JournalEvent(long epochMillis, Type type, String id, String name, Object[] fields) {
+
+    // Stored by ordinal: only ever append new types.
+    public enum Type {
+        TRANSLATED, MCP_SENT, MCP_EVENT, MCP_DONE, MCP_FAILED
+    }
+
+    // A field value that may contain typed text, e.g. the query of a translation that types; redacted like text fields.
+    public record Sensitive(Object value) {
+    }
+}
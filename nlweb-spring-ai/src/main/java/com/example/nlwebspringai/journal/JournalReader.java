@@ -0,0 +1,152 @@
+package com.example.nlwebspringai.journal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decodes journal files written by {@link EventJournal}. From the command line it prints one event per line,
+ * or one JSON object per line with {@code --json}, for the given files or every journal file in the given
+ * directories, oldest first:
+ * <pre>
+ * java -cp target/classes com.example.nlwebspringai.journal.JournalReader [--json] journal/
+ * </pre>
+ * It only uses the JDK, so it also runs from the packaged jar with
+ * {@code java -cp app.jar -Dloader.main=com.example.nlwebspringai.journal.JournalReader org.springframework.boot.loader.launch.PropertiesLauncher journal/}.
+ */
+public final class JournalReader {
+
+    public record Entry(long epochMillis, JournalEvent.Type type, String id, String name, Map<String, String> fields) {
+    }
+
+    private JournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean json = false;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if ("--json".equals(arg)) {
+                json = true;
+            } else {
+                Path path = Path.of(arg);
+                files.addAll(Files.isDirectory(path) ? JournalWriter.journalFiles(path) : List.of(path));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: JournalReader [--json] <journal file or directory>...");
+            System.exit(2);
+        }
+        PrintStream out = System.out;
+        boolean asJson = json;
+        for (Path file : files) {
+            read(file, entry -> out.println(asJson ? toJson(entry) : toText(entry)));
+        }
+    }
+
+    public static List<Entry> readAll(Path dir) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : JournalWriter.journalFiles(dir)) {
+            read(file, entries::add);
+        }
+        return entries;
+    }
+
+    public static void read(Path file, Consumer<Entry> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < Integer.BYTES || buffer.getInt() != JournalWriter.MAGIC) {
+            throw new IOException(file + " is not a journal file");
+        }
+        JournalEvent.Type[] types = JournalEvent.Type.values();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            long epochMillis = record.getLong();
+            int type = record.get();
+            String id = getString(record);
+            String name = getString(record);
+            int count = record.getShort();
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                fields.put(getString(record), getString(record));
+            }
+            consumer.accept(new Entry(epochMillis, type < types.length ? types[type] : null, id, name, fields));
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String toText(Entry entry) {
+        StringBuilder line = new StringBuilder()
+                .append(Instant.ofEpochMilli(entry.epochMillis())).append(' ')
+                .append(entry.type()).append(' ')
+                .append(entry.id()).append(' ')
+                .append(entry.name());
+        entry.fields().forEach((key, value) -> line.append(' ').append(key).append('=').append(value));
+        return line.toString();
+    }
+
+    static String toJson(Entry entry) {
+        StringBuilder json = new StringBuilder("{\"at\":").append(quote(Instant.ofEpochMilli(entry.epochMillis()).toString()))
+                .append(",\"type\":").append(quote(entry.type() != null ? entry.type().name() : null))
+                .append(",\"id\":").append(quote(entry.id()))
+                .append(",\"name\":").append(quote(entry.name()))
+                .append(",\"fields\":{");
+        String separator = "";
+        for (Map.Entry<String, String> field : entry.fields().entrySet()) {
+            json.append(separator).append(quote(field.getKey())).append(':').append(quote(field.getValue()));
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
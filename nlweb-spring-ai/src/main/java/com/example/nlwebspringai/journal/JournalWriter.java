@@ -0,0 +1,198 @@
+package com.example.nlwebspringai.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Appends {@link JournalEvent}s to memory-mapped journal files of a fixed size, starting a new file when the
+ * current one is full and deleting all but the newest {@code maxFiles}. Not thread-safe: only the
+ * {@link EventJournal}'s writer thread uses it.
+ * <p>
+ * A file starts with {@link #MAGIC} and holds records of
+ * {@code [int length][long epochMillis][byte type][str id][str name][short fields]([str key][str value])*},
+ * where {@code length} counts the bytes after itself and a {@code str} is a short byte count (-1 for null)
+ * followed by UTF-8. A zero length ends the data; the rest of the file is unused. {@link JournalReader} decodes it.
+ */
+final class JournalWriter implements Closeable {
+
+    static final int MAGIC = 0x4e4c4a31; // "NLJ1"
+    static final String PREFIX = "journal-";
+    static final String SUFFIX = ".nlj";
+
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private final Path dir;
+    private final int fileSize;
+    private final int maxFiles;
+    private final boolean redactText;
+    private final int maxValueLength;
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long lastFileMillis;
+
+    JournalWriter(Path dir, int fileSize, int maxFiles, boolean redactText, int maxValueLength) {
+        if (fileSize < 1024 || maxFiles < 1 || maxValueLength < 1) {
+            throw new IllegalArgumentException("Journal needs file-size >= 1KB, max-files >= 1 and max-value-length >= 1");
+        }
+        this.dir = dir;
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        this.redactText = redactText;
+        this.maxValueLength = maxValueLength;
+    }
+
+    void write(JournalEvent event) throws IOException {
+        ByteBuffer record = encode(event);
+        // Room for the record, its length and the end marker after it.
+        if (record.remaining() + 8 > fileSize - Integer.BYTES) {
+            throw new IOException("Journal record of " + record.remaining() + " bytes does not fit in a file");
+        }
+        if (mapped == null || mapped.remaining() < record.remaining() + 8) {
+            rotate();
+        }
+        // The length goes in last, so a reader never sees it ahead of the record it describes.
+        int start = mapped.position();
+        mapped.position(start + Integer.BYTES);
+        mapped.put(record);
+        mapped.putInt(start, mapped.position() - start - Integer.BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mapped != null) {
+            mapped.force();
+            mapped = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private ByteBuffer encode(JournalEvent event) {
+        scratch.clear();
+        putLong(event.epochMillis());
+        putByte((byte) event.type().ordinal());
+        putString(event.id());
+        putString(event.name());
+        List<String> fields = fields(event.fields());
+        putShort((short) (fields.size() / 2));
+        for (String field : fields) {
+            putString(field);
+        }
+        return scratch.flip();
+    }
+
+    // Flattens maps into name.key fields, redacts typed text and caps long values.
+    private List<String> fields(Object[] keyValues) {
+        List<String> fields = new ArrayList<>();
+        if (keyValues == null) {
+            return fields;
+        }
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            String key = String.valueOf(keyValues[i]);
+            if (keyValues[i + 1] instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    addField(fields, key + "." + entry.getKey(), entry.getValue());
+                }
+            } else {
+                addField(fields, key, keyValues[i + 1]);
+            }
+        }
+        return fields;
+    }
+
+    private void addField(List<String> fields, String key, Object value) {
+        boolean sensitive = value instanceof JournalEvent.Sensitive;
+        if (value instanceof JournalEvent.Sensitive marked) {
+            value = marked.value();
+        }
+        String text = value == null ? null : String.valueOf(value);
+        if (text != null && redactText && (sensitive || key.equals("text") || key.endsWith(".text"))) {
+            text = "[redacted " + text.length() + " chars]";
+        } else if (text != null && text.length() > maxValueLength) {
+            text = text.substring(0, maxValueLength) + "...";
+        }
+        fields.add(key);
+        fields.add(text);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        Files.createDirectories(dir);
+        // Names sort in creation order; two files started in the same millisecond get consecutive names.
+        long millis = Math.max(System.currentTimeMillis(), lastFileMillis + 1);
+        lastFileMillis = millis;
+        Path file = dir.resolve(PREFIX + String.format("%013d", millis) + SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        mapped.putInt(MAGIC);
+        deleteOldFiles();
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files = journalFiles(dir);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    static List<Path> journalFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        putShort((short) length);
+        ensureRoom(length);
+        scratch.put(bytes, 0, length);
+    }
+
+    private void putLong(long value) {
+        ensureRoom(Long.BYTES);
+        scratch.putLong(value);
+    }
+
+    private void putShort(short value) {
+        ensureRoom(Short.BYTES);
+        scratch.putShort(value);
+    }
+
+    private void putByte(byte value) {
+        ensureRoom(1);
+        scratch.put(value);
+    }
+
+    private void ensureRoom(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.nlwebspringai.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive concurrency limit for one stage of a request, in the style of Netflix's gradient limiter.
+ * <p>
+ * Calls beyond the current limit wait in a queue of at most {@code max-queue}; a call that finds the queue full,
+ * or waits longer than {@code queue-timeout}, fails with a {@link LimitExceededException}. After each call the
+ * limit is adjusted by the ratio of the long-term average latency to the latest one: it grows by about
+ * {@code sqrt(limit)} while latency stays within {@value #TOLERANCE}x the average, and shrinks as latency climbs
+ * above it, so the stage settles near the concurrency its backend can absorb without queueing. A timeout or
+ * dropped connection cuts the limit by {@value #BACKOFF_RATIO}. The limit never leaves
+ * [{@code min-limit}, {@code max-limit}] and does not grow while less than half of it is in use.
+ */
+public class AdaptiveLimit implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveLimit.class);
+
+    static final double TOLERANCE = 1.5;
+    static final double BACKOFF_RATIO = 0.9;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 100;
+
+    public record Settings(int initialLimit, int minLimit, int maxLimit, int maxQueue, Duration queueTimeout,
+                           HttpStatusCode rejectionStatus) {
+
+        public Settings {
+            if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+            }
+            if (maxQueue < 0) {
+                throw new IllegalArgumentException("max-queue must not be negative");
+            }
+        }
+    }
+
+    private final String stage;
+    private final Settings settings;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicLong queueFull = new AtomicLong();
+    private final AtomicLong queueTimeouts = new AtomicLong();
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    public AdaptiveLimit(String stage, Settings settings) {
+        this.stage = stage;
+        this.settings = settings;
+        this.limit = settings.initialLimit();
+    }
+
+    // A fixed limit no request can reach, for when limiting is turned off.
+    public static AdaptiveLimit unlimited(String stage) {
+        return new AdaptiveLimit(stage, new Settings(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0,
+                Duration.ofDays(1), HttpStatusCode.valueOf(503)));
+    }
+
+    // Runs the call once a permit is granted and holds the permit until the call terminates or is cancelled.
+    public <T> Flux<T> run(Supplier<Flux<T>> call) {
+        return Flux.usingWhen(acquire(),
+                permit -> {
+                    permit.startNanos = System.nanoTime();
+                    return call.get();
+                },
+                Permit::completeAsync,
+                Permit::failAsync,
+                Permit::cancelAsync);
+    }
+
+    public <T> Mono<T> run(Mono<T> call) {
+        return Mono.usingWhen(acquire(),
+                permit -> {
+                    permit.startNanos = System.nanoTime();
+                    return call;
+                },
+                Permit::completeAsync,
+                Permit::failAsync,
+                Permit::cancelAsync);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nlweb.limit", this, AdaptiveLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("stage", stage)
+                .register(registry);
+        Gauge.builder("nlweb.limit.in.flight", this, AdaptiveLimit::getInFlight)
+                .description("Calls holding a permit of the adaptive concurrency limit")
+                .tag("stage", stage)
+                .register(registry);
+        Gauge.builder("nlweb.limit.queued", this, AdaptiveLimit::getQueued)
+                .description("Calls waiting for a permit of the adaptive concurrency limit")
+                .tag("stage", stage)
+                .register(registry);
+        FunctionCounter.builder("nlweb.limit.rejected", queueFull, AtomicLong::get)
+                .description("Calls shed by the adaptive concurrency limit")
+                .tags("stage", stage, "reason", "queue_full")
+                .register(registry);
+        FunctionCounter.builder("nlweb.limit.rejected", queueTimeouts, AtomicLong::get)
+                .description("Calls shed by the adaptive concurrency limit")
+                .tags("stage", stage, "reason", "queue_timeout")
+                .register(registry);
+    }
+
+    private Mono<Permit> acquire() {
+        Mono<Permit> permit = Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            boolean rejected = false;
+            synchronized (this) {
+                if (waiters.isEmpty() && inFlight < (int) limit) {
+                    inFlight++;
+                    waiter.state.set(Waiter.GRANTED);
+                } else if (waiters.size() >= settings.maxQueue()) {
+                    rejected = true;
+                } else {
+                    waiters.add(waiter);
+                }
+            }
+            if (rejected) {
+                queueFull.incrementAndGet();
+                sink.error(rejection("queue full"));
+                return;
+            }
+            sink.onCancel(waiter::cancel);
+            if (waiter.state.get() == Waiter.GRANTED) {
+                sink.success(waiter.permit);
+            }
+        });
+        return permit.timeout(settings.queueTimeout(), Mono.defer(() -> {
+            queueTimeouts.incrementAndGet();
+            return Mono.error(rejection("queue timeout"));
+        }));
+    }
+
+    private LimitExceededException rejection(String reason) {
+        Duration retryAfter;
+        synchronized (this) {
+            // Roughly how long the calls ahead of a retry would take to drain at the current limit.
+            double drainNanos = longRttNanos * (waiters.size() + 1) / Math.max(1.0, limit);
+            retryAfter = Duration.ofSeconds(Math.max(1, (long) Math.ceil(drainNanos / 1e9)));
+        }
+        logger.warn("Shedding {} call: {} (limit {}, in flight {}, queued {})", stage, reason, getLimit(), getInFlight(), getQueued());
+        return new LimitExceededException(settings.rejectionStatus(), stage, reason, retryAfter);
+    }
+
+    private void release(Long rttNanos, boolean dropped) {
+        synchronized (this) {
+            if (dropped) {
+                limit = Math.max(settings.minLimit(), limit * BACKOFF_RATIO);
+            } else if (rttNanos != null) {
+                sample(rttNanos);
+            }
+            inFlight--;
+        }
+        grantWaiting();
+    }
+
+    // Admits queued calls, oldest first, while the limit has room; a limit that just grew may admit several.
+    private void grantWaiting() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                if (inFlight >= (int) limit || (next = waiters.poll()) == null) {
+                    return;
+                }
+                inFlight++;
+            }
+            if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                next.sink.success(next.permit);
+            } else {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    private void sample(long rttNanos) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * 2.0 / (LONG_WINDOW + 1);
+            if (longRttNanos / rttNanos > 2) {
+                // Latency dropped well below the average, e.g. after an outage; let the average catch up faster.
+                longRttNanos *= 0.95;
+            }
+        }
+        if (inFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    private synchronized void forget(Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    static boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException
+                    || cause instanceof PrematureCloseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoSink<Permit> sink;
+        private final Permit permit = new Permit();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                forget(this);
+            } else if (state.get() == GRANTED) {
+                // The permit may have been granted just as the subscriber left; releasing is idempotent.
+                permit.release(null, false);
+            }
+        }
+    }
+
+    private final class Permit {
+        // Set once granted, so queueing time is not mistaken for latency of the stage.
+        private volatile long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void release(Long rttNanos, boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveLimit.this.release(rttNanos, dropped);
+            }
+        }
+
+        private Mono<Void> completeAsync() {
+            return Mono.fromRunnable(() -> release(System.nanoTime() - startNanos, false));
+        }
+
+        private Mono<Void> failAsync(Throwable error) {
+            return Mono.fromRunnable(() -> release(null, isOverload(error)));
+        }
+
+        private Mono<Void> cancelAsync() {
+            return Mono.fromRunnable(() -> release(null, false));
+        }
+    }
+}
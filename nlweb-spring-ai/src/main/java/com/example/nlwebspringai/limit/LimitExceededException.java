@@ -0,0 +1,33 @@
+package com.example.nlwebspringai.limit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.ErrorResponseException;
+
+import java.time.Duration;
+
+/**
+ * A request shed by an {@link AdaptiveLimit} because its stage is at capacity. Rendered as the configured
+ * rejection status (503 by default) with a {@code Retry-After} header.
+ */
+public class LimitExceededException extends ErrorResponseException {
+
+    private final String stage;
+    private final Duration retryAfter;
+
+    public LimitExceededException(HttpStatusCode status, String stage, String reason, Duration retryAfter) {
+        super(status);
+        this.stage = stage;
+        this.retryAfter = retryAfter;
+        setDetail("The " + stage + " stage is overloaded (" + reason + "); retry after " + retryAfter.toSeconds() + "s.");
+        getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter.toSeconds()));
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
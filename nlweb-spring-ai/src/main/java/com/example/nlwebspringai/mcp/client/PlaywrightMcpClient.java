@@ -3,7 +3,28 @@ package com.example.nlwebspringai.mcp.client;
 import com.example.nlwebspringai.mcp.model.McpBaseRequest;
 import com.example.nlwebspringai.mcp.model.McpResponse;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 public interface PlaywrightMcpClient {
     Flux<McpResponse> sendCommand(McpBaseRequest command);
+
+    // True when commands reach the browser in the order they were sent, so callers may pipeline them.
+    default boolean preservesCommandOrder() {
+        return false;
+    }
+
+    // Names the browser a command sent in this context would reach; commands with the same key see the same page.
+    // null if the transport can't tell.
+    default String routeKey(ContextView context) {
+        return "default";
+    }
+
+    // Establishes whatever connection state the transport keeps, so the first command doesn't pay for it.
+    default Mono<Void> warmUp() {
+        return Mono.empty();
+    }
+
+    default void close() {
+    }
 }
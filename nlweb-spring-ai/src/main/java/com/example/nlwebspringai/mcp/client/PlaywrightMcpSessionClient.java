@@ -0,0 +1,307 @@
+package com.example.nlwebspringai.mcp.client;
+
+import com.example.nlwebspringai.mcp.model.McpBaseRequest;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.context.ContextView;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps one long-lived SSE session open to Playwright-MCP and multiplexes every command over it.
+ * <p>
+ * The GET on the SSE URL stays open for the lifetime of the session. Its first {@code endpoint} event
+ * names the URL commands are POSTed to; every later event is an {@link McpResponse} that is routed back
+ * to the caller waiting on the matching request id. A command's stream ends when one of the configured
+ * terminal response types arrives, or when its timeout elapses.
+ */
+@Component
+@ConditionalOnExpression("!${playwright.mcp.pool.enabled:false} and '${playwright.mcp.transport:per-command}' == 'session'")
+public class PlaywrightMcpSessionClient implements PlaywrightMcpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaywrightMcpSessionClient.class);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE = new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final String mcpSseUrl;
+    private final String messageUrl;
+    private final Duration requestTimeout;
+    private final Set<String> terminalTypes;
+    private final PipelineMetrics pipelineMetrics;
+
+    private final Map<String, PendingCommand> pending = new ConcurrentHashMap<>();
+    private final AtomicReference<Session> session = new AtomicReference<>();
+    private final Disposable orphanSweeper;
+    private final Sinks.Many<PostTask> postQueue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable postDispatcher;
+
+    public PlaywrightMcpSessionClient(WebClient.Builder webClientBuilder,
+                                      @Qualifier("mcpHttpClient") HttpClient httpClient,
+                                      ObjectMapper objectMapper,
+                                      @Value("${playwright.mcp.sse.url:http://localhost:8931/sse}") String mcpSseUrl,
+                                      @Value("${playwright.mcp.session.message-url:}") String messageUrl,
+                                      @Value("${playwright.mcp.session.request-timeout:30s}") Duration requestTimeout,
+                                      @Value("${playwright.mcp.session.terminal-types:stream_end,error}") Set<String> terminalTypes,
+                                      PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+        this.objectMapper = objectMapper;
+        this.mcpSseUrl = mcpSseUrl;
+        this.messageUrl = messageUrl;
+        this.requestTimeout = requestTimeout;
+        this.terminalTypes = terminalTypes;
+        // Entries normally leave the table through doFinally; the sweep only catches ones whose subscriber vanished.
+        this.orphanSweeper = Flux.interval(requestTimeout)
+                .subscribe(tick -> sweepOrphans(System.nanoTime()));
+        // POSTs go out one at a time, in subscription order, so pipelined commands reach the browser in order.
+        this.postDispatcher = postQueue.asFlux()
+                .concatMap(PostTask::execute)
+                .subscribe();
+        logger.info("PlaywrightMcpSessionClient initialized with SSE URL: {}", mcpSseUrl);
+    }
+
+    @Override
+    public Flux<McpResponse> sendCommand(McpBaseRequest command) {
+        return Flux.deferContextual(context -> {
+            logger.info("Sending command over Playwright-MCP session: ID={}, Command={}", command.getId(), command.getCommand());
+            // Register before posting so a fast response can't arrive ahead of its correlation entry.
+            // The sweep deadline leaves the command's own timeout time to fire first.
+            PendingCommand pendingCommand = new PendingCommand(System.nanoTime() + 2 * requestTimeout.toNanos());
+            pending.put(command.getId(), pendingCommand);
+            return post(command, context)
+                    .thenMany(pendingCommand.sink.asFlux())
+                    .timeout(requestTimeout, Flux.error(() -> new TimeoutException(
+                            "No terminal response from Playwright-MCP within " + requestTimeout + " for request ID: " + command.getId())))
+                    .doOnError(error -> logger.error("Error in Playwright-MCP session for request ID: {}", command.getId(), error))
+                    .doFinally(signal -> pending.remove(command.getId(), pendingCommand));
+        });
+    }
+
+    private Mono<Void> post(McpBaseRequest command, ContextView context) {
+        // Deferred to the dispatcher, so a command that is never dispatched doesn't open a session.
+        Mono<Void> send = Mono.defer(() -> currentSession().endpoint())
+                .flatMap(endpoint -> webClient.post()
+                        .uri(endpoint)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(command)
+                        .retrieve()
+                        .toBodilessEntity())
+                .then()
+                // The dispatcher subscribes, so hand over the caller's context for the POST to join its trace.
+                .contextWrite(context);
+        PostTask task = new PostTask(send);
+        Sinks.EmitResult queued;
+        synchronized (postQueue) {
+            queued = postQueue.tryEmitNext(task);
+        }
+        if (queued.isFailure()) {
+            // The dispatcher is gone, so the task would never run; fail now rather than at the request timeout.
+            logger.warn("Not posting request ID {}: post queue rejected it ({})", command.getId(), queued);
+            task.accepted.tryEmitError(new IllegalStateException("Playwright-MCP session client closed"));
+        }
+        return task.accepted.asMono();
+    }
+
+    @Override
+    public boolean preservesCommandOrder() {
+        // POSTs are serialized and the session is handled in arrival order by Playwright-MCP.
+        return true;
+    }
+
+    private Session currentSession() {
+        Session existing = session.get();
+        if (existing != null && !existing.isClosed()) {
+            return existing;
+        }
+        Session opened = new Session();
+        if (session.compareAndSet(existing, opened)) {
+            opened.connect();
+            return opened;
+        }
+        // Another caller won the race; use whatever it installed.
+        return currentSession();
+    }
+
+    private void dispatch(ServerSentEvent<String> event) {
+        if ("endpoint".equals(event.event())) {
+            return;
+        }
+        String payload = event.data();
+        if (payload == null || payload.isBlank()) {
+            return;
+        }
+        McpResponse response;
+        try {
+            response = objectMapper.readValue(payload, McpResponse.class);
+        } catch (Exception e) {
+            logger.warn("Ignoring undecodable Playwright-MCP session event: {}", e.getMessage());
+            return;
+        }
+        if ("snapshot".equals(response.getType())) {
+            // Kept so that element streams decode the text rather than the tree it was read into.
+            response.setJson(payload);
+        }
+        PendingCommand pendingCommand = response.getId() != null ? pending.get(response.getId()) : null;
+        if (pendingCommand == null) {
+            logger.debug("Dropping Playwright-MCP response for unknown or expired request ID: {}", response.getId());
+            return;
+        }
+        logger.debug("Received MCP response: ID={}, Type={}", response.getId(), response.getType());
+        pendingCommand.sink.tryEmitNext(response);
+        if (response.getType() != null && terminalTypes.contains(response.getType())) {
+            pendingCommand.sink.tryEmitComplete();
+        }
+    }
+
+    private void failPending(Throwable error) {
+        pending.forEach((id, pendingCommand) -> {
+            if (pending.remove(id, pendingCommand)) {
+                pendingCommand.sink.tryEmitError(error);
+            }
+        });
+    }
+
+    void sweepOrphans(long now) {
+        pending.forEach((id, pendingCommand) -> {
+            if (now - pendingCommand.deadlineNanos > 0 && pending.remove(id, pendingCommand)) {
+                logger.warn("Removing orphaned Playwright-MCP correlation entry for request ID: {}", id);
+                pendingCommand.sink.tryEmitError(new TimeoutException("Orphaned request ID: " + id));
+            }
+        });
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return Mono.defer(() -> currentSession().endpoint()).then();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        orphanSweeper.dispose();
+        postDispatcher.dispose();
+        Session current = session.getAndSet(null);
+        if (current != null) {
+            current.close();
+        }
+        failPending(new IllegalStateException("Playwright-MCP session client closed"));
+    }
+
+    private static final class PendingCommand {
+        private final Sinks.Many<McpResponse> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private final long deadlineNanos;
+
+        private PendingCommand(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private static final class PostTask {
+        private final Mono<Void> send;
+        private final Sinks.Empty<Void> accepted = Sinks.empty();
+
+        private PostTask(Mono<Void> send) {
+            this.send = send;
+        }
+
+        private Mono<Void> execute() {
+            return send
+                    .doOnSuccess(v -> accepted.tryEmitEmpty())
+                    .doOnError(accepted::tryEmitError)
+                    .onErrorResume(e -> Mono.empty());
+        }
+    }
+
+    private final class Session {
+        private final Sinks.One<URI> endpointSink = Sinks.one();
+        private final Mono<URI> endpoint = endpointSink.asMono().cache();
+        private volatile Disposable subscription;
+        private volatile boolean closed;
+
+        private void connect() {
+            if (!messageUrl.isBlank()) {
+                endpointSink.tryEmitValue(URI.create(messageUrl));
+            }
+            subscription = webClient.get()
+                    .uri(mcpSseUrl)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    // The session stream is quiet between commands; only command timeouts apply to it.
+                    .httpRequest(request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(null))
+                    .retrieve()
+                    .bodyToFlux(SSE_TYPE)
+                    .doOnSubscribe(s -> {
+                        pipelineMetrics.streamOpened();
+                        logger.info("Opening Playwright-MCP session stream at {}", mcpSseUrl);
+                    })
+                    .doFinally(signal -> pipelineMetrics.streamClosed())
+                    .subscribe(event -> {
+                                if ("endpoint".equals(event.event()) && event.data() != null) {
+                                    URI resolved = URI.create(mcpSseUrl).resolve(event.data().trim());
+                                    logger.info("Playwright-MCP session message endpoint: {}", resolved);
+                                    endpointSink.tryEmitValue(resolved);
+                                }
+                                dispatch(event);
+                            },
+                            error -> terminate(error),
+                            () -> terminate(new IllegalStateException("Playwright-MCP session stream closed by server")));
+        }
+
+        private Mono<URI> endpoint() {
+            return endpoint;
+        }
+
+        private boolean isClosed() {
+            return closed;
+        }
+
+        private void terminate(Throwable cause) {
+            logger.warn("Playwright-MCP session stream ended: {}", cause.getMessage());
+            closed = true;
+            endpointSink.tryEmitError(cause);
+            session.compareAndSet(this, null);
+            failPending(cause);
+        }
+
+        private void close() {
+            closed = true;
+            Disposable current = subscription;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
@@ -1,31 +1,57 @@
 package com.example.nlwebspringai.mcp.client;
 
+import com.example.nlwebspringai.codec.SmileStreams;
 import com.example.nlwebspringai.mcp.model.McpBaseRequest;
 import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 
+/**
+ * Sends each command as a POST whose response is that command's event stream. With {@code playwright.mcp.codec=smile}
+ * a Smile stream is asked for first, so an adapter that can encode snapshots in Smile saves both sides the JSON
+ * text; one that can't keeps answering with {@code text/event-stream}. Responses are decoded by their content type.
+ */
 @Component
+@ConditionalOnExpression("!${playwright.mcp.pool.enabled:false} and '${playwright.mcp.transport:per-command}' == 'per-command'")
 public class PlaywrightMcpWebClient implements PlaywrightMcpClient {
 
     private static final Logger logger = LoggerFactory.getLogger(PlaywrightMcpWebClient.class);
     private final WebClient webClient;
+    private final PipelineMetrics pipelineMetrics;
 
     public PlaywrightMcpWebClient(WebClient.Builder webClientBuilder,
-                                  @Value("${playwright.mcp.sse.url:http://localhost:8931/sse}") String mcpSseUrl) {
+                                  @Qualifier("mcpHttpClient") HttpClient httpClient,
+                                  @Value("${playwright.mcp.sse.url:http://localhost:8931/sse}") String mcpSseUrl,
+                                  @Value("${playwright.mcp.codec:json}") String codec,
+                                  PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
         this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(mcpSseUrl)
-                .defaultHeader(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .defaultHeader(HttpHeaders.ACCEPT, accept(codec))
                 .build();
-        logger.info("PlaywrightMcpWebClient initialized with base URL: {}", mcpSseUrl);
+        logger.info("PlaywrightMcpWebClient initialized with base URL: {} (codec {})", mcpSseUrl, codec);
+    }
+
+    static String accept(String codec) {
+        return switch (codec.toLowerCase()) {
+            case "json" -> MediaType.TEXT_EVENT_STREAM_VALUE;
+            case "smile" -> SmileStreams.SMILE_STREAM_VALUE + ", " + MediaType.TEXT_EVENT_STREAM_VALUE + ";q=0.5";
+            default -> throw new IllegalArgumentException("playwright.mcp.codec must be json or smile, got " + codec);
+        };
     }
 
     @Override
@@ -61,7 +87,11 @@ public class PlaywrightMcpWebClient implements PlaywrightMcpClient {
                 .body(BodyInserters.fromValue(command))
                 .retrieve()
                 .bodyToFlux(McpResponse.class)
-                .doOnSubscribe(subscription -> logger.info("Subscribed to Playwright-MCP command stream for request ID: {}", command.getId()))
+                .doOnSubscribe(subscription -> {
+                    pipelineMetrics.streamOpened();
+                    logger.info("Subscribed to Playwright-MCP command stream for request ID: {}", command.getId());
+                })
+                .doFinally(signal -> pipelineMetrics.streamClosed())
                 .doOnNext(response -> logger.debug("Received MCP response: ID={}, Type={}", response.getId(), response.getType()))
                 .doOnError(error -> logger.error("Error in Playwright-MCP command stream for request ID: {}", command.getId(), error))
                 .doOnComplete(() -> logger.info("Playwright-MCP command stream completed for request ID: {}", command.getId()));
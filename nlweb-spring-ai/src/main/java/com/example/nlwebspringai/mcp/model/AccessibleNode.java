@@ -0,0 +1,21 @@
+package com.example.nlwebspringai.mcp.model;
+
+import java.util.List;
+import java.util.Map;
+
+// Read-only view of an accessibility-tree node, shared by the Jackson POJO and the compact in-memory tree.
+public interface AccessibleNode {
+
+    String getRef();
+
+    String getRole();
+
+    // The accessible name, falling back to the text when no name is set.
+    String getName();
+
+    String getText();
+
+    Map<String, String> getAttributes();
+
+    List<? extends AccessibleNode> getChildren();
+}
@@ -1,5 +1,6 @@
 package com.example.nlwebspringai.mcp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 
 public class McpResponse {
@@ -7,6 +8,8 @@ public class McpResponse {
     private String type; // e.g., "snapshot", "ack", "error", "stream_chunk", "stream_end"
     private JsonNode data; // Flexible data field
     private String error; // Error message if type is "error"
+    @JsonIgnore
+    private String json; // The payload this response was read from, if the transport kept it; never written out
 
     public McpResponse() {
     }
@@ -44,6 +47,14 @@ public class McpResponse {
         this.error = error;
     }
 
+    public String getJson() {
+        return json;
+    }
+
+    public void setJson(String json) {
+        this.json = json;
+    }
+
     @Override
     public String toString() {
         return "McpResponse{" +
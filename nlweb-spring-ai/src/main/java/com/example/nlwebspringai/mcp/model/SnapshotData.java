@@ -40,7 +40,7 @@ public class SnapshotData {
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
-    public static class AccessibleElement {
+    public static class AccessibleElement implements AccessibleNode {
         private String ref;
         private String role;
         private String name;
@@ -49,6 +49,7 @@ public class SnapshotData {
         private Map<String, String> attributes; // e.g., "aria-label", "placeholder"
 
         // Getters and setters
+        @Override
         public String getRef() {
             return ref;
         }
@@ -57,6 +58,7 @@ public class SnapshotData {
             this.ref = ref;
         }
 
+        @Override
         public String getRole() {
             return role;
         }
@@ -65,6 +67,7 @@ public class SnapshotData {
             this.role = role;
         }
 
+        @Override
         public String getName() {
             // Fallback to text if name is null or empty, as sometimes one or the other is used.
             if (name == null || name.trim().isEmpty()) {
@@ -77,6 +80,7 @@ public class SnapshotData {
             this.name = name;
         }
         
+        @Override
         public String getText() {
             return text;
         }
@@ -85,6 +89,7 @@ public class SnapshotData {
             this.text = text;
         }
 
+        @Override
         public List<AccessibleElement> getChildren() {
             return children;
         }
@@ -93,6 +98,7 @@ public class SnapshotData {
             this.children = children;
         }
 
+        @Override
         public Map<String, String> getAttributes() {
             return attributes;
         }
@@ -0,0 +1,163 @@
+package com.example.nlwebspringai.mcp.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Payload of a "snapshot_delta" response: how the session's snapshot at baseVersion became the one at version.
+// Nodes are keyed by ref; nodes without a ref get a positional key ("<parent key>#<index>").
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SnapshotDelta {
+
+    private long baseVersion;
+    private long version;
+    private String url;
+    private String title;
+    private List<NodeChange> added = new ArrayList<>();
+    private List<NodeChange> changed = new ArrayList<>();
+    private List<String> removed = new ArrayList<>();
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public List<NodeChange> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<NodeChange> added) {
+        this.added = added;
+    }
+
+    public List<NodeChange> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<NodeChange> changed) {
+        this.changed = changed;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    public int changeCount() {
+        return added.size() + changed.size() + removed.size();
+    }
+
+    // The full state of an added or changed node, without its children; they are listed separately.
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class NodeChange {
+        private String key;
+        private String parent; // null for a root
+        private String after; // key of the previous sibling, null if first
+        private String role;
+        private String name;
+        private String text;
+        private Map<String, String> attributes;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getParent() {
+            return parent;
+        }
+
+        public void setParent(String parent) {
+            this.parent = parent;
+        }
+
+        public String getAfter() {
+            return after;
+        }
+
+        public void setAfter(String after) {
+            this.after = after;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public void setRole(String role) {
+            this.role = role;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotDelta{" +
+               "baseVersion=" + baseVersion +
+               ", version=" + version +
+               ", added=" + added.size() +
+               ", changed=" + changed.size() +
+               ", removed=" + removed.size() +
+               '}';
+    }
+}
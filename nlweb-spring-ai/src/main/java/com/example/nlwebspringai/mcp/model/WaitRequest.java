@@ -0,0 +1,21 @@
+package com.example.nlwebspringai.mcp.model;
+
+import java.util.Map;
+
+public class WaitRequest extends McpBaseRequest {
+    private Map<String, Object> params;
+
+    public WaitRequest(double seconds) {
+        super("browser_wait_for");
+        this.params = Map.of("time", seconds);
+    }
+
+    // Getter and setter
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    public void setParams(Map<String, Object> params) {
+        this.params = params;
+    }
+}
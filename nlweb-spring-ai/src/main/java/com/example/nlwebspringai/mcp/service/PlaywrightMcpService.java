@@ -1,52 +1,236 @@
 package com.example.nlwebspringai.mcp.service;
 
+import com.example.nlwebspringai.cache.SingleFlight;
+import com.example.nlwebspringai.journal.EventJournal;
+import com.example.nlwebspringai.journal.JournalEvent;
 import com.example.nlwebspringai.mcp.client.PlaywrightMcpClient;
 import com.example.nlwebspringai.mcp.model.*;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.mcp.snapshot.CompactAccessibilityTree;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotFilter;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotIndex;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStore;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStreamDecoder;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import com.example.nlwebspringai.resilience.CircuitOpenException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Service
 public class PlaywrightMcpService {
 
     private static final Logger logger = LoggerFactory.getLogger(PlaywrightMcpService.class);
 
+    // Commands that can be sent again without changing the outcome.
+    private static final Set<String> IDEMPOTENT_COMMANDS = Set.of("browser_snapshot", "browser_navigate");
+
     private final PlaywrightMcpClient playwrightMcpClient;
+    private final SnapshotStore snapshotStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBackoffSpec retry;
+    private final EventJournal eventJournal;
+    private final SnapshotStreamDecoder snapshotDecoder = new SnapshotStreamDecoder();
+    private final SingleFlight<SnapshotFlight, McpResponse> snapshots;
+    // Per browser route, bumped when a command that can change the page starts and again when it ends.
+    private final Map<String, AtomicLong> pageChanges = new ConcurrentHashMap<>();
+
+    // A snapshot flight only takes callers that have seen the same page changes on the route as the one that started it.
+    private record SnapshotFlight(String route, long pageChanges) {
+    }
 
-    public PlaywrightMcpService(PlaywrightMcpClient playwrightMcpClient) {
+    public PlaywrightMcpService(PlaywrightMcpClient playwrightMcpClient, SnapshotStore snapshotStore, PipelineMetrics pipelineMetrics,
+                                @Qualifier("mcpCircuitBreaker") CircuitBreaker circuitBreaker,
+                                @Qualifier("mcpRetry") RetryBackoffSpec retry, EventJournal eventJournal) {
         this.playwrightMcpClient = playwrightMcpClient;
+        this.snapshotStore = snapshotStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.snapshots = new SingleFlight<>(pipelineMetrics.coalesced("snapshot"));
+        this.circuitBreaker = circuitBreaker;
+        this.retry = retry;
+        this.eventJournal = eventJournal;
     }
 
     public Flux<McpResponse> navigate(String url) {
         logger.info("Service: Navigating to URL: {}", url);
-        NavigateRequest request = new NavigateRequest(url);
-        return playwrightMcpClient.sendCommand(request)
+        return changingPage(send(() -> new NavigateRequest(url)))
                 .doOnError(e -> logger.error("Service: Error during navigate to {}", url, e))
                 .doOnComplete(() -> logger.info("Service: Navigate command stream completed for URL: {}", url));
     }
 
     public Flux<McpResponse> takeSnapshot() {
         logger.info("Service: Taking snapshot");
-        SnapshotRequest request = new SnapshotRequest();
-        return playwrightMcpClient.sendCommand(request)
+        // Snapshots requested together from the same browser share one MCP stream, whatever client asked. Each caller
+        // keeps a compact copy in its own session for later ref resolution, and gets a delta if it asked for one.
+        // A snapshot never joins one that started before a click, typing or navigation on that browser had finished,
+        // so a snapshot taken after such a command always shows its effect.
+        return Flux.deferContextual(context -> {
+                    String sessionId = McpSessionContext.sessionId(context);
+                    boolean delta = McpSessionContext.snapshotDelta(context, snapshotStore.isDeltaByDefault());
+                    String route = playwrightMcpClient.routeKey(context);
+                    Flux<McpResponse> responses = route != null
+                            ? snapshots.executeMany(new SnapshotFlight(route, pageChangesOn(route).get()), () -> send(SnapshotRequest::new))
+                            : send(SnapshotRequest::new);
+                    return responses.concatMap(response -> recordSnapshot(sessionId, response, delta));
+                })
                 .doOnError(e -> logger.error("Service: Error during takeSnapshot", e))
                 .doOnComplete(() -> logger.info("Service: TakeSnapshot command stream completed"));
     }
 
+    // Takes a snapshot and streams only the matching elements, without building the SnapshotData tree. Decodes the
+    // payload as received where the transport kept it; otherwise it can only walk the response's data tree.
+    public Flux<AccessibleElement> snapshotElements(SnapshotFilter filter) {
+        logger.info("Service: Taking snapshot for element stream");
+        return takeSnapshot()
+                .filter(response -> "snapshot".equals(response.getType()) && response.getData() != null)
+                .concatMap(response -> response.getJson() != null
+                        ? snapshotDecoder.decode(response.getJson(), filter)
+                        : snapshotDecoder.decode(response.getData()::traverse, filter));
+    }
+
+    // Index over the latest snapshot of the caller's session; empty if the session has not taken one yet.
+    public Mono<SnapshotIndex> currentSnapshotIndex() {
+        return Mono.deferContextual(context -> {
+            return snapshotStore.latestRecorded(McpSessionContext.sessionId(context)).map(CompactAccessibilityTree::index);
+        });
+    }
+
     public Flux<McpResponse> clickElement(String ref, String elementDescription) {
         logger.info("Service: Clicking element with ref: {} (Description: {})", ref, elementDescription);
-        ClickRequest request = new ClickRequest(ref, elementDescription);
-        return playwrightMcpClient.sendCommand(request)
+        return changingPage(send(() -> new ClickRequest(ref, elementDescription)))
                 .doOnError(e -> logger.error("Service: Error during clickElement for ref: {}", ref, e))
                 .doOnComplete(() -> logger.info("Service: ClickElement command stream completed for ref: {}", ref));
     }
 
     public Flux<McpResponse> typeInElement(String ref, String elementDescription, String text, boolean submit) {
-        logger.info("Service: Typing in element with ref: {} (Description: {}, Text: {}, Submit: {})", ref, elementDescription, text, submit);
-        TypeRequest request = new TypeRequest(ref, elementDescription, text, submit);
-        return playwrightMcpClient.sendCommand(request)
+        logger.info("Service: Typing in element with ref: {} (Description: {}, Text: {} chars, Submit: {})", ref, elementDescription,
+                text != null ? text.length() : 0, submit);
+        return changingPage(send(() -> new TypeRequest(ref, elementDescription, text, submit)))
                 .doOnError(e -> logger.error("Service: Error during typeInElement for ref: {}", ref, e))
                 .doOnComplete(() -> logger.info("Service: TypeInElement command stream completed for ref: {}", ref));
     }
+
+    public Flux<McpResponse> waitFor(double seconds) {
+        logger.info("Service: Waiting for {} seconds", seconds);
+        return send(() -> new WaitRequest(seconds))
+                .doOnError(e -> logger.error("Service: Error during waitFor {} seconds", seconds, e))
+                .doOnComplete(() -> logger.info("Service: WaitFor command stream completed"));
+    }
+
+    private Flux<McpResponse> changingPage(Flux<McpResponse> responses) {
+        return Flux.deferContextual(context -> {
+            String route = playwrightMcpClient.routeKey(context);
+            if (route == null) {
+                return responses;
+            }
+            AtomicLong changes = pageChangesOn(route);
+            changes.incrementAndGet();
+            return responses.doFinally(signal -> changes.incrementAndGet());
+        });
+    }
+
+    private AtomicLong pageChangesOn(String route) {
+        return pageChanges.computeIfAbsent(route, key -> new AtomicLong());
+    }
+
+    // A full snapshot goes out as received while it is recorded in the background; a delta has to wait for it.
+    private Mono<McpResponse> recordSnapshot(String sessionId, McpResponse response, boolean delta) {
+        if (!"snapshot".equals(response.getType()) || response.getData() == null) {
+            return Mono.just(response);
+        }
+        if (delta) {
+            return snapshotStore.recordAsDeltaInOrder(sessionId, response);
+        }
+        snapshotStore.recordInBackground(sessionId, response.getData());
+        return Mono.just(response);
+    }
+
+    // The supplier makes a new request, with a new id, for every retry.
+    private Flux<McpResponse> send(Supplier<? extends McpBaseRequest> newRequest) {
+        McpBaseRequest request = newRequest.get();
+        Flux<McpResponse> responses;
+        if (!IDEMPOTENT_COMMANDS.contains(request.getCommand())) {
+            responses = attempt(request);
+        } else {
+            // A retry must not reuse the id of the attempt that failed: on the session transport a late response to
+            // that attempt would be routed to the retry.
+            AtomicBoolean unsent = new AtomicBoolean(true);
+            responses = Flux.defer(() -> {
+                // Only retried while nothing has reached the client, so a retry never repeats events.
+                AtomicBoolean delivered = new AtomicBoolean();
+                return Flux.defer(() -> attempt(unsent.getAndSet(false) ? request : newRequest.get()))
+                        .retryWhen(retry.filter(error -> !delivered.get() && !(error instanceof CircuitOpenException))
+                                .doBeforeRetry(signal -> logger.warn("Retrying {} (first request ID {}) after: {}",
+                                        request.getCommand(), request.getId(), signal.failure().toString())))
+                        .doOnNext(response -> delivered.set(true));
+            });
+        }
+        return pipelineMetrics.timeCommand(request.getCommand(), request.getId(), responses);
+    }
+
+    private Flux<McpResponse> attempt(McpBaseRequest request) {
+        return journaled(request, circuitBreaker.protect(Flux.defer(() -> playwrightMcpClient.sendCommand(request))));
+    }
+
+    // Keyed by the request's correlation id, so sampling keeps or drops a translation and its commands together.
+    private Flux<McpResponse> journaled(McpBaseRequest request, Flux<McpResponse> responses) {
+        if (!eventJournal.isEnabled()) {
+            return responses;
+        }
+        return Flux.deferContextual(context -> {
+            String id = EventJournal.correlationId(context, request.getId());
+            long start = System.nanoTime();
+            long sentAt = System.currentTimeMillis();
+            boolean sentKept = eventJournal.record(JournalEvent.Type.MCP_SENT, id, request.getCommand(),
+                    "request", request.getId(), "params", paramsOf(request));
+            return responses
+                    .doOnNext(response -> eventJournal.record(JournalEvent.Type.MCP_EVENT, id, response.getType(),
+                            "request", request.getId()))
+                    .doOnComplete(() -> eventJournal.record(JournalEvent.Type.MCP_DONE, id, request.getCommand(),
+                            "request", request.getId(), "micros", (System.nanoTime() - start) / 1000))
+                    .doOnError(error -> {
+                        // Failures are always kept; so is what was sent, or the failure would have no command.
+                        if (!sentKept) {
+                            eventJournal.recordLate(sentAt, JournalEvent.Type.MCP_SENT, id, request.getCommand(),
+                                    "request", request.getId(), "params", paramsOf(request));
+                        }
+                        eventJournal.record(JournalEvent.Type.MCP_FAILED, id, request.getCommand(),
+                                "request", request.getId(), "micros", (System.nanoTime() - start) / 1000, "error", error.toString());
+                    });
+        });
+    }
+
+    private static Object paramsOf(McpBaseRequest request) {
+        if (request instanceof NavigateRequest navigate) {
+            return navigate.getParams();
+        }
+        if (request instanceof ClickRequest click) {
+            return click.getParams();
+        }
+        if (request instanceof TypeRequest type) {
+            return type.getParams();
+        }
+        if (request instanceof WaitRequest wait) {
+            return wait.getParams();
+        }
+        return null;
+    }
+
+    public boolean supportsPipelining() {
+        return playwrightMcpClient.preservesCommandOrder();
+    }
 }
@@ -0,0 +1,75 @@
+package com.example.nlwebspringai.mcp.session;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Carries the client session id through the Reactor {@link Context} of a request, so the MCP layer can
+ * route commands to the browser session that owns the client's page state without the id being threaded
+ * through every service method.
+ * <p>
+ * A request without a session id carries a {@link RequestAffinity} instead: it keeps the commands of that one
+ * request (e.g. the steps of a plan) on one browser session, and is gone with the request, so anonymous
+ * traffic leaves no binding or snapshot history of its own behind.
+ */
+public final class McpSessionContext {
+
+    public static final String SESSION_ID_KEY = McpSessionContext.class.getName() + ".sessionId";
+    public static final String SNAPSHOT_DELTA_KEY = McpSessionContext.class.getName() + ".snapshotDelta";
+    public static final String AFFINITY_KEY = McpSessionContext.class.getName() + ".affinity";
+
+    private McpSessionContext() {
+    }
+
+    public static Function<Context, Context> withSessionId(String sessionId) {
+        return context -> sessionId == null || sessionId.isBlank() ? context : context.put(SESSION_ID_KEY, sessionId);
+    }
+
+    public static String sessionId(ContextView context) {
+        return context.getOrDefault(SESSION_ID_KEY, null);
+    }
+
+    // null leaves the server default in place.
+    public static Function<Context, Context> withSnapshotDelta(Boolean snapshotDelta) {
+        return context -> snapshotDelta == null ? context : context.put(SNAPSHOT_DELTA_KEY, snapshotDelta);
+    }
+
+    public static boolean snapshotDelta(ContextView context, boolean defaultValue) {
+        return context.getOrDefault(SNAPSHOT_DELTA_KEY, defaultValue);
+    }
+
+    // A fresh affinity unless the context already has a session id or an affinity of an enclosing request.
+    public static Function<Context, Context> withRequestAffinity() {
+        return context -> context.hasKey(SESSION_ID_KEY) || context.hasKey(AFFINITY_KEY)
+                ? context
+                : context.put(AFFINITY_KEY, new RequestAffinity());
+    }
+
+    public static RequestAffinity affinity(ContextView context) {
+        return context.getOrDefault(AFFINITY_KEY, null);
+    }
+
+    /**
+     * Whatever the first command of a request was routed to, for the rest of that request's commands.
+     */
+    public static final class RequestAffinity {
+        private final AtomicReference<Object> pinned = new AtomicReference<>();
+
+        @SuppressWarnings("unchecked")
+        public <T> T pin(Supplier<T> choice) {
+            Object current = pinned.get();
+            if (current == null) {
+                T chosen = choice.get();
+                current = pinned.compareAndExchange(null, chosen);
+                if (current == null) {
+                    return chosen;
+                }
+            }
+            return (T) current;
+        }
+    }
+}
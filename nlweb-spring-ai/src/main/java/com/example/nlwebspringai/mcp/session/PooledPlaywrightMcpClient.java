@@ -0,0 +1,375 @@
+package com.example.nlwebspringai.mcp.session;
+
+import com.example.nlwebspringai.mcp.client.PlaywrightMcpClient;
+import com.example.nlwebspringai.mcp.client.PlaywrightMcpSessionClient;
+import com.example.nlwebspringai.mcp.client.PlaywrightMcpWebClient;
+import com.example.nlwebspringai.mcp.model.McpBaseRequest;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Spreads commands over a pool of Playwright-MCP browser sessions.
+ * <p>
+ * The pool has {@code sessions-per-endpoint} slots for each configured endpoint. A request carrying a
+ * client session id (see {@link McpSessionContext}) is bound to one slot and keeps using it, so its page
+ * state is not disturbed by other clients. Requests without one go to the least busy slot, and all commands
+ * of such a request stay on the slot its first command went to (see {@link McpSessionContext.RequestAffinity})
+ * without creating a binding. Each slot
+ * admits at most {@code max-in-flight} commands and queues the rest. Slots are connected lazily, except
+ * the first {@code warm-sessions}, which are connected at startup; bindings and connections that stay idle
+ * longer than {@code idle-timeout} are released.
+ */
+@Component
+@ConditionalOnProperty(name = "playwright.mcp.pool.enabled", havingValue = "true")
+public class PooledPlaywrightMcpClient implements PlaywrightMcpClient, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledPlaywrightMcpClient.class);
+
+    private final List<PooledSession> sessions = new ArrayList<>();
+    private final Map<String, Binding> bindings = new ConcurrentHashMap<>();
+    private final boolean ordered;
+    private final int maxInFlight;
+    private final int warmSessions;
+    private final long idleTimeoutNanos;
+    private final Disposable idleSweeper;
+
+    @Autowired
+    public PooledPlaywrightMcpClient(WebClient.Builder webClientBuilder,
+                                     @Qualifier("mcpHttpClient") HttpClient httpClient,
+                                     ObjectMapper objectMapper,
+                                     @Value("${playwright.mcp.pool.endpoints:${playwright.mcp.sse.url:http://localhost:8931/sse}}") List<String> endpoints,
+                                     @Value("${playwright.mcp.transport:per-command}") String transport,
+                                     @Value("${playwright.mcp.pool.sessions-per-endpoint:1}") int sessionsPerEndpoint,
+                                     @Value("${playwright.mcp.pool.max-in-flight:4}") int maxInFlight,
+                                     @Value("${playwright.mcp.pool.warm-sessions:1}") int warmSessions,
+                                     @Value("${playwright.mcp.pool.idle-timeout:10m}") Duration idleTimeout,
+                                     @Value("${playwright.mcp.session.request-timeout:30s}") Duration requestTimeout,
+                                     @Value("${playwright.mcp.session.terminal-types:stream_end,error}") Set<String> terminalTypes,
+                                     @Value("${playwright.mcp.codec:json}") String codec,
+                                     PipelineMetrics pipelineMetrics) {
+        this(endpoints, sessionsPerEndpoint, maxInFlight, warmSessions, idleTimeout, "session".equals(transport),
+                "session".equals(transport)
+                        ? url -> new PlaywrightMcpSessionClient(webClientBuilder.clone(), httpClient, objectMapper, url, "", requestTimeout, terminalTypes, pipelineMetrics)
+                        : url -> new PlaywrightMcpWebClient(webClientBuilder.clone(), httpClient, url, codec, pipelineMetrics));
+    }
+
+    PooledPlaywrightMcpClient(List<String> endpoints, int sessionsPerEndpoint, int maxInFlight, int warmSessions,
+                              Duration idleTimeout, boolean ordered, Function<String, PlaywrightMcpClient> clientFactory) {
+        for (String endpoint : endpoints) {
+            for (int i = 0; i < sessionsPerEndpoint; i++) {
+                sessions.add(new PooledSession(sessions.size(), endpoint.trim(), clientFactory));
+            }
+        }
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException("playwright.mcp.pool.endpoints must name at least one endpoint");
+        }
+        this.ordered = ordered;
+        this.maxInFlight = maxInFlight;
+        this.warmSessions = Math.min(warmSessions, sessions.size());
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.idleSweeper = Flux.interval(idleTimeout.dividedBy(2))
+                .subscribe(tick -> evictIdle());
+        logger.info("PooledPlaywrightMcpClient initialized with {} sessions over endpoints {}", sessions.size(), endpoints);
+    }
+
+    @Override
+    public Flux<McpResponse> sendCommand(McpBaseRequest command) {
+        return Flux.deferContextual(context -> {
+            PooledSession session = route(context);
+            logger.debug("Routing command {} (client session {}) to pooled session {}", command.getId(),
+                    McpSessionContext.sessionId(context), session.index);
+            return Flux.usingWhen(session.acquire(),
+                    permit -> session.client().sendCommand(command),
+                    Permit::releaseAsync,
+                    (permit, error) -> permit.releaseAsync(),
+                    Permit::releaseAsync);
+        });
+    }
+
+    // Per-command slots of one endpoint drive the same browser; session slots each have their own.
+    @Override
+    public String routeKey(ContextView context) {
+        PooledSession session = route(context);
+        return ordered ? session.endpoint + "#" + session.index : session.endpoint;
+    }
+
+    @Override
+    public boolean preservesCommandOrder() {
+        // Only meaningful per session, which is what affinity gives a client.
+        return ordered;
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return Flux.fromIterable(sessions.subList(0, warmSessions))
+                .flatMap(session -> session.client().warmUp()
+                        .doOnSuccess(v -> logger.info("Warmed pooled Playwright-MCP session {} at {}", session.index, session.endpoint))
+                        .onErrorResume(e -> {
+                            logger.warn("Could not warm pooled Playwright-MCP session {} at {}: {}", session.index, session.endpoint, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        warmUp().subscribe();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        idleSweeper.dispose();
+        sessions.forEach(session -> session.disconnect(true));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mcp.pool.sessions.connected", sessions, list -> list.stream().filter(PooledSession::isConnected).count())
+                .description("Pooled Playwright-MCP sessions with an open client")
+                .register(registry);
+        Gauge.builder("mcp.pool.bindings", bindings, Map::size)
+                .description("Client sessions bound to a pooled Playwright-MCP session")
+                .register(registry);
+        Gauge.builder("mcp.pool.in.flight", sessions, list -> list.stream().mapToInt(PooledSession::inFlight).sum())
+                .description("Commands running on pooled Playwright-MCP sessions")
+                .register(registry);
+        Gauge.builder("mcp.pool.waiting", sessions, list -> list.stream().mapToInt(PooledSession::waiting).sum())
+                .description("Commands queued for a pooled Playwright-MCP session")
+                .register(registry);
+    }
+
+    private PooledSession route(ContextView context) {
+        String sessionId = McpSessionContext.sessionId(context);
+        if (sessionId != null) {
+            return boundSession(sessionId);
+        }
+        McpSessionContext.RequestAffinity affinity = McpSessionContext.affinity(context);
+        return affinity != null ? affinity.pin(this::leastLoaded) : leastLoaded();
+    }
+
+    private PooledSession boundSession(String sessionId) {
+        Binding binding = bindings.compute(sessionId, (key, existing) -> {
+            if (existing != null) {
+                existing.touch();
+                return existing;
+            }
+            PooledSession chosen = sessions.stream()
+                    .min(Comparator.comparingInt((PooledSession s) -> s.boundClients.get()).thenComparingInt(PooledSession::inFlight))
+                    .orElseThrow();
+            chosen.boundClients.incrementAndGet();
+            return new Binding(chosen);
+        });
+        return binding.session;
+    }
+
+    private PooledSession leastLoaded() {
+        return sessions.stream()
+                .min(Comparator.comparingInt((PooledSession s) -> s.inFlight() + s.waiting()).thenComparingInt(s -> s.boundClients.get()))
+                .orElseThrow();
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        bindings.forEach((sessionId, binding) -> {
+            if (now - binding.lastSeenNanos > idleTimeoutNanos && bindings.remove(sessionId, binding)) {
+                binding.session.boundClients.decrementAndGet();
+                logger.debug("Released idle binding of client session {} to pooled session {}", sessionId, binding.session.index);
+            }
+        });
+        for (PooledSession session : sessions) {
+            if (session.index >= warmSessions && session.boundClients.get() == 0 && session.idleFor(now) > idleTimeoutNanos) {
+                session.disconnect(false);
+            }
+        }
+    }
+
+    int bindingCount() {
+        return bindings.size();
+    }
+
+    private static final class Binding {
+        private final PooledSession session;
+        private volatile long lastSeenNanos = System.nanoTime();
+
+        private Binding(PooledSession session) {
+            this.session = session;
+        }
+
+        private void touch() {
+            lastSeenNanos = System.nanoTime();
+        }
+    }
+
+    private final class PooledSession {
+        private final int index;
+        private final String endpoint;
+        private final Function<String, PlaywrightMcpClient> clientFactory;
+        private final AtomicInteger boundClients = new AtomicInteger();
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private PlaywrightMcpClient client;
+        private int inFlight;
+        private long lastUsedNanos = System.nanoTime();
+
+        private PooledSession(int index, String endpoint, Function<String, PlaywrightMcpClient> clientFactory) {
+            this.index = index;
+            this.endpoint = endpoint;
+            this.clientFactory = clientFactory;
+        }
+
+        private synchronized PlaywrightMcpClient client() {
+            if (client == null) {
+                logger.info("Connecting pooled Playwright-MCP session {} to {}", index, endpoint);
+                client = clientFactory.apply(endpoint);
+            }
+            return client;
+        }
+
+        private synchronized boolean isConnected() {
+            return client != null;
+        }
+
+        private synchronized int inFlight() {
+            return inFlight;
+        }
+
+        private synchronized int waiting() {
+            return waiters.size();
+        }
+
+        private synchronized long idleFor(long now) {
+            return inFlight > 0 || !waiters.isEmpty() ? 0 : now - lastUsedNanos;
+        }
+
+        private void disconnect(boolean force) {
+            PlaywrightMcpClient closing;
+            synchronized (this) {
+                if (client == null || (inFlight > 0 && !force)) {
+                    return;
+                }
+                closing = client;
+                client = null;
+            }
+            logger.info("Closing idle pooled Playwright-MCP session {} at {}", index, endpoint);
+            closing.close();
+        }
+
+        private Mono<Permit> acquire() {
+            return Mono.create(sink -> {
+                Waiter waiter = new Waiter(sink, new Permit(this));
+                synchronized (this) {
+                    if (inFlight < maxInFlight) {
+                        inFlight++;
+                        lastUsedNanos = System.nanoTime();
+                        waiter.state.set(Waiter.GRANTED);
+                    } else {
+                        waiters.add(waiter);
+                    }
+                }
+                sink.onCancel(waiter::cancel);
+                if (waiter.state.get() == Waiter.GRANTED) {
+                    sink.success(waiter.permit);
+                }
+            });
+        }
+
+        // Hands the slot straight to the next live waiter, or frees it when nobody is queued.
+        private void release() {
+            while (true) {
+                Waiter next;
+                synchronized (this) {
+                    lastUsedNanos = System.nanoTime();
+                    next = waiters.poll();
+                    if (next == null) {
+                        inFlight--;
+                        return;
+                    }
+                }
+                if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                    next.sink.success(next.permit);
+                    return;
+                }
+            }
+        }
+
+        private synchronized void forget(Waiter waiter) {
+            waiters.remove(waiter);
+        }
+    }
+
+    private static final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoSink<Permit> sink;
+        private final Permit permit;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Permit> sink, Permit permit) {
+            this.sink = sink;
+            this.permit = permit;
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                permit.session.forget(this);
+            } else if (state.get() == GRANTED) {
+                // The slot may have been granted just as the subscriber left; releasing is idempotent.
+                permit.release();
+            }
+        }
+    }
+
+    private static final class Permit {
+        private final PooledSession session;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(PooledSession session) {
+            this.session = session;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                session.release();
+            }
+        }
+
+        private Mono<Void> releaseAsync() {
+            return Mono.fromRunnable(this::release);
+        }
+    }
+}
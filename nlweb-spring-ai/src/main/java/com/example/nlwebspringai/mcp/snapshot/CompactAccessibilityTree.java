@@ -0,0 +1,485 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.AccessibleNode;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, struct-of-arrays form of a snapshot's accessibility tree, for snapshots that are kept around
+ * after the response has been delivered.
+ * <p>
+ * Nodes are numbered breadth-first, so the roots are {@code 0..rootCount-1} and the children of every node
+ * occupy a contiguous index range. Strings live in a {@link StringPool} that trees of the same session share;
+ * role names are interned once per JVM. Attributes are stored as (key id, value id) pairs in one flat array.
+ * {@link AccessibleNode} views are created on demand and hold nothing but an index.
+ */
+public final class CompactAccessibilityTree {
+
+    private static final StringPool ROLES = new StringPool(64);
+    // Roles whose names are page content (prices, timestamps, messages) rather than structure.
+    private static final Set<String> CONTENT_ROLES = Set.of("text", "statictext", "paragraph", "cell", "gridcell",
+            "status", "timer", "log", "marquee", "alert");
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String url;
+    private final String title;
+    private final StringPool strings;
+    private final int rootCount;
+    private final int[] refs;
+    private final int[] roles;
+    private final int[] names;
+    private final int[] texts;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] childCounts;
+    private final int[] attributeOffsets; // node i's pairs are at [attributeOffsets[i], attributeOffsets[i + 1])
+    private final int[] attributes;
+    private volatile SnapshotIndex index;
+    private volatile long fingerprint;
+
+    private CompactAccessibilityTree(String url, String title, StringPool strings, int rootCount, int size, int attributeCount) {
+        this.url = url;
+        this.title = title;
+        this.strings = strings;
+        this.rootCount = rootCount;
+        this.refs = new int[size];
+        this.roles = new int[size];
+        this.names = new int[size];
+        this.texts = new int[size];
+        this.parents = new int[size];
+        this.firstChildren = new int[size];
+        this.childCounts = new int[size];
+        this.attributeOffsets = new int[size + 1];
+        this.attributes = new int[attributeCount * 2];
+    }
+
+    public static CompactAccessibilityTree from(SnapshotData snapshot, StringPool strings) {
+        return from(snapshot.getUrl(), snapshot.getTitle(), snapshot.getAccessibleTree(), strings);
+    }
+
+    public static CompactAccessibilityTree from(String url, String title, List<AccessibleElement> roots, StringPool strings) {
+        List<AccessibleElement> rootList = roots != null ? roots : List.of();
+        int size = 0;
+        int attributeCount = 0;
+        Deque<AccessibleElement> pending = new ArrayDeque<>();
+        rootList.forEach(root -> pushIfPresent(pending, root));
+        while (!pending.isEmpty()) {
+            AccessibleElement element = pending.pop();
+            size++;
+            attributeCount += element.getAttributes() != null ? element.getAttributes().size() : 0;
+            if (element.getChildren() != null) {
+                element.getChildren().forEach(child -> pushIfPresent(pending, child));
+            }
+        }
+
+        int rootCount = (int) rootList.stream().filter(root -> root != null).count();
+        CompactAccessibilityTree tree = new CompactAccessibilityTree(url, title, strings, rootCount, size, attributeCount);
+        // Breadth-first: a node's index is assigned when it is queued, so siblings get consecutive indices.
+        Deque<AccessibleElement> queue = new ArrayDeque<>(Math.max(16, rootCount));
+        int next = 0;
+        for (AccessibleElement root : rootList) {
+            if (root != null) {
+                tree.parents[next++] = -1;
+                queue.add(root);
+            }
+        }
+        int attributeCursor = 0;
+        for (int index = 0; index < size; index++) {
+            AccessibleElement element = queue.poll();
+            tree.refs[index] = strings.intern(element.getRef());
+            tree.roles[index] = ROLES.intern(element.getRole());
+            tree.names[index] = strings.intern(rawName(element));
+            tree.texts[index] = strings.intern(element.getText());
+            tree.attributeOffsets[index] = attributeCursor;
+            if (element.getAttributes() != null) {
+                for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+                    tree.attributes[attributeCursor++] = strings.intern(attribute.getKey());
+                    tree.attributes[attributeCursor++] = strings.intern(attribute.getValue());
+                }
+            }
+            tree.firstChildren[index] = next;
+            if (element.getChildren() != null) {
+                for (AccessibleElement child : element.getChildren()) {
+                    if (child != null) {
+                        tree.parents[next++] = index;
+                        queue.add(child);
+                    }
+                }
+            }
+            tree.childCounts[index] = next - tree.firstChildren[index];
+        }
+        tree.attributeOffsets[size] = attributeCursor;
+        return tree;
+    }
+
+    /**
+     * Builds a tree from nodes read one at a time, as {@link SnapshotStreamDecoder} does, without the nested
+     * {@link AccessibleElement} graph: a node's slot is reserved when it opens, in document order, and filled
+     * when it closes. {@link #build} renumbers the nodes breadth-first.
+     */
+    static final class Builder {
+        private final StringPool strings;
+        private int size;
+        private int[] parents = new int[64];
+        private int[] refs = new int[64];
+        private int[] roles = new int[64];
+        private int[] names = new int[64];
+        private int[] texts = new int[64];
+        private int[] attributeStarts = new int[64];
+        private int[] attributeCounts = new int[64];
+        private int[] attributes = new int[64];
+        private int attributeCount;
+
+        Builder(StringPool strings) {
+            this.strings = strings;
+        }
+
+        // Parent -1 makes a root. Returns the slot to fill once the node's fields are known.
+        int open(int parent) {
+            if (size == parents.length) {
+                int capacity = size * 2;
+                parents = Arrays.copyOf(parents, capacity);
+                refs = Arrays.copyOf(refs, capacity);
+                roles = Arrays.copyOf(roles, capacity);
+                names = Arrays.copyOf(names, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+                attributeStarts = Arrays.copyOf(attributeStarts, capacity);
+                attributeCounts = Arrays.copyOf(attributeCounts, capacity);
+            }
+            parents[size] = parent;
+            return size++;
+        }
+
+        void close(int slot, AccessibleElement element) {
+            refs[slot] = strings.intern(element.getRef());
+            roles[slot] = ROLES.intern(element.getRole());
+            names[slot] = strings.intern(rawName(element));
+            texts[slot] = strings.intern(element.getText());
+            Map<String, String> elementAttributes = element.getAttributes();
+            if (elementAttributes != null) {
+                elementAttributes.forEach((key, value) -> attribute(slot, key, value));
+            }
+        }
+
+        // A node's attributes must arrive together, though nodes may interleave.
+        void attribute(int slot, String key, String value) {
+            if (attributeCounts[slot] == 0) {
+                attributeStarts[slot] = attributeCount * 2;
+            } else if (attributeStarts[slot] + attributeCounts[slot] * 2 != attributeCount * 2) {
+                return;
+            }
+            if (attributeCount * 2 == attributes.length) {
+                attributes = Arrays.copyOf(attributes, attributes.length * 2);
+            }
+            attributes[attributeCount * 2] = strings.intern(key);
+            attributes[attributeCount * 2 + 1] = strings.intern(value);
+            attributeCount++;
+            attributeCounts[slot]++;
+        }
+
+        CompactAccessibilityTree build(String url, String title) {
+            // Children of each slot in document order, as one flat array of ranges.
+            int[] childStarts = new int[size + 1];
+            int rootCount = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (parents[slot] < 0) {
+                    rootCount++;
+                } else {
+                    childStarts[parents[slot] + 1]++;
+                }
+            }
+            for (int slot = 0; slot < size; slot++) {
+                childStarts[slot + 1] += childStarts[slot];
+            }
+            int[] children = new int[size];
+            int[] cursors = Arrays.copyOf(childStarts, size);
+            int[] order = new int[size]; // breadth-first index -> slot
+            int next = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (parents[slot] < 0) {
+                    order[next++] = slot;
+                } else {
+                    children[cursors[parents[slot]]++] = slot;
+                }
+            }
+
+            CompactAccessibilityTree tree = new CompactAccessibilityTree(url, title, strings, rootCount, size, attributeCount);
+            for (int index = 0; index < rootCount; index++) {
+                tree.parents[index] = -1;
+            }
+            int attributeCursor = 0;
+            for (int index = 0; index < size; index++) {
+                int slot = order[index];
+                tree.refs[index] = refs[slot];
+                tree.roles[index] = roles[slot];
+                tree.names[index] = names[slot];
+                tree.texts[index] = texts[slot];
+                tree.attributeOffsets[index] = attributeCursor;
+                int pairs = attributeCounts[slot] * 2;
+                System.arraycopy(attributes, attributeStarts[slot], tree.attributes, attributeCursor, pairs);
+                attributeCursor += pairs;
+                tree.firstChildren[index] = next;
+                for (int i = childStarts[slot]; i < childStarts[slot + 1]; i++) {
+                    tree.parents[next] = index;
+                    order[next++] = children[i];
+                }
+                tree.childCounts[index] = next - tree.firstChildren[index];
+            }
+            tree.attributeOffsets[size] = attributeCursor;
+            return tree;
+        }
+    }
+
+    private static void pushIfPresent(Deque<AccessibleElement> stack, AccessibleElement element) {
+        if (element != null) {
+            stack.push(element);
+        }
+    }
+
+    // AccessibleElement.getName() already falls back to the text; store only what was actually sent.
+    private static String rawName(AccessibleElement element) {
+        String name = element.getName();
+        return name != null && name.equals(element.getText()) ? null : name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int size() {
+        return refs.length;
+    }
+
+    public AccessibleNode node(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Node " + index + " out of range for tree of size " + size());
+        }
+        return new Node(index);
+    }
+
+    public List<AccessibleNode> roots() {
+        return new NodeRange(0, rootCount);
+    }
+
+    // Every node, breadth-first.
+    public List<AccessibleNode> nodes() {
+        return new NodeRange(0, size());
+    }
+
+    // Built on first use; a racing second build is harmless since both results are equal.
+    public SnapshotIndex index() {
+        SnapshotIndex current = index;
+        if (current == null) {
+            current = SnapshotIndex.build(this);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Hash of the page's structure, for telling whether two snapshots show the same page: every node's role,
+     * ref, child count and name, breadth-first. Text content and the names of content roles (text, cells, status
+     * messages, ...) are left out, and digit runs in names count as one placeholder, so a changed price, counter
+     * or date doesn't change the fingerprint. Computed once, FNV-1a over the interned strings.
+     */
+    public long fingerprint() {
+        long current = fingerprint;
+        if (current == 0) {
+            current = computeFingerprint();
+            fingerprint = current;
+        }
+        return current;
+    }
+
+    private long computeFingerprint() {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < size(); i++) {
+            String role = ROLES.get(roles[i]);
+            hash = mix(hash, role, false);
+            hash = mix(hash, strings.get(refs[i]), false);
+            if (role == null || !CONTENT_ROLES.contains(role.toLowerCase(Locale.ROOT))) {
+                hash = mix(hash, strings.get(names[i]), true);
+            }
+            hash = (hash ^ childCounts[i]) * FNV_PRIME;
+        }
+        // 0 marks "not computed yet".
+        return hash != 0 ? hash : 1;
+    }
+
+    private static long mix(long hash, String value, boolean maskDigits) {
+        if (value != null) {
+            boolean inDigits = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (maskDigits && Character.isDigit(c)) {
+                    if (inDigits) {
+                        continue;
+                    }
+                    inDigits = true;
+                    c = '#';
+                } else {
+                    inDigits = false;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ.
+        return (hash ^ 0x1f) * FNV_PRIME;
+    }
+
+    public int parentOf(int index) {
+        return parents[index];
+    }
+
+    int firstChildOf(int index) {
+        return firstChildren[index];
+    }
+
+    public String refOf(int index) {
+        return strings.get(refs[index]);
+    }
+
+    public String roleOf(int index) {
+        return ROLES.get(roles[index]);
+    }
+
+    public String nameOf(int index) {
+        String name = strings.get(names[index]);
+        return name == null || name.trim().isEmpty() ? strings.get(texts[index]) : name;
+    }
+
+    public String textOf(int index) {
+        return strings.get(texts[index]);
+    }
+
+    public String attributeOf(int index, String key) {
+        for (int i = attributeOffsets[index]; i < attributeOffsets[index + 1]; i += 2) {
+            if (key.equals(strings.get(attributes[i]))) {
+                return strings.get(attributes[i + 1]);
+            }
+        }
+        return null;
+    }
+
+    public Map<String, String> attributesOf(int index) {
+        int start = attributeOffsets[index];
+        int end = attributeOffsets[index + 1];
+        if (start == end) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int i = start; i < end; i += 2) {
+            result.put(strings.get(attributes[i]), strings.get(attributes[i + 1]));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactAccessibilityTree{" +
+               "url='" + url + '\'' +
+               ", title='" + title + '\'' +
+               ", size=" + size() +
+               '}';
+    }
+
+    private final class NodeRange extends AbstractList<AccessibleNode> {
+        private final int start;
+        private final int length;
+
+        private NodeRange(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public AccessibleNode get(int i) {
+            if (i < 0 || i >= length) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of range for " + length + " nodes");
+            }
+            return new Node(start + i);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    private final class Node implements AccessibleNode {
+        private final int index;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getRef() {
+            return refOf(index);
+        }
+
+        @Override
+        public String getRole() {
+            return roleOf(index);
+        }
+
+        @Override
+        public String getName() {
+            return nameOf(index);
+        }
+
+        @Override
+        public String getText() {
+            return textOf(index);
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return attributesOf(index);
+        }
+
+        @Override
+        public List<AccessibleNode> getChildren() {
+            return new NodeRange(firstChildren[index], childCounts[index]);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Node node && node.index == index && node.tree() == tree();
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private CompactAccessibilityTree tree() {
+            return CompactAccessibilityTree.this;
+        }
+
+        @Override
+        public String toString() {
+            return "AccessibleNode{" +
+                   "ref='" + getRef() + '\'' +
+                   ", role='" + getRole() + '\'' +
+                   ", name='" + getName() + '\'' +
+                   '}';
+        }
+    }
+}
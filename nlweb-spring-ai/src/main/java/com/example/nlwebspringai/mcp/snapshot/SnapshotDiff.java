@@ -0,0 +1,106 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.SnapshotDelta;
+import com.example.nlwebspringai.mcp.model.SnapshotDelta.NodeChange;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Structural diff of two snapshots of the same session, keyed by {@code ref}. A node counts as changed when its
+ * role, name, text or attributes differ, or when it moved to another parent or position among its siblings.
+ */
+public final class SnapshotDiff {
+
+    private SnapshotDiff() {
+    }
+
+    // Returns null if either tree repeats a key, since such a pair cannot be described by key.
+    public static SnapshotDelta diff(CompactAccessibilityTree base, CompactAccessibilityTree current) {
+        String[] baseKeys = keysOf(base);
+        String[] currentKeys = keysOf(current);
+        Map<String, Integer> baseIndex = indexOf(baseKeys);
+        if (baseIndex == null || indexOf(currentKeys) == null) {
+            return null;
+        }
+
+        SnapshotDelta delta = new SnapshotDelta();
+        delta.setUrl(current.getUrl());
+        delta.setTitle(current.getTitle());
+        for (int i = 0; i < currentKeys.length; i++) {
+            Integer previous = baseIndex.remove(currentKeys[i]);
+            if (previous == null) {
+                delta.getAdded().add(changeOf(current, currentKeys, i));
+            } else if (!sameNode(base, baseKeys, previous, current, currentKeys, i)) {
+                delta.getChanged().add(changeOf(current, currentKeys, i));
+            }
+        }
+        // Whatever is left in the base index no longer exists; list in base order for a stable payload.
+        for (int i = 0; i < baseKeys.length; i++) {
+            if (baseIndex.containsKey(baseKeys[i])) {
+                delta.getRemoved().add(baseKeys[i]);
+            }
+        }
+        return delta;
+    }
+
+    // Breadth-first order guarantees a parent's key is known before its children's.
+    static String[] keysOf(CompactAccessibilityTree tree) {
+        String[] keys = new String[tree.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String ref = tree.refOf(i);
+            if (ref != null) {
+                keys[i] = ref;
+            } else {
+                int parent = tree.parentOf(i);
+                keys[i] = parent < 0 ? "#" + i : keys[parent] + "#" + (i - tree.firstChildOf(parent));
+            }
+        }
+        return keys;
+    }
+
+    private static Map<String, Integer> indexOf(String[] keys) {
+        Map<String, Integer> index = new HashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (index.put(keys[i], i) != null) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    private static boolean sameNode(CompactAccessibilityTree base, String[] baseKeys, int b,
+                                    CompactAccessibilityTree current, String[] currentKeys, int c) {
+        return Objects.equals(base.roleOf(b), current.roleOf(c))
+                && Objects.equals(base.nameOf(b), current.nameOf(c))
+                && Objects.equals(base.textOf(b), current.textOf(c))
+                && Objects.equals(parentKey(base, baseKeys, b), parentKey(current, currentKeys, c))
+                && Objects.equals(previousSiblingKey(base, baseKeys, b), previousSiblingKey(current, currentKeys, c))
+                && base.attributesOf(b).equals(current.attributesOf(c));
+    }
+
+    private static NodeChange changeOf(CompactAccessibilityTree tree, String[] keys, int index) {
+        NodeChange change = new NodeChange();
+        change.setKey(keys[index]);
+        change.setParent(parentKey(tree, keys, index));
+        change.setAfter(previousSiblingKey(tree, keys, index));
+        change.setRole(tree.roleOf(index));
+        change.setName(tree.nameOf(index));
+        change.setText(tree.textOf(index));
+        Map<String, String> attributes = tree.attributesOf(index);
+        change.setAttributes(attributes.isEmpty() ? null : attributes);
+        return change;
+    }
+
+    private static String parentKey(CompactAccessibilityTree tree, String[] keys, int index) {
+        int parent = tree.parentOf(index);
+        return parent < 0 ? null : keys[parent];
+    }
+
+    private static String previousSiblingKey(CompactAccessibilityTree tree, String[] keys, int index) {
+        int parent = tree.parentOf(index);
+        int first = parent < 0 ? 0 : tree.firstChildOf(parent);
+        return index == first ? null : keys[index - 1];
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Which accessibility-tree nodes a {@link SnapshotStreamDecoder} should emit. Immutable; each
+ * {@code with...} method returns a narrowed copy.
+ */
+public final class SnapshotFilter {
+
+    public static final Set<String> INTERACTIVE_ROLES = Set.of(
+            "button", "link", "textbox", "searchbox", "checkbox", "radio", "combobox", "listbox",
+            "option", "menuitem", "menuitemcheckbox", "menuitemradio", "tab", "switch", "slider", "spinbutton");
+
+    private static final SnapshotFilter ALL = new SnapshotFilter(null, false, -1);
+
+    private final Set<String> roles; // null means any role
+    private final boolean visibleOnly;
+    private final int maxDepth; // -1 means unlimited; roots are depth 0
+
+    private SnapshotFilter(Set<String> roles, boolean visibleOnly, int maxDepth) {
+        this.roles = roles;
+        this.visibleOnly = visibleOnly;
+        this.maxDepth = maxDepth;
+    }
+
+    public static SnapshotFilter all() {
+        return ALL;
+    }
+
+    // Visible interactive elements: what click and type commands can target.
+    public static SnapshotFilter interactive() {
+        return ALL.withRoles(INTERACTIVE_ROLES).withVisibleOnly();
+    }
+
+    public SnapshotFilter withRoles(Set<String> roles) {
+        Set<String> normalized = roles.stream().map(role -> role.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        return new SnapshotFilter(normalized, visibleOnly, maxDepth);
+    }
+
+    public SnapshotFilter withVisibleOnly() {
+        return new SnapshotFilter(roles, true, maxDepth);
+    }
+
+    public SnapshotFilter withMaxDepth(int maxDepth) {
+        return new SnapshotFilter(roles, visibleOnly, maxDepth);
+    }
+
+    public boolean isVisibleOnly() {
+        return visibleOnly;
+    }
+
+    // A subtree below maxDepth, or under a hidden node when only visible nodes are wanted, can be skipped unread.
+    boolean descendsInto(int depth, boolean hidden) {
+        return (maxDepth < 0 || depth <= maxDepth) && !(visibleOnly && hidden);
+    }
+
+    boolean accepts(AccessibleElement element, int depth, boolean hidden) {
+        if (!descendsInto(depth, hidden)) {
+            return false;
+        }
+        return roles == null || (element.getRole() != null && roles.contains(element.getRole().toLowerCase(Locale.ROOT)));
+    }
+
+    static boolean isHidden(Map<String, String> attributes) {
+        return attributes != null
+                && ("true".equalsIgnoreCase(attributes.get("hidden")) || "true".equalsIgnoreCase(attributes.get("aria-hidden")));
+    }
+}
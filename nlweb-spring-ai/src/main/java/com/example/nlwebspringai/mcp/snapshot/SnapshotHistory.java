@@ -0,0 +1,93 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The most recent snapshots of one browser session, kept in compact form. All snapshots in the history
+ * share a {@link StringPool}, so consecutive snapshots of the same page cost little more than their
+ * index arrays. Because a pool never shrinks, a fresh one is started once it grows past
+ * {@code maxPooledStrings}; older snapshots keep the previous pool until they are evicted.
+ */
+public class SnapshotHistory {
+
+    private final int capacity;
+    private final int maxPooledStrings;
+    private final Deque<CompactAccessibilityTree> snapshots = new ArrayDeque<>();
+    private StringPool strings = new StringPool();
+    private long version;
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    public SnapshotHistory(int capacity, int maxPooledStrings) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.maxPooledStrings = maxPooledStrings;
+    }
+
+    public CompactAccessibilityTree record(SnapshotData snapshot) {
+        return record(pool -> CompactAccessibilityTree.from(snapshot, pool));
+    }
+
+    // The reader builds the tree into the history's pool; if it throws, nothing is recorded.
+    public synchronized CompactAccessibilityTree record(Function<StringPool, CompactAccessibilityTree> reader) {
+        if (strings.size() > maxPooledStrings) {
+            strings = new StringPool();
+        }
+        CompactAccessibilityTree tree = reader.apply(strings);
+        snapshots.addFirst(tree);
+        version++;
+        while (snapshots.size() > capacity) {
+            snapshots.removeLast();
+        }
+        return tree;
+    }
+
+    /**
+     * Runs {@code task} on the executor once every task handed over before it has finished, so snapshots
+     * recorded off the caller's thread still enter the history in the order they were taken. A failing task
+     * does not hold up the ones after it.
+     */
+    public synchronized <T> CompletableFuture<T> inOrder(Supplier<T> task, Executor executor) {
+        CompletableFuture<T> result = pending.thenApplyAsync(ignored -> task.get(), executor);
+        pending = result.handle((value, error) -> null);
+        return result;
+    }
+
+    // Completes once every task handed to inOrder so far has finished.
+    public synchronized CompletableFuture<Void> settled() {
+        return pending;
+    }
+
+    public synchronized CompactAccessibilityTree latest() {
+        return snapshots.peekFirst();
+    }
+
+    // Number of snapshots recorded so far, which doubles as the version of the latest one.
+    public synchronized long version() {
+        return version;
+    }
+
+    // Newest first.
+    public synchronized List<CompactAccessibilityTree> snapshots() {
+        return new ArrayList<>(snapshots);
+    }
+
+    public synchronized int size() {
+        return snapshots.size();
+    }
+
+    public synchronized void clear() {
+        snapshots.clear();
+        strings = new StringPool();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.AccessibleNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Lookup structures over one {@link CompactAccessibilityTree}: ref to node, role to nodes, and an inverted index
+ * from the tokens of each node's name, text and attribute values to the nodes that contain them. Built once per
+ * snapshot (see {@link CompactAccessibilityTree#index()}) and read-only afterwards.
+ * <p>
+ * {@link #resolve(String)} turns a description such as "the blue Submit button" into a ref. Words that name a
+ * role ("button", "link", "field", ...) select roles; the remaining words are matched against the token index
+ * and weighted by how rare they are on the page. Hidden nodes and nodes without a ref are never returned.
+ */
+public final class SnapshotIndex {
+
+    // A match below this share of the description's term weight is not trusted.
+    static final double MIN_SCORE = 0.6;
+    // Runner-up within this distance of the best match makes the description ambiguous.
+    static final double AMBIGUITY_MARGIN = 0.05;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "a", "an", "on", "in", "into", "to", "of", "for", "with", "and", "or", "that", "this",
+            "click", "press", "tap", "select", "choose", "type", "enter", "element");
+    private static final Map<String, Set<String>> ROLE_WORDS = Map.ofEntries(
+            Map.entry("button", Set.of("button")),
+            Map.entry("link", Set.of("link")),
+            Map.entry("checkbox", Set.of("checkbox", "menuitemcheckbox")),
+            Map.entry("radio", Set.of("radio", "menuitemradio")),
+            Map.entry("tab", Set.of("tab")),
+            Map.entry("menu", Set.of("menuitem", "menu")),
+            Map.entry("field", Set.of("textbox", "searchbox", "combobox", "spinbutton")),
+            Map.entry("input", Set.of("textbox", "searchbox", "combobox", "spinbutton")),
+            Map.entry("textbox", Set.of("textbox", "searchbox")),
+            Map.entry("box", Set.of("textbox", "searchbox", "combobox", "checkbox")),
+            Map.entry("dropdown", Set.of("combobox", "listbox")),
+            Map.entry("option", Set.of("option")),
+            Map.entry("switch", Set.of("switch")),
+            Map.entry("toggle", Set.of("switch", "checkbox")),
+            Map.entry("slider", Set.of("slider")));
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final CompactAccessibilityTree tree;
+    private final Map<String, Integer> refs;
+    private final Map<String, int[]> roles;
+    private final Map<String, int[]> tokens;
+    private final boolean[] hidden;
+
+    private SnapshotIndex(CompactAccessibilityTree tree, Map<String, Integer> refs, Map<String, int[]> roles,
+                          Map<String, int[]> tokens, boolean[] hidden) {
+        this.tree = tree;
+        this.refs = refs;
+        this.roles = roles;
+        this.tokens = tokens;
+        this.hidden = hidden;
+    }
+
+    static SnapshotIndex build(CompactAccessibilityTree tree) {
+        int size = tree.size();
+        Map<String, Integer> refs = new HashMap<>(size * 2);
+        Map<String, IntList> roles = new HashMap<>();
+        Map<String, IntList> tokens = new HashMap<>();
+        boolean[] hidden = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int parent = tree.parentOf(i);
+            hidden[i] = (parent >= 0 && hidden[parent]) || SnapshotFilter.isHidden(tree.attributesOf(i));
+            String ref = tree.refOf(i);
+            if (ref != null) {
+                refs.putIfAbsent(ref, i);
+            }
+            String role = tree.roleOf(i);
+            if (role != null) {
+                roles.computeIfAbsent(role.toLowerCase(Locale.ROOT), key -> new IntList()).add(i);
+            }
+            addTokens(tokens, tree.nameOf(i), i);
+            addTokens(tokens, tree.textOf(i), i);
+            for (String value : tree.attributesOf(i).values()) {
+                addTokens(tokens, value, i);
+            }
+        }
+        return new SnapshotIndex(tree, refs, freeze(roles), freeze(tokens), hidden);
+    }
+
+    public CompactAccessibilityTree tree() {
+        return tree;
+    }
+
+    public boolean containsRef(String ref) {
+        return ref != null && refs.containsKey(ref);
+    }
+
+    public AccessibleNode byRef(String ref) {
+        Integer index = ref != null ? refs.get(ref) : null;
+        return index != null ? tree.node(index) : null;
+    }
+
+    public List<AccessibleNode> byRole(String role) {
+        return nodes(roles.getOrDefault(role.toLowerCase(Locale.ROOT), NO_NODES));
+    }
+
+    public List<AccessibleNode> byToken(String token) {
+        return nodes(tokens.getOrDefault(token.toLowerCase(Locale.ROOT), NO_NODES));
+    }
+
+    /**
+     * Best visible, ref-carrying node for the description, or null if nothing matches at all. The result is
+     * flagged ambiguous when its score is low or a different node scores almost as well.
+     */
+    public ElementMatch resolve(String description) {
+        if (description == null || description.isBlank()) {
+            return null;
+        }
+        Set<String> wantedRoles = new LinkedHashSet<>();
+        List<String> terms = new ArrayList<>();
+        for (String token : tokenize(description)) {
+            Set<String> roleWords = ROLE_WORDS.get(token);
+            if (roleWords != null) {
+                wantedRoles.addAll(roleWords);
+            } else if (!STOP_WORDS.contains(token) && !terms.contains(token)) {
+                terms.add(token);
+            }
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        double totalWeight = 0;
+        for (String term : terms) {
+            int[] postings = tokens.getOrDefault(term, NO_NODES);
+            // Rare words identify an element better than words that appear all over the page.
+            double weight = Math.log(1.0 + (double) tree.size() / Math.max(1, postings.length));
+            totalWeight += weight;
+            for (int node : postings) {
+                scores.merge(node, weight, Double::sum);
+            }
+        }
+        if (terms.isEmpty()) {
+            // "the checkbox": only a role to go on.
+            for (String role : wantedRoles) {
+                for (int node : roles.getOrDefault(role, NO_NODES)) {
+                    scores.put(node, 1.0);
+                }
+            }
+            totalWeight = 1.0;
+        }
+
+        int best = -1;
+        double bestScore = 0;
+        double runnerUpScore = 0;
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            int node = entry.getKey();
+            if (hidden[node] || tree.refOf(node) == null) {
+                continue;
+            }
+            double score = entry.getValue() / totalWeight * roleFactor(node, wantedRoles);
+            if (score > bestScore || (score == bestScore && best >= 0 && node < best)) {
+                runnerUpScore = Math.max(runnerUpScore, bestScore);
+                bestScore = score;
+                best = node;
+            } else if (score > runnerUpScore) {
+                runnerUpScore = score;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        boolean ambiguous = bestScore < MIN_SCORE || bestScore - runnerUpScore < AMBIGUITY_MARGIN;
+        return new ElementMatch(tree.refOf(best), tree.node(best), bestScore, ambiguous);
+    }
+
+    private double roleFactor(int node, Set<String> wantedRoles) {
+        String role = tree.roleOf(node);
+        String normalized = role != null ? role.toLowerCase(Locale.ROOT) : "";
+        if (!wantedRoles.isEmpty()) {
+            return wantedRoles.contains(normalized) ? 1.0 : 0.5;
+        }
+        // Static text that merely repeats a control's label should lose to the control.
+        return SnapshotFilter.INTERACTIVE_ROLES.contains(normalized) ? 1.0 : 0.8;
+    }
+
+    private List<AccessibleNode> nodes(int[] indices) {
+        if (indices.length == 0) {
+            return Collections.emptyList();
+        }
+        List<AccessibleNode> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(tree.node(index));
+        }
+        return result;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static void addTokens(Map<String, IntList> index, String text, int node) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        for (String token : tokenize(text)) {
+            index.computeIfAbsent(token, key -> new IntList()).addOnce(node);
+        }
+    }
+
+    private static Map<String, int[]> freeze(Map<String, IntList> lists) {
+        Map<String, int[]> frozen = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, list) -> frozen.put(key, list.toArray()));
+        return frozen;
+    }
+
+    public record ElementMatch(String ref, AccessibleNode node, double score, boolean ambiguous) {
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        // Nodes are indexed in order, so a repeat can only be the last value.
+        private void addOnce(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.cache.BoundedTtlCache;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotDelta;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Per-session {@link SnapshotHistory}, keyed by the session id from {@link com.example.nlwebspringai.mcp.session.McpSessionContext}.
+ * Requests without a session id share the {@link #DEFAULT_SESSION} history, for ref resolution and the page memo
+ * only: they always get full snapshots, since a delta against it could be based on a snapshot that another
+ * anonymous client received. Sessions that stop taking
+ * snapshots expire after {@code idle-ttl}; beyond {@code max-sessions} the least recently used is dropped.
+ * <p>
+ * In delta mode a snapshot is answered with a {@code snapshot_delta} against the session's previous snapshot
+ * instead of the full tree, unless the page changed URL or the delta would not be much smaller than the tree.
+ * Otherwise a snapshot can be recorded in the background, off the response path; a session's snapshots are
+ * still recorded in order, and {@link #latestRecorded} waits for those not recorded yet.
+ */
+@Component
+public class SnapshotStore {
+
+    public static final String DEFAULT_SESSION = "default";
+    public static final String DELTA_TYPE = "snapshot_delta";
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final String TREE_FIELD = "accessibleTree";
+    private static final JsonNode EMPTY_TREE = JsonNodeFactory.instance.arrayNode();
+
+    private final ObjectMapper objectMapper;
+    private final int historySize;
+    private final int maxPooledStrings;
+    private final boolean deltaByDefault;
+    private final double maxDeltaRatio;
+    private final BoundedTtlCache<String, SnapshotHistory> histories;
+    private final SnapshotStreamDecoder decoder;
+    private final Executor recorder = runnable -> Schedulers.parallel().schedule(runnable);
+
+    public SnapshotStore(ObjectMapper objectMapper,
+                         @Value("${playwright.mcp.snapshot.history-size:5}") int historySize,
+                         @Value("${playwright.mcp.snapshot.max-pooled-strings:100000}") int maxPooledStrings,
+                         @Value("${playwright.mcp.snapshot.max-sessions:1000}") int maxSessions,
+                         @Value("${playwright.mcp.snapshot.idle-ttl:30m}") Duration idleTtl,
+                         @Value("${playwright.mcp.snapshot.delta.default:false}") boolean deltaByDefault,
+                         @Value("${playwright.mcp.snapshot.delta.max-ratio:0.5}") double maxDeltaRatio) {
+        this.objectMapper = objectMapper;
+        this.historySize = historySize;
+        this.maxPooledStrings = maxPooledStrings;
+        this.deltaByDefault = deltaByDefault;
+        this.maxDeltaRatio = maxDeltaRatio;
+        this.histories = new BoundedTtlCache<>(maxSessions, idleTtl);
+        this.decoder = new SnapshotStreamDecoder(objectMapper.getFactory());
+    }
+
+    // Returns null, and records nothing, if the payload is not a snapshot.
+    public CompactAccessibilityTree record(String sessionId, JsonNode data) {
+        if (!isSnapshot(sessionId, data)) {
+            return null;
+        }
+        try {
+            return historyFor(sessionId).record(strings -> readTree(data, strings));
+        } catch (UncheckedIOException e) {
+            logger.warn("Not recording undecodable snapshot for session {}: {}", sessionId, e.getMessage());
+            return null;
+        }
+    }
+
+    public CompactAccessibilityTree record(String sessionId, SnapshotData snapshot) {
+        return historyFor(sessionId).record(snapshot);
+    }
+
+    /**
+     * Records a {@code snapshot} response and returns what the client should receive in delta mode: a
+     * {@code snapshot_delta} response, or a copy of the original response with its {@code version} added so
+     * that the next delta has a known base. The original response is left as it was. Without a session id the
+     * snapshot is recorded but always sent in full.
+     */
+    public McpResponse recordAsDelta(String sessionId, McpResponse response) {
+        JsonNode snapshot = response.getData();
+        if (!isSnapshot(sessionId, snapshot)) {
+            return response;
+        }
+        SnapshotHistory history = historyFor(sessionId);
+        SnapshotDelta delta = null;
+        long version;
+        CompactAccessibilityTree current;
+        synchronized (history) {
+            CompactAccessibilityTree base = history.latest();
+            long baseVersion = history.version();
+            try {
+                current = history.record(strings -> readTree(snapshot, strings));
+            } catch (UncheckedIOException e) {
+                logger.warn("Not recording undecodable snapshot for session {}: {}", sessionId, e.getMessage());
+                return response;
+            }
+            version = history.version();
+            if (!isDefault(sessionId) && base != null && Objects.equals(base.getUrl(), current.getUrl())) {
+                delta = SnapshotDiff.diff(base, current);
+                if (delta != null) {
+                    delta.setBaseVersion(baseVersion);
+                    delta.setVersion(version);
+                }
+            }
+        }
+        if (delta == null || delta.changeCount() > maxDeltaRatio * current.size()) {
+            return withVersion(response, version);
+        }
+        logger.debug("Sending {} for session {}", delta, sessionId);
+        McpResponse deltaResponse = new McpResponse();
+        deltaResponse.setId(response.getId());
+        deltaResponse.setType(DELTA_TYPE);
+        deltaResponse.setData(objectMapper.valueToTree(delta));
+        return deltaResponse;
+    }
+
+    // For responses that don't depend on the recording: decoded on a worker, after the session's earlier snapshots.
+    public void recordInBackground(String sessionId, JsonNode data) {
+        historyFor(sessionId).inOrder(() -> record(sessionId, data), recorder);
+    }
+
+    // recordAsDelta, in order with the session's background recordings.
+    public Mono<McpResponse> recordAsDeltaInOrder(String sessionId, McpResponse response) {
+        return Mono.fromFuture(historyFor(sessionId).inOrder(() -> recordAsDelta(sessionId, response), recorder), true);
+    }
+
+    // The latest snapshot once every recording handed over so far has finished; empty if there is none.
+    public Mono<CompactAccessibilityTree> latestRecorded(String sessionId) {
+        SnapshotHistory history = history(sessionId);
+        if (history == null) {
+            return Mono.empty();
+        }
+        return Mono.fromFuture(history.settled(), true).then(Mono.fromSupplier(history::latest));
+    }
+
+    // The response may be shared with other subscribers, so the version goes on a shallow copy of its data.
+    private McpResponse withVersion(McpResponse response, long version) {
+        if (!(response.getData() instanceof ObjectNode data)) {
+            return response;
+        }
+        ObjectNode versioned = data.objectNode();
+        versioned.setAll(data);
+        versioned.put("version", version);
+        McpResponse copy = new McpResponse();
+        copy.setId(response.getId());
+        copy.setType(response.getType());
+        copy.setData(versioned);
+        copy.setError(response.getError());
+        copy.setJson(response.getJson());
+        return copy;
+    }
+
+    public boolean isDeltaByDefault() {
+        return deltaByDefault;
+    }
+
+    public SnapshotHistory history(String sessionId) {
+        return histories.get(keyOf(sessionId));
+    }
+
+    public CompactAccessibilityTree latest(String sessionId) {
+        SnapshotHistory history = history(sessionId);
+        return history != null ? history.latest() : null;
+    }
+
+    public void evict(String sessionId) {
+        histories.remove(keyOf(sessionId));
+    }
+
+    public int sessionCount() {
+        return histories.size();
+    }
+
+    private SnapshotHistory historyFor(String sessionId) {
+        String key = keyOf(sessionId);
+        synchronized (histories) {
+            SnapshotHistory history = histories.get(key);
+            if (history == null) {
+                history = new SnapshotHistory(historySize, maxPooledStrings);
+            }
+            // Re-inserting restarts the idle timer.
+            histories.put(key, history);
+            return history;
+        }
+    }
+
+    private static boolean isSnapshot(String sessionId, JsonNode data) {
+        JsonNode tree = data != null ? data.get(TREE_FIELD) : null;
+        if (data == null || !data.isObject() || (tree != null && !tree.isNull() && !tree.isArray())) {
+            logger.warn("Not recording undecodable snapshot for session {}: no accessibility tree", sessionId);
+            return false;
+        }
+        return true;
+    }
+
+    // Straight from the response's data tree into compact form, in one pass over its tokens.
+    private CompactAccessibilityTree readTree(JsonNode data, StringPool strings) {
+        JsonNode tree = data.get(TREE_FIELD);
+        try {
+            return decoder.decodeTree((tree != null && tree.isArray() ? tree : EMPTY_TREE).traverse(),
+                    textOf(data.get("url")), textOf(data.get("title")), strings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String textOf(JsonNode value) {
+        return value != null && value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+
+    private static String keyOf(String sessionId) {
+        return isDefault(sessionId) ? DEFAULT_SESSION : sessionId;
+    }
+
+    private static boolean isDefault(String sessionId) {
+        return sessionId == null || sessionId.isBlank();
+    }
+}
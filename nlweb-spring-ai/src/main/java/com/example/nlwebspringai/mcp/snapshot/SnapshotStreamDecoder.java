@@ -0,0 +1,282 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes the {@code accessibleTree} of a browser snapshot straight from Jackson's token stream and emits
+ * each {@link AccessibleElement} as soon as it has been read, without building the tree.
+ * <p>
+ * Elements are emitted flat, with {@code children} left null, in post-order (a node follows its children),
+ * because only then are all of its fields known. Subtrees the {@link SnapshotFilter} rules out by depth, or
+ * under a node already known to be hidden, are skipped without being decoded. A node's {@code hidden} flag
+ * may also follow its {@code children}, so with a visible-only filter matching elements are held back until
+ * every node above them has closed, and dropped if one turns out hidden; memory use is then bounded by the
+ * matching elements of one root rather than by the depth of the tree. The tree is found either as the root
+ * array or as an {@code accessibleTree} field at any depth, so both a bare {@code SnapshotData} and a whole
+ * {@code McpResponse} can be decoded.
+ */
+public class SnapshotStreamDecoder {
+
+    private static final String TREE_FIELD = "accessibleTree";
+
+    private final JsonFactory jsonFactory;
+
+    public SnapshotStreamDecoder() {
+        this(new JsonFactory());
+    }
+
+    public SnapshotStreamDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public Flux<AccessibleElement> decode(String json, SnapshotFilter filter) {
+        return decode(() -> jsonFactory.createParser(json), filter);
+    }
+
+    public Flux<AccessibleElement> decode(byte[] json, SnapshotFilter filter) {
+        return decode(() -> jsonFactory.createParser(json), filter);
+    }
+
+    // The stream is closed when the Flux terminates or is cancelled.
+    public Flux<AccessibleElement> decode(InputStream json, SnapshotFilter filter) {
+        return decode(() -> jsonFactory.createParser(json), filter);
+    }
+
+    public Flux<AccessibleElement> decode(Callable<JsonParser> parserFactory, SnapshotFilter filter) {
+        return Flux.generate(
+                () -> new DecoderState(parserFactory.call(), filter, null),
+                (state, sink) -> {
+                    try {
+                        AccessibleElement element = state.next();
+                        if (element == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(element);
+                        }
+                    } catch (IOException e) {
+                        sink.error(new UncheckedIOException("Malformed snapshot JSON", e));
+                    }
+                    return state;
+                },
+                DecoderState::close);
+    }
+
+    /**
+     * Reads the whole tree into a {@link CompactAccessibilityTree} in the same single pass, without the
+     * {@code SnapshotData} object graph. Nothing is filtered out; the parser is closed when done.
+     */
+    public CompactAccessibilityTree decodeTree(JsonParser parser, String url, String title, StringPool strings) throws IOException {
+        CompactAccessibilityTree.Builder builder = new CompactAccessibilityTree.Builder(strings);
+        DecoderState state = new DecoderState(parser, SnapshotFilter.all(), builder);
+        try {
+            while (state.next() != null) {
+                // Each element has already been added to the builder.
+            }
+        } finally {
+            state.close();
+        }
+        return builder.build(url, title);
+    }
+
+    private static final class Frame {
+        private final AccessibleElement element = new AccessibleElement();
+        private final int depth;
+        private final int slot; // in the tree being built, if any
+        private boolean hidden;
+        // Matching descendants, held until this node's own visibility is known.
+        private List<AccessibleElement> held;
+
+        private Frame(int depth, int slot, boolean parentHidden) {
+            this.depth = depth;
+            this.slot = slot;
+            this.hidden = parentHidden;
+        }
+
+        private List<AccessibleElement> heldList() {
+            if (held == null) {
+                held = new ArrayList<>();
+            }
+            return held;
+        }
+    }
+
+    private static final class DecoderState {
+        private final JsonParser parser;
+        private final SnapshotFilter filter;
+        private final CompactAccessibilityTree.Builder builder;
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private final Deque<AccessibleElement> ready = new ArrayDeque<>();
+        private boolean inTree;
+        private boolean finished;
+
+        private DecoderState(JsonParser parser, SnapshotFilter filter, CompactAccessibilityTree.Builder builder) {
+            this.parser = parser;
+            this.filter = filter;
+            this.builder = builder;
+        }
+
+        private AccessibleElement next() throws IOException {
+            while (ready.isEmpty() && !finished) {
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    finished = true;
+                } else if (!inTree) {
+                    seekTree(token);
+                } else {
+                    switch (token) {
+                        case START_OBJECT -> startElement();
+                        case FIELD_NAME -> readField(stack.peek());
+                        case END_ARRAY -> {
+                            // The tree's root array is done; nothing after it is of interest.
+                            finished = stack.isEmpty();
+                        }
+                        case END_OBJECT -> endElement(stack.pop());
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            return ready.poll();
+        }
+
+        private void seekTree(JsonToken token) throws IOException {
+            if (token == JsonToken.START_ARRAY && parser.getParsingContext().getParent().inRoot()) {
+                inTree = true;
+            } else if (token == JsonToken.FIELD_NAME && TREE_FIELD.equals(parser.currentName())) {
+                inTree = parser.nextToken() == JsonToken.START_ARRAY;
+            }
+        }
+
+        private void startElement() throws IOException {
+            Frame parent = stack.peek();
+            int depth = parent == null ? 0 : parent.depth + 1;
+            boolean parentHidden = parent != null && parent.hidden;
+            if (!filter.descendsInto(depth, parentHidden)) {
+                parser.skipChildren();
+                return;
+            }
+            int slot = builder != null ? builder.open(parent == null ? -1 : parent.slot) : -1;
+            stack.push(new Frame(depth, slot, parentHidden));
+        }
+
+        private void endElement(Frame frame) {
+            if (builder != null) {
+                builder.close(frame.slot, frame.element);
+            }
+            if (!filter.isVisibleOnly()) {
+                if (filter.accepts(frame.element, frame.depth, frame.hidden)) {
+                    ready.add(frame.element);
+                }
+                return;
+            }
+            if (frame.hidden) {
+                // Whatever was held below a node that turned out hidden is dropped with it.
+                return;
+            }
+            Frame parent = stack.peek();
+            Collection<AccessibleElement> target = parent == null ? ready : parent.heldList();
+            if (frame.held != null) {
+                target.addAll(frame.held);
+            }
+            if (filter.accepts(frame.element, frame.depth, false)) {
+                target.add(frame.element);
+            }
+        }
+
+        private void readField(Frame frame) throws IOException {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "ref" -> frame.element.setRef(textOf(value));
+                case "role" -> frame.element.setRole(textOf(value));
+                case "name" -> frame.element.setName(textOf(value));
+                case "text" -> frame.element.setText(textOf(value));
+                case "hidden" -> {
+                    frame.hidden = frame.hidden || value == JsonToken.VALUE_TRUE;
+                    parser.skipChildren();
+                }
+                case "attributes" -> {
+                    if (builder != null) {
+                        // Straight into the tree being built; no node is filtered, so the map is not needed.
+                        readAttributesInto(frame.slot, value);
+                        return;
+                    }
+                    Map<String, String> attributes = readAttributes(value);
+                    frame.element.setAttributes(attributes);
+                    frame.hidden = frame.hidden || SnapshotFilter.isHidden(attributes);
+                }
+                case "children" -> {
+                    // The array's elements are read by next(); anything else is skipped.
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        private String textOf(JsonToken value) throws IOException {
+            if (value == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (value.isScalarValue()) {
+                return parser.getValueAsString();
+            }
+            parser.skipChildren();
+            return null;
+        }
+
+        private void readAttributesInto(int slot, JsonToken value) throws IOException {
+            if (value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                String text = textOf(parser.nextToken());
+                if (text != null) {
+                    builder.attribute(slot, name, text);
+                }
+            }
+        }
+
+        private Map<String, String> readAttributes(JsonToken value) throws IOException {
+            if (value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return null;
+            }
+            Map<String, String> attributes = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                String text = textOf(parser.nextToken());
+                if (text != null) {
+                    attributes.put(name, text);
+                }
+            }
+            return attributes;
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing useful to do: every element has already been delivered or the Flux was cancelled.
+            }
+        }
+    }
+}
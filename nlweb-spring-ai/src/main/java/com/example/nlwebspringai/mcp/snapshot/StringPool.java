@@ -0,0 +1,55 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each distinct string a dense int id, so trees that share a pool store every repeated name,
+ * attribute key or value once. Ids are never reused; a pool only grows. Interning is synchronized,
+ * lookups by id are lock-free.
+ */
+public final class StringPool {
+
+    public static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] strings;
+    private int size;
+
+    public StringPool() {
+        this(256);
+    }
+
+    public StringPool(int initialCapacity) {
+        this.strings = new String[Math.max(16, initialCapacity)];
+    }
+
+    public synchronized int intern(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        String[] table = strings;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        int id = size++;
+        table[id] = value;
+        ids.put(value, id);
+        // The volatile write publishes the new slot to readers that only ever saw the old array.
+        strings = table;
+        return id;
+    }
+
+    public String get(int id) {
+        return id == NULL_ID ? null : strings[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
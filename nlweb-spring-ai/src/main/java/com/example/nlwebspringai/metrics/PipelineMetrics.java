@@ -0,0 +1,293 @@
+package com.example.nlwebspringai.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.handler.TracingObservationHandler;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.ContextView;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Micrometer meters for the three stages of a natural-language request: translation by NLWeb, execution of
+ * each Playwright-MCP command, and the request as a whole.
+ * <p>
+ * Meters are registered once per tag combination and cached, so the hot path costs two {@link System#nanoTime()}
+ * calls and a map lookup. Tags are limited to known values: MCP command names come from our own request
+ * classes, and NLWeb actions outside {@link #KNOWN_ACTIONS} are reported as {@code other}.
+ * <p>
+ * Each stage is also an {@link Observation} named {@value #STAGE_OBSERVATION}, which becomes a span when tracing
+ * is on. The current observation travels in the Reactor context, so the instrumented NLWeb and Playwright-MCP
+ * HTTP clients create their spans as its children and send its trace in a W3C {@code traceparent} header.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String STAGE_OBSERVATION = "nlweb.stage";
+
+    static final Set<String> KNOWN_ACTIONS = Set.of("navigate", "snapshot", "click", "type", "wait", "plan", "error");
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observationRegistry;
+    private final AtomicInteger inFlightCommands = new AtomicInteger();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final Map<String, CommandMeters> commandMeters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> translationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry, ObservationRegistry observationRegistry) {
+        this.registry = registry;
+        this.observationRegistry = observationRegistry;
+        Gauge.builder("mcp.commands.in.flight", inFlightCommands, AtomicInteger::get)
+                .description("Playwright-MCP commands whose response stream has not finished")
+                .register(registry);
+        Gauge.builder("mcp.streams.open", openStreams, AtomicInteger::get)
+                .description("Open SSE streams to Playwright-MCP")
+                .register(registry);
+    }
+
+    // Time-to-first-event, total duration and event count of one MCP command's response stream.
+    public <T> Flux<T> timeCommand(String command, String requestId, Flux<T> responses) {
+        return Flux.deferContextual(context -> {
+            CommandMeters meters = commandMeters.computeIfAbsent(command, name -> new CommandMeters(registry, name));
+            Observation observation = startStage(context, "mcp", command, "mcp " + command)
+                    .highCardinalityKeyValue("mcp.request.id", requestId);
+            CommandTiming timing = new CommandTiming(meters, observation);
+            inFlightCommands.incrementAndGet();
+            return responses
+                    .doOnNext(response -> timing.onEvent())
+                    .doOnError(observation::error)
+                    .doFinally(timing::finish)
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    // Times and traces translation of a query by NLWeb; the function sets the action once it is known.
+    public <T> Mono<T> observeTranslation(Function<RequestTiming, Mono<T>> translation) {
+        return Mono.deferContextual(context -> {
+            RequestTiming timing = startTranslation(startStage(context, "translation", "none", "nlweb translate"));
+            return translation.apply(timing)
+                    .doOnError(timing::error)
+                    .doFinally(timing::stop)
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, timing.observation));
+        });
+    }
+
+    // Times and traces a request from query to the last MCP event; the function sets the action once it is known.
+    public <T> Flux<T> observeRequest(Function<RequestTiming, Flux<T>> request) {
+        return Flux.deferContextual(context -> {
+            RequestTiming timing = new RequestTiming(requestTimers, "nlweb.request",
+                    "Natural-language request from query to the last MCP event",
+                    startStage(context, "request", "none", "process-nl"));
+            return request.apply(timing)
+                    .doOnError(timing::error)
+                    .doFinally(timing::stop)
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, timing.observation));
+        });
+    }
+
+    // Blocking counterpart of observeTranslation; the caller opens a scope on the returned timing.
+    public RequestTiming startTranslation() {
+        Observation parent = observationRegistry.getCurrentObservation();
+        return startTranslation(stage(parent, "translation", "none", "nlweb translate").start());
+    }
+
+    private RequestTiming startTranslation(Observation observation) {
+        return new RequestTiming(translationTimers, "nlweb.translation",
+                "Translation of a query into an MCP command by NLWeb", observation);
+    }
+
+    /**
+     * Trace id of the request observed in this Reactor context, or null when there is none or tracing is off.
+     * Lets ids we make up, like those of error responses, be looked up in the tracing backend.
+     */
+    public static String traceId(ContextView context) {
+        Observation observation = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        if (observation == null) {
+            return null;
+        }
+        TracingObservationHandler.TracingContext tracing =
+                observation.getContextView().get(TracingObservationHandler.TracingContext.class);
+        return tracing != null && tracing.getSpan() != null ? tracing.getSpan().context().traceId() : null;
+    }
+
+    // The parent is the stage observed further down the chain or, at the top, the server request on this thread.
+    private Observation startStage(ContextView context, String stage, String command, String spanName) {
+        Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        return stage(parent != null ? parent : observationRegistry.getCurrentObservation(), stage, command, spanName).start();
+    }
+
+    private Observation stage(Observation parent, String stage, String command, String spanName) {
+        return Observation.createNotStarted(STAGE_OBSERVATION, observationRegistry)
+                .contextualName(spanName)
+                .lowCardinalityKeyValue("stage", stage)
+                .lowCardinalityKeyValue("command", command)
+                .parentObservation(parent);
+    }
+
+    public void streamOpened() {
+        openStreams.incrementAndGet();
+    }
+
+    public void streamClosed() {
+        openStreams.decrementAndGet();
+    }
+
+    // Counts calls that joined an identical call already in flight instead of starting their own.
+    public Counter coalesced(String stage) {
+        return Counter.builder("nlweb.coalesced")
+                .description("Calls served by an identical call already in flight")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    static String actionTag(String action) {
+        if (action == null) {
+            return "none";
+        }
+        String normalized = action.toLowerCase(Locale.ROOT);
+        return KNOWN_ACTIONS.contains(normalized) ? normalized : "other";
+    }
+
+    private static String outcomeOf(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+    }
+
+    private static final class CommandMeters {
+        private final Timer firstEvent;
+        private final Timer success;
+        private final Timer error;
+        private final Timer cancelled;
+        private final DistributionSummary events;
+
+        private CommandMeters(MeterRegistry registry, String command) {
+            this.firstEvent = Timer.builder("mcp.command.first.event")
+                    .description("Time from sending an MCP command to its first response event")
+                    .tag("command", command)
+                    .register(registry);
+            this.success = duration(registry, command, "success");
+            this.error = duration(registry, command, "error");
+            this.cancelled = duration(registry, command, "cancelled");
+            this.events = DistributionSummary.builder("mcp.command.events")
+                    .description("Response events per MCP command")
+                    .tag("command", command)
+                    .register(registry);
+        }
+
+        private static Timer duration(MeterRegistry registry, String command, String outcome) {
+            return Timer.builder("mcp.command.duration")
+                    .description("Time from sending an MCP command until its response stream ends")
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        private Timer duration(SignalType signal) {
+            return switch (signal) {
+                case ON_COMPLETE -> success;
+                case ON_ERROR -> error;
+                default -> cancelled;
+            };
+        }
+    }
+
+    private final class CommandTiming {
+        private final CommandMeters meters;
+        private final Observation observation;
+        private final long startNanos = System.nanoTime();
+        private long events; // Reactive Streams serializes onNext, so a plain field is enough.
+
+        private CommandTiming(CommandMeters meters, Observation observation) {
+            this.meters = meters;
+            this.observation = observation;
+        }
+
+        private void onEvent() {
+            if (events++ == 0) {
+                meters.firstEvent.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void finish(SignalType signal) {
+            inFlightCommands.decrementAndGet();
+            meters.duration(signal).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            meters.events.record(events);
+            observation.highCardinalityKeyValue("mcp.events", Long.toString(events)).stop();
+        }
+    }
+
+    /**
+     * Timing of one translation or request. The action tag is only known once NLWeb has answered, so it is
+     * set along the way and the timer is looked up when the timing stops.
+     */
+    public final class RequestTiming {
+        private final Map<String, Timer> timers;
+        private final String name;
+        private final String description;
+        private final Observation observation;
+        private final long startNanos = System.nanoTime();
+        private volatile String action;
+
+        private RequestTiming(Map<String, Timer> timers, String name, String description, Observation observation) {
+            this.timers = timers;
+            this.name = name;
+            this.description = description;
+            this.observation = observation;
+        }
+
+        public void action(String action) {
+            this.action = action;
+        }
+
+        public Observation.Scope openScope() {
+            return observation.openScope();
+        }
+
+        public void error(Throwable error) {
+            observation.error(error);
+        }
+
+        public void stop() {
+            stop(SignalType.ON_COMPLETE);
+        }
+
+        // An "error" command is a failure even though the stream carrying it completed normally.
+        public void stop(SignalType signal) {
+            String outcome = outcomeOf(signal);
+            if ("success".equals(outcome) && "error".equalsIgnoreCase(action)) {
+                outcome = "error";
+            }
+            record(outcome);
+            observation.highCardinalityKeyValue("nlweb.action", action != null ? action : "none").stop();
+        }
+
+        private void record(String outcome) {
+            String actionTag = actionTag(action);
+            Timer timer = timers.computeIfAbsent(actionTag + '|' + outcome, key -> Timer.builder(name)
+                    .description(description)
+                    .tag("action", actionTag)
+                    .tag("outcome", outcome)
+                    .register(registry));
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
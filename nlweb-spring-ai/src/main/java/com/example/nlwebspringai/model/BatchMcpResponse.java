@@ -0,0 +1,43 @@
+package com.example.nlwebspringai.model;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+
+// One event of a batch stream: an McpResponse tagged with the batch item it belongs to.
+public class BatchMcpResponse {
+    private int index; // Position of the query in the submitted batch
+    private String requestId; // The item's NlWebQueryRequest id, or its index when none was given
+    private McpResponse response;
+
+    public BatchMcpResponse() {
+    }
+
+    public BatchMcpResponse(int index, String requestId, McpResponse response) {
+        this.index = index;
+        this.requestId = requestId;
+        this.response = response;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public McpResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(McpResponse response) {
+        this.response = response;
+    }
+}
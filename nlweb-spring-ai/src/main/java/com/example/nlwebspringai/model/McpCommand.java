@@ -1,11 +1,19 @@
 package com.example.nlwebspringai.model;
 
+import java.util.List;
 import java.util.Map;
 
 public class McpCommand {
     private String action;
     private String target;
     private Map<String, Object> params;
+    private List<McpCommand> steps; // Only set when action is "plan": the ordered commands to run
+
+    public static McpCommand plan(List<McpCommand> steps) {
+        McpCommand plan = new McpCommand("plan", null, null);
+        plan.setSteps(steps);
+        return plan;
+    }
 
     public McpCommand() {
     }
@@ -16,6 +24,11 @@ public class McpCommand {
         this.params = params;
     }
 
+    // Typing, or a plan with a typing step: the params, and usually the query, contain what the user typed.
+    public boolean typesText() {
+        return "type".equalsIgnoreCase(action) || (steps != null && steps.stream().anyMatch(McpCommand::typesText));
+    }
+
     public String getAction() {
         return action;
     }
@@ -39,4 +52,12 @@ public class McpCommand {
     public void setParams(Map<String, Object> params) {
         this.params = params;
     }
+
+    public List<McpCommand> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<McpCommand> steps) {
+        this.steps = steps;
+    }
 }
@@ -1,7 +1,10 @@
 package com.example.nlwebspringai.model;
 
+import java.util.List;
+
 public class NlWebMcpResponse {
     private McpCommand mcpCommand;
+    private List<McpCommand> plan; // Multi-step answer; takes precedence over mcpCommand when non-empty
 
     public NlWebMcpResponse() {
     }
@@ -17,4 +20,20 @@ public class NlWebMcpResponse {
     public void setMcpCommand(McpCommand mcpCommand) {
         this.mcpCommand = mcpCommand;
     }
+
+    public List<McpCommand> getPlan() {
+        return plan;
+    }
+
+    public void setPlan(List<McpCommand> plan) {
+        this.plan = plan;
+    }
+
+    // The command to execute: a "plan" command when NLWeb returned several steps, otherwise the single command.
+    public McpCommand toCommand() {
+        if (plan != null && !plan.isEmpty()) {
+            return McpCommand.plan(plan);
+        }
+        return mcpCommand;
+    }
 }
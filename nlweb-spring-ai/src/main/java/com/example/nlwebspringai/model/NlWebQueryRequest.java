@@ -2,6 +2,9 @@ package com.example.nlwebspringai.model;
 
 public class NlWebQueryRequest {
     private String query;
+    private String id; // Optional client-side tag, echoed back on batch responses
+    private String sessionId; // Optional browser session affinity key; requests with the same id share page state
+    private Boolean snapshotDelta; // Optional; true answers snapshots with a "snapshot_delta" against the session's previous one
 
     public NlWebQueryRequest() {
     }
@@ -17,4 +20,28 @@ public class NlWebQueryRequest {
     public void setQuery(String query) {
         this.query = query;
     }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Boolean getSnapshotDelta() {
+        return snapshotDelta;
+    }
+
+    public void setSnapshotDelta(Boolean snapshotDelta) {
+        this.snapshotDelta = snapshotDelta;
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.nlwebspringai.recording;
+
+import java.util.List;
+
+/**
+ * Outcome of replaying a session log: requests replayed, requests skipped because translation had failed when
+ * they were recorded, and every request whose responses differ from the recorded ones.
+ */
+public record ReplayReport(String recording, int replayed, int skipped, long durationMillis, List<Divergence> divergences) {
+
+    // index is the request's position in the log, in the order the requests were started.
+    public record Divergence(int index, String query, String reason) {
+    }
+}
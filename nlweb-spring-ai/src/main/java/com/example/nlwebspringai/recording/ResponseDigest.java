@@ -0,0 +1,54 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStreamDecoder;
+import com.example.nlwebspringai.mcp.snapshot.StringPool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * The part of a response's data that a replay compares, as a short hash, so that a session log holds neither
+ * whole snapshots nor text they may contain. What differs between two runs of the same session is left out:
+ * a snapshot counts by its page structure only (see
+ * {@link com.example.nlwebspringai.mcp.snapshot.CompactAccessibilityTree#fingerprint()}), any other data
+ * without its {@code version}, and a {@code snapshot_delta}, which depends on the snapshot before it, not at all.
+ */
+final class ResponseDigest {
+
+    private static final SnapshotStreamDecoder DECODER = new SnapshotStreamDecoder();
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ResponseDigest() {
+    }
+
+    // Null if there is nothing to compare.
+    static String of(McpResponse response) {
+        JsonNode data = response.getData();
+        if (data == null || data.isNull() || "snapshot_delta".equals(response.getType())) {
+            return null;
+        }
+        if ("snapshot".equals(response.getType()) && data.path("accessibleTree").isArray()) {
+            try {
+                long fingerprint = DECODER.decodeTree(data.get("accessibleTree").traverse(), null, null, new StringPool()).fingerprint();
+                return "page:" + Long.toHexString(fingerprint);
+            } catch (IOException e) {
+                // Not a tree after all; compare it like any other data.
+            }
+        }
+        if (data instanceof ObjectNode object && object.has("version")) {
+            ObjectNode unversioned = object.objectNode();
+            unversioned.setAll(object);
+            unversioned.remove("version");
+            data = unversioned;
+        }
+        long hash = FNV_OFFSET;
+        String json = data.toString();
+        for (int i = 0; i < json.length(); i++) {
+            hash = (hash ^ json.charAt(i)) * FNV_PRIME;
+        }
+        return Long.toHexString(hash);
+    }
+}
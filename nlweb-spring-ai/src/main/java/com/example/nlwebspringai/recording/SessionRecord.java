@@ -0,0 +1,24 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.model.McpCommand;
+
+import java.util.List;
+
+/**
+ * One recorded {@code /process-nl} request: one line of a session log. {@code at} is the epoch millisecond the
+ * command started, each response's {@code offset} is in milliseconds from then, and {@code outcome} is
+ * {@code complete}, {@code error} or {@code cancel}. {@code redacted} is set when the typed text was left out of
+ * the query and the command.
+ */
+public record SessionRecord(long at, String sessionId, String query, McpCommand command, boolean redacted,
+                            List<RecordedResponse> responses, String outcome) {
+
+    // What a replay compares: the type, the error and a ResponseDigest of the data, not the data itself.
+    public record RecordedResponse(long offset, String type, String error, String digest) {
+
+        static RecordedResponse of(long offset, McpResponse response) {
+            return new RecordedResponse(offset, response.getType(), response.getError(), ResponseDigest.of(response));
+        }
+    }
+}
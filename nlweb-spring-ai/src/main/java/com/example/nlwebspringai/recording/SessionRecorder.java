@@ -0,0 +1,145 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.model.McpCommand;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends every translated {@code /process-nl} request to a session log when {@code nlweb.recording.enabled}
+ * is set: the query, the {@link McpCommand} it was translated to and, for each {@link McpResponse}, what
+ * {@link SessionReplayer} compares (type, error and a {@link ResponseDigest} of the data), one
+ * {@link SessionRecord} per line of JSON (null fields left out). Unless {@code redact-text} is off, the query
+ * and the typed text of a command that types are recorded as their length only. A record is written when its
+ * stream ends, off the request's thread, so recording never slows a response down.
+ */
+@Component
+public class SessionRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRecorder.class);
+
+    private final boolean enabled;
+    private final Path file;
+    private final boolean redactText;
+    private final ObjectMapper objectMapper;
+    private BufferedWriter writer;
+
+    public SessionRecorder(@Value("${nlweb.recording.enabled:false}") boolean enabled,
+                           @Value("${nlweb.recording.dir:recordings}") Path dir,
+                           @Value("${nlweb.recording.file:session.ndjson}") String file,
+                           @Value("${nlweb.recording.redact-text:true}") boolean redactText,
+                           ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.file = dir.resolve(file);
+        this.redactText = redactText;
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        if (enabled) {
+            logger.info("Recording translated requests to {}", this.file.toAbsolutePath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Flux<McpResponse> record(String query, McpCommand command, Flux<McpResponse> responses) {
+        if (!enabled) {
+            return responses;
+        }
+        return Flux.deferContextual(context -> {
+            long at = System.currentTimeMillis();
+            List<TimedResponse> seen = Collections.synchronizedList(new ArrayList<>());
+            return responses
+                    .doOnNext(response -> seen.add(new TimedResponse(System.currentTimeMillis() - at, response)))
+                    .doFinally(signal -> {
+                        String outcome = signal == SignalType.ON_COMPLETE ? "complete"
+                                : signal == SignalType.ON_ERROR ? "error" : "cancel";
+                        append(at, McpSessionContext.sessionId(context), query, command, List.copyOf(seen), outcome);
+                    });
+        });
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    // Digests and redaction are worked out off the request's thread too.
+    private void append(long at, String sessionId, String query, McpCommand command, List<TimedResponse> responses, String outcome) {
+        boolean redact = redactText && command != null && command.typesText();
+        String recordedQuery = redact ? redacted(query) : query;
+        Mono.fromRunnable(() -> write(new SessionRecord(at, sessionId, recordedQuery, redact ? redacted(command) : command, redact,
+                        responses.stream().map(timed -> SessionRecord.RecordedResponse.of(timed.offset(), timed.response())).toList(),
+                        outcome)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> logger.warn("Could not record query '{}' to {}: {}", recordedQuery, file, e.toString()));
+    }
+
+    // A copy; the live command is still being executed.
+    private static McpCommand redacted(McpCommand command) {
+        Map<String, Object> params = command.getParams();
+        if (params != null && params.get("text") instanceof String text) {
+            params = new HashMap<>(params);
+            params.put("text", redacted(text));
+        }
+        McpCommand copy = new McpCommand(command.getAction(), command.getTarget(), params);
+        if (command.getSteps() != null) {
+            copy.setSteps(command.getSteps().stream().map(SessionRecorder::redacted).toList());
+        }
+        return copy;
+    }
+
+    private static String redacted(String text) {
+        return text != null ? "[redacted " + text.length() + " chars]" : null;
+    }
+
+    private record TimedResponse(long offset, McpResponse response) {
+    }
+
+    private synchronized void write(SessionRecord record) {
+        try {
+            String line = objectMapper.writeValueAsString(record);
+            if (writer == null) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize record", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.service.OrchestrationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Plays a session log written by {@link SessionRecorder} back against Playwright-MCP. The recorded commands are
+ * executed as they are, so nothing is translated, and the responses are compared with the recorded ones by type,
+ * error and {@link ResponseDigest}, which leaves out response ids, snapshot versions and snapshot content other
+ * than the page structure. Requests run one after another; with a {@code speed} above 0 they keep the recorded
+ * spacing, compressed by that factor (2 is twice as fast), and with 0 they run back to back.
+ * <p>
+ * Requests of one recorded session share a browser session during the replay, distinct from any live one.
+ * A request that was cancelled while recording is only compared up to its last recorded response. Requests whose
+ * typed text was redacted can't be repeated and are skipped, like those that failed translation.
+ */
+@Service
+public class SessionReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionReplayer.class);
+
+    // Logs are named, not addressed by path, so a replay can't read files outside nlweb.recording.dir.
+    private static final Pattern RECORDING_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+    private final OrchestrationService orchestrationService;
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final Counter divergences;
+
+    public SessionReplayer(OrchestrationService orchestrationService, ObjectMapper objectMapper,
+                           @Value("${nlweb.recording.dir:recordings}") Path dir, MeterRegistry meterRegistry) {
+        this.orchestrationService = orchestrationService;
+        this.objectMapper = objectMapper;
+        this.dir = dir;
+        this.divergences = Counter.builder("nlweb.replay.divergences")
+                .description("Replayed requests whose responses differ from the recorded ones")
+                .register(meterRegistry);
+    }
+
+    public Mono<ReplayReport> replay(String recording, double speed) {
+        if (recording == null || !RECORDING_NAME.matcher(recording).matches()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid recording name: " + recording));
+        }
+        Path file = dir.resolve(recording);
+        return Mono.fromCallable(() -> read(file))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(NoSuchFileException.class,
+                        e -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No recording named " + recording))
+                .flatMap(records -> replay(recording, records, speed));
+    }
+
+    Mono<ReplayReport> replay(String recording, List<SessionRecord> records, double speed) {
+        List<SessionRecord> ordered = records.stream().sorted(Comparator.comparingLong(SessionRecord::at)).toList();
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            long firstAt = ordered.isEmpty() ? 0 : ordered.get(0).at();
+            AtomicInteger skipped = new AtomicInteger();
+            logger.info("Replaying {} recorded requests from {} at speed {}", ordered.size(), recording, speed);
+            return Flux.range(0, ordered.size())
+                    .concatMap(index -> {
+                        SessionRecord record = ordered.get(index);
+                        if (record.command() == null || "error".equalsIgnoreCase(record.command().getAction()) || record.redacted()) {
+                            skipped.incrementAndGet();
+                            return Mono.empty();
+                        }
+                        // Measured from the start of the replay, so time spent executing is not added to the gaps.
+                        long dueNanos = speed > 0 ? (long) ((record.at() - firstAt) * 1_000_000 / speed) : 0;
+                        return Mono.delay(Duration.ofNanos(Math.max(0, dueNanos - (System.nanoTime() - startNanos))))
+                                .then(replay(index, record));
+                    })
+                    .collectList()
+                    .map(diverged -> {
+                        int replayed = ordered.size() - skipped.get();
+                        logger.info("Replay of {} finished: {} replayed, {} skipped, {} diverged", recording,
+                                replayed, skipped.get(), diverged.size());
+                        return new ReplayReport(recording, replayed, skipped.get(),
+                                Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), diverged);
+                    });
+        });
+    }
+
+    private Mono<ReplayReport.Divergence> replay(int index, SessionRecord record) {
+        return orchestrationService.execute(record.command())
+                .collectList()
+                .flatMap(actual -> Mono.justOrEmpty(compare(record.responses(), actual, "cancel".equals(record.outcome()))))
+                .onErrorResume(e -> Mono.just("replay failed: " + e.getMessage()))
+                .map(reason -> {
+                    divergences.increment();
+                    logger.warn("Replayed request {} ('{}') diverged: {}", index, record.query(), reason);
+                    return new ReplayReport.Divergence(index, record.query(), reason);
+                })
+                .contextWrite(McpSessionContext.withSessionId("replay-" + record.sessionId()));
+    }
+
+    // The first difference between the recorded and the replayed stream, if any.
+    static Optional<String> compare(List<SessionRecord.RecordedResponse> recorded, List<McpResponse> actual, boolean truncated) {
+        int common = Math.min(recorded.size(), actual.size());
+        for (int i = 0; i < common; i++) {
+            SessionRecord.RecordedResponse expected = recorded.get(i);
+            McpResponse replayed = actual.get(i);
+            if (!Objects.equals(expected.type(), replayed.getType())) {
+                return Optional.of("response " + i + " is '" + replayed.getType() + "', recorded '" + expected.type() + "'");
+            }
+            if (!Objects.equals(expected.error(), replayed.getError())) {
+                return Optional.of("response " + i + " has error '" + replayed.getError() + "', recorded '" + expected.error() + "'");
+            }
+            if (!Objects.equals(expected.digest(), ResponseDigest.of(replayed))) {
+                return Optional.of("response " + i + " ('" + replayed.getType() + "') has different data");
+            }
+        }
+        if (actual.size() < recorded.size() || (actual.size() > recorded.size() && !truncated)) {
+            return Optional.of(actual.size() + " responses, recorded " + recorded.size());
+        }
+        return Optional.empty();
+    }
+
+    private List<SessionRecord> read(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.filter(line -> !line.isBlank())
+                    .map(line -> {
+                        try {
+                            return objectMapper.readValue(line, SessionRecord.class);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.nlwebspringai.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-based circuit breaker for calls to one backend.
+ * <p>
+ * While closed, the outcomes of the last {@code sliding-window-size} calls are kept; once at least
+ * {@code minimum-calls} are recorded and the share of failures reaches {@code failure-rate-threshold}, the breaker
+ * opens and calls fail at once with {@link CircuitOpenException}. After {@code open-duration} it lets
+ * {@code half-open-calls} probes through: if they all succeed it closes, and the first failure opens it again.
+ * <p>
+ * Failures are errors that say something about the backend's health: 4xx responses and the breaker's own
+ * rejections are not counted. A call that is cancelled before its outcome is known is not recorded.
+ */
+public class CircuitBreaker implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public record Settings(double failureRateThreshold, int slidingWindowSize, int minimumCalls, Duration openDuration,
+                           int halfOpenCalls) {
+
+        public Settings {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("failure-rate-threshold must be in (0, 1]");
+            }
+            if (slidingWindowSize < 1 || minimumCalls < 1 || minimumCalls > slidingWindowSize || halfOpenCalls < 1) {
+                throw new IllegalArgumentException("Circuit breaker window, minimum-calls and half-open-calls must be positive, minimum-calls <= window");
+            }
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final boolean[] failures;
+    private final AtomicLong rejected = new AtomicLong();
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failureCount;
+    private long openedAtNanos;
+    private int probesLeft;
+    private int probeSuccesses;
+
+    public CircuitBreaker(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.failures = new boolean[settings.slidingWindowSize()];
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(new CircuitOpenException(name));
+            }
+            return call.doOnSuccess(value -> onSuccess())
+                    .doOnError(this::onError)
+                    .doOnCancel(this::releasePermission);
+        });
+    }
+
+    // A stream counts as a success once it delivers its first event; later errors are the stream's, not the backend's.
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Flux.error(new CircuitOpenException(name));
+            }
+            AtomicBoolean settled = new AtomicBoolean();
+            return call.doOnNext(event -> {
+                        if (settled.compareAndSet(false, true)) {
+                            onSuccess();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            onSuccess();
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (settled.compareAndSet(false, true)) {
+                            onError(error);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            releasePermission();
+                        }
+                    });
+        });
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= settings.openDuration().toNanos()) {
+            logger.info("Circuit breaker {} half-open, letting {} probe calls through", name, settings.halfOpenCalls());
+            state = State.HALF_OPEN;
+            probesLeft = settings.halfOpenCalls();
+            probeSuccesses = 0;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && probesLeft > 0) {
+            probesLeft--;
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probeSuccesses >= settings.halfOpenCalls()) {
+                logger.info("Circuit breaker {} closed", name);
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                failureCount = 0;
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onError(Throwable error) {
+        if (!isFailure(error)) {
+            onSuccess();
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open("probe failed: " + error);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= settings.minimumCalls() && failureCount >= settings.failureRateThreshold() * recorded) {
+                open(failureCount + " of the last " + recorded + " calls failed");
+            }
+        }
+    }
+
+    // For a permitted call that ended without an outcome, so a half-open probe slot is not lost.
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probeSuccesses + probesLeft < settings.halfOpenCalls()) {
+            probesLeft++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nlweb.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("nlweb.circuit.rejected", rejected, AtomicLong::get)
+                .description("Calls failed fast by an open circuit breaker")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failures.length) {
+            failureCount -= failures[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failures[next] = failure;
+        failureCount += failure ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private void open(String reason) {
+        logger.warn("Circuit breaker {} opened for {}: {}", name, settings.openDuration(), reason);
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+    }
+
+    static boolean isFailure(Throwable error) {
+        if (error instanceof CircuitOpenException) {
+            return false;
+        }
+        if (error instanceof WebClientResponseException response) {
+            return !response.getStatusCode().is4xxClientError();
+        }
+        return !(error instanceof HttpClientErrorException);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.nlwebspringai.resilience;
+
+// A call failed fast because the backend's circuit breaker is open.
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String name) {
+        super("Circuit breaker " + name + " is open");
+    }
+}
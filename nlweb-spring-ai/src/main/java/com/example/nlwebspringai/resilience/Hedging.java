@@ -0,0 +1,129 @@
+package com.example.nlwebspringai.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests for an idempotent call: when the call has not answered within the {@code percentile} of recent
+ * latencies, a second identical call is sent and whichever answers first wins; the other is cancelled.
+ * <p>
+ * The hedge delay is never below {@code min-delay}, and nothing is hedged until {@code min-samples} latencies
+ * are known. Each call earns {@code budget} of a hedge, so at most that share of calls is ever sent twice, which
+ * keeps a backend that is slow for everyone from receiving twice the load.
+ */
+public class Hedging implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(Hedging.class);
+
+    private static final int WINDOW = 256;
+    private static final int RECOMPUTE_EVERY = 16;
+    private static final double MAX_TOKENS = 10;
+
+    public record Settings(double percentile, Duration minDelay, int minSamples, double budget) {
+
+        public Settings {
+            if (percentile <= 0 || percentile >= 1 || budget < 0 || minSamples < 1 || minSamples > WINDOW) {
+                throw new IllegalArgumentException("Hedging needs 0 < percentile < 1, budget >= 0 and 1 <= min-samples <= " + WINDOW);
+            }
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final long[] latencies = new long[WINDOW];
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private int samples;
+    private int next;
+    private long delayNanos = -1;
+    private double tokens;
+
+    public Hedging(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Duration delay = earnAndGetDelay();
+            if (delay == null) {
+                return timed(call.get());
+            }
+            // Optional, so an empty answer still counts as an answer for firstWithValue.
+            Mono<Optional<T>> primary = timed(call.get()).map(Optional::of).defaultIfEmpty(Optional.empty());
+            Mono<Optional<T>> second = Mono.delay(delay)
+                    .filter(tick -> trySpendHedge())
+                    .flatMap(tick -> {
+                        logger.debug("Hedging {} call after {} ms", name, delay.toMillis());
+                        return timed(call.get()).map(Optional::of).defaultIfEmpty(Optional.empty())
+                                .doOnNext(answer -> hedgesWon.incrementAndGet());
+                    });
+            return Mono.firstWithValue(primary, second)
+                    // Both failed: surface the first call's failure, not firstWithValue's wrapper.
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> e.getCause() != null ? Exceptions.unwrapMultiple(e.getCause()).get(0) : e)
+                    .flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    public synchronized Duration currentDelay() {
+        return delayNanos < 0 ? null : Duration.ofNanos(delayNanos);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nlweb.hedge.sent", hedged, AtomicLong::get)
+                .description("Hedged calls sent because the first call was slower than the hedge delay")
+                .tag("name", name)
+                .register(registry);
+        FunctionCounter.builder("nlweb.hedge.won", hedgesWon, AtomicLong::get)
+                .description("Hedged calls that answered before the call they hedged")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(value -> record(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized Duration earnAndGetDelay() {
+        tokens = Math.min(MAX_TOKENS, tokens + settings.budget());
+        return currentDelay();
+    }
+
+    private synchronized boolean trySpendHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        hedged.incrementAndGet();
+        return true;
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % WINDOW;
+        samples = Math.min(samples + 1, WINDOW);
+        if (samples >= settings.minSamples() && (delayNanos < 0 || next % RECOMPUTE_EVERY == 0)) {
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            long percentile = sorted[Math.min(samples - 1, (int) Math.ceil(settings.percentile() * samples) - 1)];
+            delayNanos = Math.max(settings.minDelay().toNanos(), percentile);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.nlwebspringai.service;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.model.BatchMcpResponse;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fans a batch of natural-language queries out through {@link OrchestrationService} with bounded
+ * concurrency. Events are streamed as they arrive, tagged with their batch item; every item ends with an
+ * {@code item_end} event, and a failing item yields an {@code error} event without aborting the batch.
+ */
+@Service
+public class BatchProcessingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchProcessingService.class);
+
+    private final OrchestrationService orchestrationService;
+    private final ObjectMapper objectMapper;
+    private final int maxConcurrency;
+    private final int maxItems;
+
+    public BatchProcessingService(OrchestrationService orchestrationService,
+                                  ObjectMapper objectMapper,
+                                  @Value("${nlweb.batch.max-concurrency:8}") int maxConcurrency,
+                                  @Value("${nlweb.batch.max-items:10000}") int maxItems) {
+        this.orchestrationService = orchestrationService;
+        this.objectMapper = objectMapper;
+        this.maxConcurrency = maxConcurrency;
+        this.maxItems = maxItems;
+    }
+
+    public Flux<BatchMcpResponse> processBatch(List<NlWebQueryRequest> requests) {
+        return process(requests, Map.of());
+    }
+
+    // One JSON object per line; blank lines are skipped and malformed ones fail only their own item.
+    public Flux<BatchMcpResponse> processNdjsonBatch(String body) {
+        List<NlWebQueryRequest> requests = new ArrayList<>();
+        Map<Integer, String> invalidLines = new HashMap<>();
+        for (String line : body.split("\\R")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                requests.add(objectMapper.readValue(line, NlWebQueryRequest.class));
+            } catch (JsonProcessingException e) {
+                invalidLines.put(requests.size(), "Invalid batch line: " + e.getOriginalMessage());
+                requests.add(null);
+            }
+        }
+        return process(requests, invalidLines);
+    }
+
+    private Flux<BatchMcpResponse> process(List<NlWebQueryRequest> requests, Map<Integer, String> invalidLines) {
+        if (requests.size() > maxItems) {
+            return Flux.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch of " + requests.size() + " queries exceeds the limit of " + maxItems + "."));
+        }
+        logger.info("BatchProcessingService: Processing batch of {} queries with concurrency {}", requests.size(), maxConcurrency);
+        return Flux.range(0, requests.size())
+                .flatMap(index -> processItem(index, requests.get(index), invalidLines.get(index)), maxConcurrency);
+    }
+
+    private Flux<BatchMcpResponse> processItem(int index, NlWebQueryRequest request, String invalidReason) {
+        String requestId = request != null && request.getId() != null ? request.getId() : String.valueOf(index);
+        if (invalidReason != null) {
+            return Flux.just(
+                    new BatchMcpResponse(index, requestId, errorResponse(requestId, invalidReason)),
+                    new BatchMcpResponse(index, requestId, itemEnd(requestId)));
+        }
+        if (request == null || request.getQuery() == null || request.getQuery().trim().isEmpty()) {
+            return Flux.just(
+                    new BatchMcpResponse(index, requestId, errorResponse(requestId, "Query cannot be null or empty.")),
+                    new BatchMcpResponse(index, requestId, itemEnd(requestId)));
+        }
+        return Flux.defer(() -> orchestrationService.processNaturalLanguageCommand(request.getQuery()))
+                .onErrorResume(e -> {
+                    logger.warn("BatchProcessingService: Item {} failed for query '{}': {}", requestId, request.getQuery(), e.getMessage());
+                    return Flux.just(errorResponse(requestId, "Failed to process query: " + e.getMessage()));
+                })
+                .concatWith(Mono.fromCallable(() -> itemEnd(requestId)))
+                .map(response -> new BatchMcpResponse(index, requestId, response))
+                .contextWrite(McpSessionContext.withSnapshotDelta(request.getSnapshotDelta()))
+                .contextWrite(McpSessionContext.withSessionId(request.getSessionId()));
+    }
+
+    private static McpResponse errorResponse(String requestId, String message) {
+        McpResponse errorResponse = new McpResponse();
+        errorResponse.setId("error-batch-" + requestId);
+        errorResponse.setType("error");
+        errorResponse.setError(message);
+        return errorResponse;
+    }
+
+    private static McpResponse itemEnd(String requestId) {
+        McpResponse end = new McpResponse();
+        end.setId(requestId);
+        end.setType("item_end");
+        return end;
+    }
+}
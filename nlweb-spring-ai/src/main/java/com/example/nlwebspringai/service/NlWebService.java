@@ -1,11 +1,22 @@
 package com.example.nlwebspringai.service;
 
+import com.example.nlwebspringai.cache.QueryNormalizer;
+import com.example.nlwebspringai.cache.SingleFlight;
+import com.example.nlwebspringai.cache.TranslationCache;
 import com.example.nlwebspringai.client.NlWebClient;
+import com.example.nlwebspringai.client.ReactiveNlWebClient;
+import com.example.nlwebspringai.intent.FastPath;
+import com.example.nlwebspringai.limit.AdaptiveLimit;
+import com.example.nlwebspringai.limit.LimitExceededException;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
 import com.example.nlwebspringai.model.McpCommand;
 import com.example.nlwebspringai.model.NlWebQueryRequest;
+import io.micrometer.observation.Observation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 @Service
 public class NlWebService {
@@ -13,21 +24,65 @@ public class NlWebService {
     private static final Logger logger = LoggerFactory.getLogger(NlWebService.class);
 
     private final NlWebClient nlWebClient;
+    private final ReactiveNlWebClient reactiveNlWebClient;
+    private final FastPath fastPath;
+    private final TranslationCache translationCache;
+    private final PipelineMetrics pipelineMetrics;
+    // Identical queries arriving together share one NLWeb call, keyed like the translation cache.
+    private final SingleFlight<String, McpCommand> translations;
+    private final AdaptiveLimit translationLimit;
 
-    public NlWebService(NlWebClient nlWebClient) {
+    public NlWebService(NlWebClient nlWebClient, ReactiveNlWebClient reactiveNlWebClient, FastPath fastPath,
+                        TranslationCache translationCache, PipelineMetrics pipelineMetrics,
+                        @Qualifier("translationLimit") AdaptiveLimit translationLimit) {
         this.nlWebClient = nlWebClient;
+        this.reactiveNlWebClient = reactiveNlWebClient;
+        this.fastPath = fastPath;
+        this.translationCache = translationCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.translations = new SingleFlight<>(pipelineMetrics.coalesced("translation"));
+        this.translationLimit = translationLimit;
     }
 
     public McpCommand processQuery(String query) {
+        PipelineMetrics.RequestTiming timing = pipelineMetrics.startTranslation();
+        McpCommand command;
+        // The scope makes the translation the parent of the RestTemplate call to NLWeb.
+        try (Observation.Scope scope = timing.openScope()) {
+            command = translate(query);
+        }
+        timing.action(command.getAction());
+        timing.stop();
+        return command;
+    }
+
+    private McpCommand translate(String query) {
         if (query == null || query.trim().isEmpty()) {
             logger.warn("Received null or empty query.");
             return createErrorCommand("Query cannot be null or empty.");
         }
 
+        McpCommand matched = fastPath.match(query);
+        if (matched != null) {
+            logger.info("Fast path matched query: {} -> {}", query, matched.getAction());
+            return matched;
+        }
+
         NlWebQueryRequest request = new NlWebQueryRequest(query);
         try {
-            logger.info("Processing query: {}", query);
-            McpCommand command = nlWebClient.translateNaturalLanguageToMcp(request);
+            McpCommand cached = translationCache.get(query);
+            if (cached != null) {
+                logger.info("Translation cache hit for query: {}", query);
+                return cached;
+            }
+            McpCommand command = translations.execute(QueryNormalizer.normalize(query), () -> translationLimit.run(Mono.fromCallable(() -> {
+                logger.info("Processing query: {}", query);
+                McpCommand translated = nlWebClient.translateNaturalLanguageToMcp(request);
+                if (translated != null) {
+                    translationCache.put(query, translated);
+                }
+                return translated;
+            }))).block();
             if (command == null) {
                 logger.warn("NLWebClient returned null command for query: {}", query);
                 return createErrorCommand("Failed to translate query to MCP command: client returned null.");
@@ -40,6 +95,40 @@ public class NlWebService {
         }
     }
 
+    // Non-blocking counterpart of processQuery: failures surface as an "error" command, except LimitExceededException.
+    public Mono<McpCommand> processQueryReactive(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            logger.warn("Received null or empty query.");
+            return Mono.just(createErrorCommand("Query cannot be null or empty."));
+        }
+
+        NlWebQueryRequest request = new NlWebQueryRequest(query);
+        Mono<McpCommand> translation = translations.execute(QueryNormalizer.normalize(query),
+                () -> translationLimit.run(Mono.defer(() -> reactiveNlWebClient.translateNaturalLanguageToMcp(request)))
+                        .doOnSubscribe(subscription -> logger.info("Processing query: {}", query))
+                        .doOnNext(command -> {
+                            logger.info("Successfully processed query and received command: {} for target {}", command.getAction(), command.getTarget());
+                            translationCache.put(query, command);
+                        }));
+        // Unambiguous queries are translated locally, ahead of the cache, whose semantic tier may call out.
+        Mono<McpCommand> result = Mono.fromSupplier(() -> fastPath.match(query))
+                .doOnNext(command -> logger.info("Fast path matched query: {} -> {}", query, command.getAction()))
+                .switchIfEmpty(translationCache.lookup(query)
+                        .doOnNext(command -> logger.info("Translation cache hit for query: {}", query)))
+                .switchIfEmpty(translation)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    logger.warn("ReactiveNlWebClient returned no command for query: {}", query);
+                    return createErrorCommand("Failed to translate query to MCP command: client returned null.");
+                }))
+                // Shed requests are reported to the client as such, not as a failed translation.
+                .onErrorResume(e -> !(e instanceof LimitExceededException), e -> {
+                    logger.error("Exception during query processing for query: {}", query, e);
+                    return Mono.just(createErrorCommand("Error processing query: " + e.getMessage()));
+                });
+        return pipelineMetrics.observeTranslation(timing -> result
+                .doOnNext(command -> timing.action(command.getAction())));
+    }
+
     private McpCommand createErrorCommand(String errorMessage) {
         McpCommand errorCommand = new McpCommand();
         errorCommand.setAction("error");
@@ -1,50 +1,131 @@
 package com.example.nlwebspringai.service;
 
+import com.example.nlwebspringai.cache.PageCommandMemo;
+import com.example.nlwebspringai.journal.EventJournal;
+import com.example.nlwebspringai.journal.JournalEvent;
+import com.example.nlwebspringai.limit.AdaptiveLimit;
 import com.example.nlwebspringai.mcp.model.McpResponse;
 import com.example.nlwebspringai.mcp.service.PlaywrightMcpService;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotIndex;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
 import com.example.nlwebspringai.model.McpCommand; // This is our NlWebMcpCommand equivalent
+import com.example.nlwebspringai.recording.SessionRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrchestrationService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrchestrationService.class);
 
+    // Steps that don't change page state; they may be sent before the preceding step has finished.
+    private static final Set<String> READ_ONLY_ACTIONS = Set.of("snapshot", "wait");
+    private static final int PLAN_PIPELINE_DEPTH = 4;
+
     private final NlWebService nlWebService;
     private final PlaywrightMcpService playwrightMcpService;
+    private final PipelineMetrics pipelineMetrics;
+    private final AdaptiveLimit mcpLimit;
+    private final SessionRecorder sessionRecorder;
+    private final PageCommandMemo commandMemo;
+    private final EventJournal eventJournal;
 
-    public OrchestrationService(NlWebService nlWebService, PlaywrightMcpService playwrightMcpService) {
+    public OrchestrationService(NlWebService nlWebService, PlaywrightMcpService playwrightMcpService, PipelineMetrics pipelineMetrics,
+                                @Qualifier("mcpLimit") AdaptiveLimit mcpLimit, SessionRecorder sessionRecorder,
+                                PageCommandMemo commandMemo, EventJournal eventJournal) {
         this.nlWebService = nlWebService;
         this.playwrightMcpService = playwrightMcpService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.mcpLimit = mcpLimit;
+        this.sessionRecorder = sessionRecorder;
+        this.commandMemo = commandMemo;
+        this.eventJournal = eventJournal;
     }
 
     public Flux<McpResponse> processNaturalLanguageCommand(String nlQuery) {
         logger.info("OrchestrationService: Processing natural language query: {}", nlQuery);
 
-        McpCommand nlWebMcpCommand = nlWebService.processQuery(nlQuery);
+        // Translation and execution are composed so no thread is parked while NLWeb is working.
+        Flux<McpResponse> responses = pipelineMetrics.observeRequest(timing -> translate(nlQuery)
+                .switchIfEmpty(Mono.error(() -> {
+                    logger.error("NlWebService returned null for query: {}", nlQuery);
+                    return new IllegalStateException("NLWeb service failed to process the query.");
+                }))
+                .doOnNext(command -> timing.action(command.getAction()))
+                .flatMapMany(command -> Flux.deferContextual(context -> {
+                    eventJournal.record(JournalEvent.Type.TRANSLATED, EventJournal.correlationId(context, null), command.getAction(),
+                            "session", McpSessionContext.sessionId(context),
+                            "query", command.typesText() ? new JournalEvent.Sensitive(nlQuery) : nlQuery,
+                            "target", command.getTarget(), "params", command.getParams());
+                    return sessionRecorder.record(nlQuery, command, limited(command));
+                })));
+        return withSession(responses);
+    }
 
-        if (nlWebMcpCommand == null) {
-            logger.error("NlWebService returned null for query: {}", nlQuery);
-            return Flux.error(new IllegalStateException("NLWeb service failed to process the query."));
-        }
-        
+    // Clicks and typing translated on a page with the same structure as the session's current one are reused.
+    private Mono<McpCommand> translate(String nlQuery) {
+        return playwrightMcpService.currentSnapshotIndex()
+                .map(index -> index.tree().fingerprint())
+                .map(fingerprint -> {
+                    McpCommand memoized = commandMemo.get(nlQuery, fingerprint);
+                    if (memoized != null) {
+                        logger.info("Reusing translation of '{}' made on a page with fingerprint {}", nlQuery, Long.toHexString(fingerprint));
+                        return Mono.just(memoized);
+                    }
+                    return nlWebService.processQueryReactive(nlQuery)
+                            .doOnNext(command -> commandMemo.put(nlQuery, fingerprint, command));
+                })
+                .defaultIfEmpty(Mono.defer(() -> nlWebService.processQueryReactive(nlQuery)))
+                .flatMap(translation -> translation);
+    }
+
+    // Runs an already translated command, e.g. one replayed from a session log.
+    public Flux<McpResponse> execute(McpCommand command) {
+        return withSession(limited(command));
+    }
+
+    // One MCP permit per request, held across all steps of a plan.
+    private Flux<McpResponse> limited(McpCommand command) {
+        return "error".equalsIgnoreCase(command.getAction())
+                ? executeCommand(command)
+                : mcpLimit.run(() -> executeCommand(command));
+    }
+
+    // Every command of one request must reach the same browser session, even when the client sent no session id.
+    // Anonymous requests only get a request-scoped affinity; their snapshots go to the store's default session.
+    // The journal's correlation id ties the request's translation and MCP commands together.
+    private Flux<McpResponse> withSession(Flux<McpResponse> responses) {
+        return responses
+                .contextWrite(McpSessionContext.withRequestAffinity())
+                .contextWrite(eventJournal.correlate());
+    }
+
+    private Flux<McpResponse> executeCommand(McpCommand nlWebMcpCommand) {
         // Handle if NlWebService itself returned an error command
         if ("error".equalsIgnoreCase(nlWebMcpCommand.getAction())) {
             logger.warn("NlWebService returned an error command: {}", nlWebMcpCommand.getParams());
             // Convert this error into a Flux<McpResponse> that signals an error.
             // Or, create a specific McpResponse error object if your client expects that.
              String errorMessage = (String) nlWebMcpCommand.getParams().getOrDefault("errorMessage", "Error from NLWebService");
-             McpResponse errorResponse = new McpResponse();
-             errorResponse.setId("error-nlweb-" + System.currentTimeMillis()); // Generate some ID
-             errorResponse.setType("error");
-             errorResponse.setError(errorMessage);
-            return Flux.just(errorResponse); 
+            return Flux.deferContextual(context -> {
+                // The trace id links the error to the NLWeb call that caused it; without tracing, any unique-ish id will do.
+                String traceId = PipelineMetrics.traceId(context);
+                McpResponse errorResponse = new McpResponse();
+                errorResponse.setId("error-nlweb-" + (traceId != null ? traceId : System.currentTimeMillis()));
+                errorResponse.setType("error");
+                errorResponse.setError(errorMessage);
+                return Flux.just(errorResponse);
+            });
         }
 
 
@@ -55,6 +136,26 @@ public class OrchestrationService {
         logger.info("NLWeb MCP Command: Action={}, Target={}, Params={}", action, target, params);
 
         switch (action.toLowerCase()) {
+            case "plan":
+                return executePlan(nlWebMcpCommand.getSteps());
+            case "wait":
+                Object secondsObj = params != null ? params.get("seconds") : null;
+                double seconds = 1.0; // Default to one second
+                if (secondsObj instanceof Number) {
+                    seconds = ((Number) secondsObj).doubleValue();
+                } else if (secondsObj instanceof String) {
+                    try {
+                        seconds = Double.parseDouble(((String) secondsObj).trim());
+                    } catch (NumberFormatException e) {
+                        seconds = Double.NaN;
+                    }
+                }
+                if (!Double.isFinite(seconds) || seconds < 0) {
+                    logger.error("Wait action called with invalid seconds: {}", secondsObj);
+                    return Flux.error(new IllegalArgumentException("Seconds for wait action must be a non-negative number, got: " + secondsObj));
+                }
+                logger.info("Orchestrating WAIT for {} seconds.", seconds);
+                return playwrightMcpService.waitFor(seconds);
             case "navigate":
                 if (target == null || target.trim().isEmpty()) {
                     logger.error("Navigate action called with null or empty target (URL).");
@@ -66,18 +167,13 @@ public class OrchestrationService {
                 logger.info("Orchestrating SNAPSHOT.");
                 return playwrightMcpService.takeSnapshot();
             case "click":
-                if (target == null || target.trim().isEmpty()) {
-                     logger.error("Click action called with null or empty target (ref).");
-                    return Flux.error(new IllegalArgumentException("Ref for click action cannot be null or empty."));
-                }
                 String clickElementDesc = params != null ? (String) params.get("elementDescription") : "Unknown element";
-                logger.info("Orchestrating CLICK on element with ref: {}, Description: {}", target, clickElementDesc);
-                return playwrightMcpService.clickElement(target, clickElementDesc);
+                return resolveRef("click", target, params != null ? clickElementDesc : null)
+                        .flatMapMany(ref -> {
+                            logger.info("Orchestrating CLICK on element with ref: {}, Description: {}", ref, clickElementDesc);
+                            return playwrightMcpService.clickElement(ref, clickElementDesc);
+                        });
             case "type":
-                if (target == null || target.trim().isEmpty()) {
-                    logger.error("Type action called with null or empty target (ref).");
-                    return Flux.error(new IllegalArgumentException("Ref for type action cannot be null or empty."));
-                }
                 if (params == null) {
                     logger.error("Type action called with null params.");
                     return Flux.error(new IllegalArgumentException("Parameters for type action cannot be null."));
@@ -97,11 +193,94 @@ public class OrchestrationService {
                     return Flux.error(new IllegalArgumentException("Text for type action cannot be null."));
                 }
 
-                logger.info("Orchestrating TYPE in element with ref: {}, Description: {}, Text: '{}', Submit: {}", target, typeElementDesc, textToType, submit);
-                return playwrightMcpService.typeInElement(target, typeElementDesc, textToType, submit);
+                boolean submitText = submit;
+                return resolveRef("type", target, typeElementDesc)
+                        .flatMapMany(ref -> {
+                            logger.info("Orchestrating TYPE in element with ref: {}, Description: {}, Text: {} chars, Submit: {}", ref, typeElementDesc, textToType.length(), submitText);
+                            return playwrightMcpService.typeInElement(ref, typeElementDesc, textToType, submitText);
+                        });
             default:
                 logger.warn("Unknown action received from NLWeb service: {}", action);
                 return Flux.error(new IllegalArgumentException("Unknown action: " + action));
         }
     }
+
+    /**
+     * Picks the ref a click or type acts on. NLWeb's ref is kept while it still exists in the session's latest
+     * snapshot; otherwise, or if NLWeb gave none, the element description is resolved against that snapshot's
+     * index. NLWeb's own ref is the fallback when the description is ambiguous, and NLWeb is asked again only
+     * if there is no ref at all.
+     */
+    private Mono<String> resolveRef(String action, String target, String description) {
+        boolean hasTarget = target != null && !target.trim().isEmpty();
+        if (description == null || description.isBlank()) {
+            if (hasTarget) {
+                return Mono.just(target);
+            }
+            logger.error("{} action called with null or empty target (ref).", action);
+            return Mono.error(new IllegalArgumentException("Ref for " + action + " action cannot be null or empty."));
+        }
+        return playwrightMcpService.currentSnapshotIndex()
+                .flatMap(index -> {
+                    if (hasTarget && index.containsRef(target)) {
+                        return Mono.just(target);
+                    }
+                    SnapshotIndex.ElementMatch match = index.resolve(description);
+                    if (match == null || match.ambiguous()) {
+                        logger.info("Could not resolve '{}' locally (best match: {}).", description, match);
+                        return Mono.empty();
+                    }
+                    logger.info("Resolved '{}' locally to ref {} (score {}).", description, match.ref(), match.score());
+                    return Mono.just(match.ref());
+                })
+                .switchIfEmpty(Mono.defer(() -> hasTarget ? Mono.just(target) : resolveRefWithNlWeb(action, description)));
+    }
+
+    private Mono<String> resolveRefWithNlWeb(String action, String description) {
+        logger.info("Asking NLWeb for the ref of '{}'.", description);
+        return nlWebService.processQueryReactive(action + " " + description)
+                .filter(command -> action.equalsIgnoreCase(command.getAction())
+                        && command.getTarget() != null && !command.getTarget().trim().isEmpty())
+                .map(McpCommand::getTarget)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException(
+                        "Could not resolve element '" + description + "' for " + action + " action.")));
+    }
+
+    /**
+     * Runs a multi-step plan in order and streams every step's responses. Each step that changes the page
+     * starts a new stage; read-only steps that follow it (snapshot, wait) join that stage and, when the MCP
+     * transport preserves command order, are sent without waiting for the previous step to finish. The plan
+     * stops at the first error response.
+     */
+    private Flux<McpResponse> executePlan(List<McpCommand> steps) {
+        if (steps == null || steps.isEmpty()) {
+            logger.error("Plan action called with no steps.");
+            return Flux.error(new IllegalArgumentException("Plan must contain at least one step."));
+        }
+        for (McpCommand step : steps) {
+            if (step == null || step.getAction() == null) {
+                return Flux.error(new IllegalArgumentException("Plan steps must have an action."));
+            }
+            if ("plan".equalsIgnoreCase(step.getAction())) {
+                return Flux.error(new IllegalArgumentException("Nested plans are not supported."));
+            }
+        }
+
+        List<List<McpCommand>> stages = new ArrayList<>();
+        for (McpCommand step : steps) {
+            boolean readOnly = READ_ONLY_ACTIONS.contains(step.getAction().toLowerCase());
+            if (!readOnly || stages.isEmpty()) {
+                stages.add(new ArrayList<>());
+            }
+            stages.get(stages.size() - 1).add(step);
+        }
+        logger.info("Orchestrating PLAN with {} steps in {} stages.", steps.size(), stages.size());
+
+        boolean pipelined = playwrightMcpService.supportsPipelining();
+        return Flux.fromIterable(stages)
+                .concatMap(stage -> pipelined
+                        ? Flux.fromIterable(stage).flatMapSequential(this::executeCommand, PLAN_PIPELINE_DEPTH)
+                        : Flux.fromIterable(stage).concatMap(this::executeCommand))
+                .takeUntil(response -> "error".equals(response.getType()));
+    }
 }
@@ -0,0 +1,298 @@
+package com.example.nlwebspringai.service;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays MCP responses to an HTTP client at the pace the client reads them, without letting a slow client
+ * hold up Playwright-MCP or the server's memory.
+ * <p>
+ * Responses are read from Playwright-MCP as fast as they come and queued for the client in a buffer of
+ * {@code buffer-size} events. Only {@code stream_chunk} events are ever given up, according to {@code overflow}:
+ * <ul>
+ *     <li>{@code coalesce}: merge consecutive chunks of the same command (text and array payloads are
+ *     concatenated, anything else keeps the latest), otherwise drop the oldest queued chunk;</li>
+ *     <li>{@code drop-oldest}: drop the oldest queued chunk;</li>
+ *     <li>{@code drop-latest}: drop the incoming chunk.</li>
+ * </ul>
+ * Any other event arriving at a full buffer makes room the same way, dropping the oldest queued chunk under
+ * {@code drop-latest}. A client is disconnected when that is not possible, i.e. the buffer is full of events
+ * that must not be lost, or when it has read nothing for {@code max-stall} while events are waiting. The stall
+ * is checked as events arrive and, for a client that stops reading once Playwright-MCP has gone quiet or
+ * finished, every quarter of {@code max-stall} (at least every 10 ms).
+ */
+@Component
+public class ResponseRelay {
+
+    public static final String CHUNK_TYPE = "stream_chunk";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseRelay.class);
+    private static final long MIN_STALL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public enum Overflow {
+        COALESCE, DROP_OLDEST, DROP_LATEST;
+
+        static Overflow parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final int bufferSize;
+    private final Overflow overflow;
+    private final long maxStallNanos;
+    private final long stallCheckNanos;
+    private final Counter dropped;
+    private final Counter coalesced;
+    private final Counter disconnected;
+
+    public ResponseRelay(@Value("${nlweb.relay.buffer-size:256}") int bufferSize,
+                         @Value("${nlweb.relay.overflow:coalesce}") String overflow,
+                         @Value("${nlweb.relay.max-stall:30s}") Duration maxStall,
+                         MeterRegistry meterRegistry) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("nlweb.relay.buffer-size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.overflow = Overflow.parse(overflow);
+        this.maxStallNanos = maxStall.toNanos();
+        this.stallCheckNanos = Math.max(maxStallNanos / 4, MIN_STALL_CHECK_NANOS);
+        this.dropped = Counter.builder("nlweb.relay.events.dropped")
+                .description("stream_chunk events not delivered because the client read too slowly")
+                .tag("overflow", this.overflow.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("nlweb.relay.events.coalesced")
+                .description("stream_chunk events merged into a queued chunk because the client read too slowly")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("nlweb.relay.disconnects")
+                .description("Clients disconnected for falling too far behind their response stream")
+                .register(meterRegistry);
+    }
+
+    public Flux<McpResponse> relay(Flux<McpResponse> responses) {
+        return Flux.create(sink -> new Relay(sink).start(responses), FluxSink.OverflowStrategy.IGNORE);
+    }
+
+    private final class Relay {
+        private final FluxSink<McpResponse> sink;
+        private final ArrayDeque<McpResponse> buffer = new ArrayDeque<>();
+        private Disposable upstream;
+        private Disposable stallCheck;
+        private boolean upstreamDone;
+        private Throwable upstreamError;
+        private boolean terminated;
+        private long lastDeliveryNanos = System.nanoTime();
+
+        private Relay(FluxSink<McpResponse> sink) {
+            this.sink = sink;
+        }
+
+        private void start(Flux<McpResponse> responses) {
+            sink.onRequest(n -> drain());
+            sink.onDispose(this::cancelUpstream);
+            // Without it a client that stops reading after the last event would hold its buffer forever.
+            Disposable check = Schedulers.parallel()
+                    .schedulePeriodically(this::checkStall, stallCheckNanos, stallCheckNanos, TimeUnit.NANOSECONDS);
+            Disposable subscription = responses
+                    .contextWrite(sink.contextView())
+                    .subscribe(this::onNext, this::onError, this::onComplete);
+            synchronized (this) {
+                stallCheck = check;
+                upstream = subscription;
+                if (terminated) {
+                    check.dispose();
+                    subscription.dispose();
+                }
+            }
+        }
+
+        private synchronized void onNext(McpResponse response) {
+            if (terminated) {
+                return;
+            }
+            if (stalled()) {
+                return;
+            }
+            if (buffer.size() >= bufferSize && !makeRoom(response)) {
+                return;
+            }
+            buffer.addLast(response);
+            drain();
+        }
+
+        private synchronized void checkStall() {
+            if (!terminated) {
+                stalled();
+            }
+        }
+
+        // Disconnects the client and returns true when it has read nothing for max-stall while events are waiting.
+        private boolean stalled() {
+            if (buffer.isEmpty() || System.nanoTime() - lastDeliveryNanos <= maxStallNanos) {
+                return false;
+            }
+            disconnect("has read nothing for " + Duration.ofNanos(maxStallNanos));
+            return true;
+        }
+
+        private synchronized void onError(Throwable error) {
+            upstreamDone = true;
+            upstreamError = error;
+            drain();
+        }
+
+        private synchronized void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        // Returns false when the response must not be queued, either because it was dropped, merged, or the client is gone.
+        private boolean makeRoom(McpResponse response) {
+            boolean chunk = CHUNK_TYPE.equals(response.getType());
+            if (chunk && overflow == Overflow.DROP_LATEST) {
+                dropped.increment();
+                return false;
+            }
+            if (overflow == Overflow.COALESCE) {
+                McpResponse last = buffer.peekLast();
+                if (chunk && isChunkOf(last, response.getId())) {
+                    buffer.pollLast();
+                    buffer.addLast(merged(last, response));
+                    coalesced.increment();
+                    return false;
+                }
+                if (mergeAdjacentQueuedChunks()) {
+                    coalesced.increment();
+                    return true;
+                }
+            }
+            if (!dropOldestQueuedChunk()) {
+                disconnect("is " + bufferSize + " events behind");
+                return false;
+            }
+            dropped.increment();
+            return true;
+        }
+
+        private boolean mergeAdjacentQueuedChunks() {
+            McpResponse previous = null;
+            for (McpResponse queued : buffer) {
+                if (previous != null && CHUNK_TYPE.equals(queued.getType()) && isChunkOf(previous, queued.getId())) {
+                    replaceAdjacent(previous, queued, merged(previous, queued));
+                    return true;
+                }
+                previous = queued;
+            }
+            return false;
+        }
+
+        // Rotates the buffer once, putting the merged chunk where the first of the pair was.
+        private void replaceAdjacent(McpResponse first, McpResponse second, McpResponse merged) {
+            for (int remaining = buffer.size(); remaining > 0; remaining--) {
+                McpResponse queued = buffer.pollFirst();
+                if (queued == first) {
+                    buffer.addLast(merged);
+                } else if (queued != second) {
+                    buffer.addLast(queued);
+                }
+            }
+        }
+
+        private boolean dropOldestQueuedChunk() {
+            Iterator<McpResponse> oldestFirst = buffer.iterator();
+            while (oldestFirst.hasNext()) {
+                if (CHUNK_TYPE.equals(oldestFirst.next().getType())) {
+                    oldestFirst.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void disconnect(String reason) {
+            logger.warn("Disconnecting client that {} ({} events queued)", reason, buffer.size());
+            disconnected.increment();
+            terminated = true;
+            buffer.clear();
+            cancelUpstream();
+            sink.error(new IllegalStateException("Client " + reason));
+        }
+
+        private synchronized void drain() {
+            if (terminated) {
+                return;
+            }
+            while (!buffer.isEmpty() && sink.requestedFromDownstream() > 0) {
+                sink.next(buffer.pollFirst());
+                lastDeliveryNanos = System.nanoTime();
+            }
+            if (buffer.isEmpty()) {
+                lastDeliveryNanos = System.nanoTime();
+                if (upstreamDone) {
+                    terminated = true;
+                    if (upstreamError != null) {
+                        sink.error(upstreamError);
+                    } else {
+                        sink.complete();
+                    }
+                }
+            }
+        }
+
+        private synchronized void cancelUpstream() {
+            terminated = true;
+            if (stallCheck != null) {
+                stallCheck.dispose();
+            }
+            if (upstream != null) {
+                upstream.dispose();
+            }
+        }
+    }
+
+    private static boolean isChunkOf(McpResponse response, String id) {
+        return response != null && CHUNK_TYPE.equals(response.getType()) && Objects.equals(response.getId(), id);
+    }
+
+    // Responses may be shared with other clients of the same MCP stream, so merging never modifies them.
+    private static McpResponse merged(McpResponse queued, McpResponse next) {
+        McpResponse merged = new McpResponse();
+        merged.setId(queued.getId());
+        merged.setType(queued.getType());
+        merged.setData(merge(queued.getData(), next.getData()));
+        merged.setError(next.getError());
+        return merged;
+    }
+
+    static JsonNode merge(JsonNode queued, JsonNode next) {
+        if (queued != null && next != null && queued.isTextual() && next.isTextual()) {
+            return TextNode.valueOf(queued.asText() + next.asText());
+        }
+        if (queued instanceof ArrayNode queuedArray && next != null && next.isArray()) {
+            ArrayNode merged = JsonNodeFactory.instance.arrayNode(queuedArray.size() + next.size());
+            merged.addAll(queuedArray);
+            merged.addAll((ArrayNode) next);
+            return merged;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.nlwebspringai.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedTtlCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void put_beyondMaxSize_shouldEvictLeastRecentlyUsed() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, Duration.ofMinutes(1), clock::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a"); // "b" is now the eldest
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    void get_afterTtl_shouldExpireEntry() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofSeconds(5), clock::get);
+        cache.put("a", "1");
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertNull(cache.get("a"));
+        assertEquals(List.of("2"), cache.values());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.nlwebspringai.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final Counter joined = Counter.builder("joined").register(new SimpleMeterRegistry());
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(joined);
+
+    @Test
+    void concurrentCalls_sameKey_shouldShareOneExecution() {
+        AtomicInteger executions = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+
+        Mono<String> first = singleFlight.execute("q", () -> Mono.defer(() -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        }));
+        Mono<String> second = singleFlight.execute("q", () -> Mono.fromCallable(() -> {
+            executions.incrementAndGet();
+            return "not shared";
+        }));
+
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> result.tryEmitValue("command"))
+                .expectNext("command", "command")
+                .verifyComplete();
+        assertEquals(1, executions.get());
+        assertEquals(1.0, joined.count());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void lateJoiner_shouldSeeEventsEmittedBeforeItJoined() {
+        Sinks.Many<String> events = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<String> first = singleFlight.executeMany("s", events::asFlux);
+
+        StepVerifier.create(first)
+                .then(() -> events.tryEmitNext("chunk-1"))
+                .expectNext("chunk-1")
+                .then(() -> {
+                    StepVerifier late = StepVerifier.create(singleFlight.executeMany("s", Flux::empty))
+                            .expectNext("chunk-1", "chunk-2")
+                            .expectComplete()
+                            .verifyLater();
+                    events.tryEmitNext("chunk-2");
+                    events.tryEmitComplete();
+                    late.verify();
+                })
+                .expectNext("chunk-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void failure_shouldReachEverySubscriberAndNotBeRemembered() {
+        Sinks.One<String> result = Sinks.one();
+        Mono<String> shared = singleFlight.execute("q", result::asMono);
+
+        StepVerifier.create(Flux.merge(shared, singleFlight.execute("q", Mono::empty)))
+                .then(() -> result.tryEmitError(new IllegalStateException("NLWeb down")))
+                .verifyErrorMessage("NLWeb down");
+
+        StepVerifier.create(singleFlight.execute("q", () -> Mono.just("retried")))
+                .expectNext("retried")
+                .verifyComplete();
+    }
+
+    @Test
+    void lastSubscriberLeaving_shouldCancelTheCall() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> never = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = singleFlight.execute("q", () -> never).subscribe();
+        Disposable second = singleFlight.execute("q", () -> never).subscribe();
+
+        first.dispose();
+        assertEquals(1, singleFlight.inFlight());
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+}
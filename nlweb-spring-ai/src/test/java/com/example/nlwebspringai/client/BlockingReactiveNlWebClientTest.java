@@ -0,0 +1,136 @@
+package com.example.nlwebspringai.client;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class BlockingReactiveNlWebClientTest {
+
+    private static final String NLWEB_URL = "http://nlweb.test/ask";
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    @BeforeEach
+    void setUp() {
+        executor.setThreadNamePrefix("nlweb-task-");
+        executor.setCorePoolSize(2);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void translate_shouldRunBlockingCallOnApplicationTaskExecutor() {
+        AtomicReference<String> callingThread = new AtomicReference<>();
+        McpCommand command = new McpCommand("navigate", "https://shop.example.com/", null);
+        BlockingReactiveNlWebClient client = new BlockingReactiveNlWebClient(request -> {
+            callingThread.set(Thread.currentThread().getName());
+            return command;
+        }, executor);
+
+        StepVerifier.create(client.translateNaturalLanguageToMcp(new NlWebQueryRequest("open the shop")))
+                .expectNext(command)
+                .verifyComplete();
+        assertTrue(callingThread.get().startsWith("nlweb-task-"), callingThread.get());
+        assertNotEquals(Thread.currentThread().getName(), callingThread.get());
+    }
+
+    @Test
+    void translate_nlWebFailure_shouldEmitErrorCommand() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(NLWEB_URL)).andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+        BlockingReactiveNlWebClient client = new BlockingReactiveNlWebClient(restClient(restTemplate), executor);
+
+        StepVerifier.create(client.translateNaturalLanguageToMcp(new NlWebQueryRequest("open the shop")))
+                .assertNext(command -> {
+                    assertEquals("error", command.getAction());
+                    assertEquals("nlweb_client", command.getTarget());
+                    assertTrue(((String) command.getParams().get("errorMessage")).startsWith("Error communicating with NLWeb service: 502"));
+                })
+                .verifyComplete();
+        server.verify();
+    }
+
+    @Test
+    void translate_nlWebAnswer_shouldEmitItsCommand() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(NLWEB_URL))
+                .andRespond(withSuccess("{\"mcpCommand\":{\"action\":\"navigate\",\"target\":\"https://shop.example.com/\"}}",
+                        MediaType.APPLICATION_JSON));
+        BlockingReactiveNlWebClient client = new BlockingReactiveNlWebClient(restClient(restTemplate), executor);
+
+        StepVerifier.create(client.translateNaturalLanguageToMcp(new NlWebQueryRequest("open the shop")))
+                .assertNext(command -> {
+                    assertEquals("navigate", command.getAction());
+                    assertEquals("https://shop.example.com/", command.getTarget());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void translate_clientThrows_shouldEmitTheException() {
+        IllegalStateException failure = new IllegalStateException("boom");
+        BlockingReactiveNlWebClient client = new BlockingReactiveNlWebClient(request -> {
+            throw failure;
+        }, executor);
+
+        StepVerifier.create(client.translateNaturalLanguageToMcp(new NlWebQueryRequest("open the shop")))
+                .expectErrorSatisfies(error -> assertSame(failure, error))
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void translate_shouldOpenCallersObservationOnExecutorThread() {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(context -> true);
+        Observation parent = Observation.start("nlweb.test", registry);
+        AtomicReference<Observation> current = new AtomicReference<>();
+        BlockingReactiveNlWebClient client = new BlockingReactiveNlWebClient(request -> {
+            current.set(registry.getCurrentObservation());
+            return new McpCommand("snapshot", null, null);
+        }, executor);
+
+        StepVerifier.create(client.translateNaturalLanguageToMcp(new NlWebQueryRequest("what is on the page"))
+                        .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, parent)))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertSame(parent, current.get());
+        parent.stop();
+    }
+
+    private static NlWebRestClient restClient(RestTemplate restTemplate) {
+        return new NlWebRestClient(restTemplate, NLWEB_URL,
+                new CircuitBreaker("nlweb", new CircuitBreaker.Settings(0.5, 10, 10, Duration.ofSeconds(30), 2)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.nlwebspringai.codec;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SmileStreamsTest {
+
+    private final SmileStreams smileStreams = new SmileStreams(new Jackson2ObjectMapperBuilder());
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new EventsController()).build();
+
+    @RestController
+    class EventsController {
+
+        @GetMapping("/events")
+        ResponseEntity<ResponseBodyEmitter> events() {
+            return smileStreams.emit(Flux.just(event("ack"), event("snapshot"), event("stream_end"))
+                    .delayElements(Duration.ofMillis(5)));
+        }
+
+        @GetMapping("/rejected")
+        ResponseEntity<ResponseBodyEmitter> rejected() {
+            return smileStreams.emit(Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "empty query")));
+        }
+    }
+
+    @Test
+    void emit_shouldWriteEveryEventAsOneSmileSequence() throws Exception {
+        MvcResult started = mockMvc.perform(get("/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.getAsyncResult(5000);
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SmileStreams.SMILE_STREAM))
+                .andReturn();
+
+        try (MappingIterator<McpResponse> events = smileStreams.getSmileMapper().readerFor(McpResponse.class)
+                .readValues(result.getResponse().getContentAsByteArray())) {
+            assertEquals(List.of("ack", "snapshot", "stream_end"),
+                    events.readAll().stream().map(McpResponse::getType).toList());
+        }
+    }
+
+    @Test
+    void errorBeforeFirstEvent_shouldKeepItsStatus() throws Exception {
+        MvcResult started = mockMvc.perform(get("/rejected"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static McpResponse event(String type) {
+        McpResponse response = new McpResponse();
+        response.setId("req-1");
+        response.setType(type);
+        return response;
+    }
+}
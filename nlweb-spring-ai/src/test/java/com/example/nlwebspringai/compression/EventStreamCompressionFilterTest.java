@@ -0,0 +1,138 @@
+package com.example.nlwebspringai.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventStreamCompressionFilterTest {
+
+    private static final String ACK = "data:{\"id\":\"req-1\",\"type\":\"ack\"}\n\n";
+    private static final String SNAPSHOT = "data:{\"id\":\"req-1\",\"type\":\"snapshot\",\"data\":["
+            + "{\"role\":\"link\",\"name\":\"Products\",\"ref\":\"e1\"},".repeat(200) + "{}]}\n\n";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EventStreamCompressionFilter filter = new EventStreamCompressionFilter(true, 6, 256,
+            List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON));
+
+    {
+        filter.bindTo(registry);
+    }
+
+    @Test
+    void eventStream_shouldBeDecompressibleAfterEveryEvent() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, sse((out, body) -> {
+            // Parts of one event are written and flushed separately, as SseEmitter does.
+            writeInParts(out, SNAPSHOT);
+            assertEquals(SNAPSHOT, inflateSoFar(body.getContentAsByteArray()));
+            writeInParts(out, ACK);
+            assertEquals(SNAPSHOT + ACK, inflateSoFar(body.getContentAsByteArray()));
+        }, response));
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        byte[] gzipped = response.getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertEquals(SNAPSHOT + ACK, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(gzipped.length < SNAPSHOT.length() / 5, "gzipped to " + gzipped.length);
+        assertEquals(1.0, registry.get("nlweb.compression.events").tag("result", "compressed").functionCounter().count());
+        assertEquals(1.0, registry.get("nlweb.compression.events").tag("result", "stored").functionCounter().count());
+        assertEquals(gzipped.length, registry.get("nlweb.compression.bytes").tag("type", "compressed").functionCounter().count());
+        assertEquals(1, registry.get("nlweb.compression.ratio").summary().count());
+    }
+
+    @Test
+    void smallEvent_shouldBeStoredUncompressed() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, sse((out, body) -> writeInParts(out, ACK), response));
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(ACK, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // A stored block holds the event's bytes as they are.
+        assertTrue(new String(response.getContentAsByteArray(), StandardCharsets.ISO_8859_1).contains(ACK));
+    }
+
+    @Test
+    void clientWithoutGzip_shouldGetThePlainStream() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/process-nl"), response,
+                sse((out, body) -> writeInParts(out, ACK), response));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(ACK, response.getContentAsString());
+    }
+
+    @Test
+    void nonStreamingResponse_shouldPassThrough() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest(), response, (request, servletResponse) -> {
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            servletResponse.getOutputStream().write("{\"replayed\":1}".getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("{\"replayed\":1}", response.getContentAsString());
+    }
+
+    interface Events {
+        void write(ServletOutputStream out, MockHttpServletResponse body) throws Exception;
+    }
+
+    private static FilterChain sse(Events events, MockHttpServletResponse body) {
+        return (request, response) -> {
+            response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            response.flushBuffer();
+            try {
+                events.write(response.getOutputStream(), body);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static void writeInParts(ServletOutputStream out, String event) throws Exception {
+        int json = event.indexOf('{');
+        int end = event.length() - 2;
+        for (String part : List.of(event.substring(0, json), event.substring(json, end), event.substring(end))) {
+            out.write(part.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private static MockHttpServletRequest gzipRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/process-nl");
+        request.addHeader("Accept-Encoding", "gzip, deflate, br");
+        return request;
+    }
+
+    // Inflates what a client has received so far: the gzip header, then sync-flushed deflate blocks.
+    private static String inflateSoFar(byte[] gzipped) throws Exception {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(Arrays.copyOfRange(gzipped, 10, gzipped.length));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = inflater.inflate(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+        inflater.end();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.nlwebspringai.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientConfigTest {
+
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofMillis(300);
+
+    private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+    private ServerSocket hungServer;
+    private ConnectionProvider connectionProvider;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Accepts connections and never answers, like an NLWeb stuck on its LLM call.
+        hungServer = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    accepted.add(hungServer.accept());
+                }
+            } catch (IOException closed) {
+                // Server closed at the end of the test.
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        connectionProvider = HttpClientConfig.connectionProvider("test", 2, 10, Duration.ofSeconds(1),
+                Duration.ofSeconds(30), Duration.ofMinutes(5));
+        httpClient = HttpClientConfig.httpClient(connectionProvider, Duration.ofSeconds(1), RESPONSE_TIMEOUT, true,
+                List.of(HttpProtocol.HTTP11));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionProvider.dispose();
+        hungServer.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void restTemplate_hungServer_shouldFailAfterResponseTimeout() {
+        RestTemplate restTemplate = new AppConfig().restTemplate(new RestTemplateBuilder(), httpClient, RESPONSE_TIMEOUT);
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> restTemplate.postForObject(url(), "{}", String.class));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+    }
+
+    @Test
+    void restTemplate_pooledConnections_shouldStayUsableAfterEachResponse() throws Exception {
+        DisposableServer server = HttpServer.create().host("127.0.0.1").port(0)
+                .route(routes -> routes
+                        .post("/ask", (request, response) -> request.receive().aggregate()
+                                .then(response.header("Content-Type", "application/json").sendString(Mono.just("{\"ok\":true}")).then()))
+                        .post("/empty", (request, response) -> request.receive().aggregate().then(response.send())))
+                .bindNow();
+        ConnectionProvider pool = HttpClientConfig.connectionProvider("pooled", 2, 100, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), Duration.ofMinutes(5));
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            RestTemplate restTemplate = new AppConfig().restTemplate(new RestTemplateBuilder(),
+                    HttpClientConfig.httpClient(pool, Duration.ofSeconds(1), Duration.ofSeconds(5), true, List.of(HttpProtocol.HTTP11)),
+                    Duration.ofSeconds(5));
+            String base = "http://127.0.0.1:" + server.port();
+
+            assertNull(restTemplate.postForObject(base + "/empty", "{}", String.class));
+            // Two connections shared by four callers: every request after the first two reuses one.
+            List<Future<String>> answers = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                answers.add(callers.submit(() -> restTemplate.postForObject(base + "/ask", "{}", String.class)));
+            }
+            for (Future<String> answer : answers) {
+                assertEquals("{\"ok\":true}", answer.get());
+            }
+        } finally {
+            callers.shutdownNow();
+            pool.dispose();
+            server.disposeNow();
+        }
+    }
+
+    @Test
+    void webClient_hungServer_shouldFailAfterResponseTimeout() {
+        WebClient webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+
+        StepVerifier.create(webClient.post().uri(url()).bodyValue("{}").retrieve().bodyToMono(String.class))
+                .expectError()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + hungServer.getLocalPort() + "/ask";
+    }
+}
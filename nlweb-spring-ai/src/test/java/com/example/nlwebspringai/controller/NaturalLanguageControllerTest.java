@@ -1,35 +1,61 @@
 package com.example.nlwebspringai.controller;
 
+import com.example.nlwebspringai.codec.SmileStreams;
+import com.example.nlwebspringai.limit.LimitExceededException;
 import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.model.BatchMcpResponse;
 import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.example.nlwebspringai.service.BatchProcessingService;
 import com.example.nlwebspringai.service.OrchestrationService;
+import com.example.nlwebspringai.service.ResponseRelay;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.reactive.server.WebTestClient.ResponseSpec; // Import ResponseSpec
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier; // Import StepVerifier
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
 
 @WebFluxTest(NaturalLanguageController.class) // Using WebFluxTest as we are testing a reactive controller
+@Import({NaturalLanguageControllerTest.RelayConfig.class, SmileStreams.class})
 class NaturalLanguageControllerTest {
 
+    @TestConfiguration
+    static class RelayConfig {
+        @Bean
+        ResponseRelay responseRelay() {
+            return new ResponseRelay(256, "coalesce", Duration.ofSeconds(30), new SimpleMeterRegistry());
+        }
+    }
+
     @Autowired
     private WebTestClient webTestClient;
 
     @MockBean
     private OrchestrationService mockOrchestrationService;
 
+    @MockBean
+    private BatchProcessingService mockBatchProcessingService;
+
     @Autowired
     private ObjectMapper objectMapper; // For serializing request body
 
@@ -114,4 +140,53 @@ class NaturalLanguageControllerTest {
                     assert errResponse.getError().contains("Failed to process query: " + errorMessage);
                 });
     }
+
+    @Test
+    void processNaturalLanguageQuery_shed_shouldReturnServiceUnavailableWithRetryAfter() throws JsonProcessingException {
+        String query = "navigate to example.com";
+        when(mockOrchestrationService.processNaturalLanguageCommand(query))
+                .thenReturn(Flux.error(new LimitExceededException(HttpStatus.SERVICE_UNAVAILABLE, "mcp", "queue full",
+                        Duration.ofSeconds(3))));
+
+        webTestClient.post().uri("/api/v1/process-nl")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(objectMapper.writeValueAsString(new NlWebQueryRequest(query)))
+                .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "3");
+    }
+
+    @Test
+    void processBatch_jsonArray_shouldStreamTaggedResponses() {
+        McpResponse ack = new McpResponse();
+        ack.setId("cmd-1");
+        ack.setType("ack");
+        when(mockBatchProcessingService.processBatch(anyList()))
+                .thenReturn(Flux.just(new BatchMcpResponse(0, "first", ack)));
+
+        webTestClient.post().uri("/api/v1/process-nl/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(new NlWebQueryRequest("take a snapshot")))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BatchMcpResponse.class)
+                .hasSize(1)
+                .value(events -> {
+                    assert events.get(0).getRequestId().equals("first");
+                    assert events.get(0).getResponse().getType().equals("ack");
+                });
+    }
+
+    @Test
+    void processBatch_emptyArray_shouldReturnBadRequest() {
+        webTestClient.post().uri("/api/v1/process-nl/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of())
+                .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
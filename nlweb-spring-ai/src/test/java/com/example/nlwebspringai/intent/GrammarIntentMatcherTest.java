@@ -0,0 +1,97 @@
+package com.example.nlwebspringai.intent;
+
+import com.example.nlwebspringai.model.McpCommand;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GrammarIntentMatcherTest {
+
+    private final GrammarIntentMatcher matcher = new GrammarIntentMatcher(new ObjectMapper(),
+            new ClassPathResource("fast-path-rules.json"));
+
+    @Test
+    void navigate_shouldKeepUrlCaseAndAddMissingScheme() {
+        McpCommand command = matcher.match("Please go to  https://Example.com/Path?q=A.");
+        assertEquals("navigate", command.getAction());
+        assertEquals("https://Example.com/Path?q=A", command.getTarget());
+
+        assertEquals("https://example.com", matcher.match("open example.com").getTarget());
+        assertEquals("http://localhost:3000/", matcher.match("http://localhost:3000/").getTarget());
+    }
+
+    @Test
+    void snapshotClickAndWait_shouldMatch() {
+        assertEquals("snapshot", matcher.match("Take a snapshot.").getAction());
+        assertEquals("snapshot", matcher.match("snapshot").getAction());
+
+        McpCommand click = matcher.match("click on element s1e12");
+        assertEquals("click", click.getAction());
+        assertEquals("s1e12", click.getTarget());
+
+        McpCommand wait = matcher.match("wait for 2.5 seconds");
+        assertEquals("wait", wait.getAction());
+        assertEquals(Map.of("seconds", "2.5"), wait.getParams());
+    }
+
+    @Test
+    void typeWithQuotedText_shouldCarryTextAndSubmit() {
+        McpCommand type = matcher.match("type \"Hello World\" into e7 and press enter");
+        assertEquals("type", type.getAction());
+        assertEquals("e7", type.getTarget());
+        assertEquals("Hello World", type.getParams().get("text"));
+        assertEquals("true", type.getParams().get("submit"));
+
+        McpCommand noSubmit = matcher.match("Type 'abc' in ref e3");
+        assertNotNull(noSubmit);
+        assertNull(noSubmit.getParams().get("submit"));
+    }
+
+    @Test
+    void typeWithQuotedText_shouldTypeTheTextAsWritten() {
+        McpCommand type = matcher.match("  type \"a  b.\"   into\te7.  ");
+        assertEquals("e7", type.getTarget());
+        assertEquals("a  b.", type.getParams().get("text"));
+
+        McpCommand tabs = matcher.match("enter '\tTwo\n lines!' into e2!");
+        assertEquals("\tTwo\n lines!", tabs.getParams().get("text"));
+        assertEquals("  padded \t ", matcher.match("type \"  padded \t \" into e1").getParams().get("text"));
+    }
+
+    @Test
+    void ambiguousQueries_shouldBeLeftToNlWeb() {
+        assertNull(matcher.match("click the login button"));
+        assertNull(matcher.match("go to example.com and take a snapshot"));
+        assertNull(matcher.match("open the settings page"));
+        assertNull(matcher.match("type hello into e3"));
+    }
+
+    @Test
+    void customRules_shouldFillPlaceholdersFromNamedGroups() {
+        GrammarIntentMatcher custom = new GrammarIntentMatcher(List.of(new GrammarIntentMatcher.Rule("search",
+                "search for (?<terms>.+)", "navigate", "duckduckgo.com/?q={terms}", null)));
+
+        assertEquals("https://duckduckgo.com/?q=spring ai", custom.match("Search for spring ai").getTarget());
+        assertNull(custom.match("snapshot"));
+    }
+
+    @Test
+    void fastPath_shouldCountHitsAndMisses() {
+        FastPath fastPath = new FastPath(true, List.of(query -> {
+            throw new IllegalStateException("broken matcher");
+        }, matcher));
+
+        assertNotNull(fastPath.match("snapshot"));
+        assertNull(fastPath.match("log in as admin"));
+        assertEquals(1, fastPath.getHitCount());
+        assertEquals(1, fastPath.getMissCount());
+        assertNull(new FastPath(false, List.of(matcher)).match("snapshot"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.nlwebspringai.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private EventJournal journal(DataSize fileSize, int maxFiles, double sampleRate) {
+        return new EventJournal(true, dir, 1024, fileSize, maxFiles, sampleRate, true, 64);
+    }
+
+    @Test
+    void events_shouldBeReadBackWithTextRedacted() throws Exception {
+        EventJournal journal = journal(DataSize.ofKilobytes(64), 2, 1.0);
+
+        journal.record(JournalEvent.Type.TRANSLATED, "session-1", "type",
+                "query", new JournalEvent.Sensitive("type hunter2 into the password box"), "target", "e7",
+                "params", Map.of("text", "hunter2"));
+        journal.record(JournalEvent.Type.MCP_FAILED, "req-1", "browser_type", "error", "x".repeat(100));
+        journal.close();
+
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        assertEquals(2, entries.size());
+        JournalReader.Entry translated = entries.get(0);
+        assertEquals(JournalEvent.Type.TRANSLATED, translated.type());
+        assertEquals("session-1", translated.id());
+        assertEquals("type", translated.name());
+        assertEquals("[redacted 34 chars]", translated.fields().get("query"));
+        assertEquals("e7", translated.fields().get("target"));
+        assertEquals("[redacted 7 chars]", translated.fields().get("params.text"));
+        assertEquals("x".repeat(64) + "...", entries.get(1).fields().get("error"));
+        assertEquals(2, journal.getWrittenCount());
+    }
+
+    @Test
+    void fullFiles_shouldRotateAndKeepTheNewest() throws Exception {
+        EventJournal journal = journal(DataSize.ofKilobytes(1), 2, 1.0);
+
+        for (int i = 0; i < 100; i++) {
+            journal.record(JournalEvent.Type.MCP_EVENT, "req-" + i, "snapshot", "index", i);
+        }
+        journal.close();
+
+        assertEquals(2, JournalWriter.journalFiles(dir).size());
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        assertTrue(entries.size() < 100);
+        assertEquals("99", entries.get(entries.size() - 1).fields().get("index"));
+    }
+
+    @Test
+    void sampling_shouldKeepWholeRequestsAndAllFailures() throws Exception {
+        EventJournal journal = journal(DataSize.ofKilobytes(64), 1, 0.5);
+
+        for (int i = 0; i < 200; i++) {
+            journal.record(JournalEvent.Type.MCP_SENT, "req-" + i, "browser_click");
+            journal.record(JournalEvent.Type.MCP_DONE, "req-" + i, "browser_click");
+        }
+        journal.record(JournalEvent.Type.MCP_FAILED, "unsampled", "browser_click");
+        journal.close();
+
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        long sent = entries.stream().filter(entry -> entry.type() == JournalEvent.Type.MCP_SENT).count();
+        long done = entries.stream().filter(entry -> entry.type() == JournalEvent.Type.MCP_DONE).count();
+        assertEquals(sent, done);
+        assertTrue(sent > 50 && sent < 150, "sampled " + sent);
+        assertEquals(JournalEvent.Type.MCP_FAILED, entries.get(entries.size() - 1).type());
+    }
+}
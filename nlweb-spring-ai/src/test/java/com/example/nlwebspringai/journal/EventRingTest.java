@@ -0,0 +1,84 @@
+package com.example.nlwebspringai.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventRingTest {
+
+    @Test
+    void poll_shouldReturnEventsInOrderAcrossLaps() {
+        EventRing<Integer> ring = new EventRing<>(4);
+
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(lap * 4 + i));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(lap * 4 + i, ring.poll());
+            }
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void offer_shouldRejectWhenFull() {
+        EventRing<String> ring = new EventRing<>(2);
+
+        assertTrue(ring.offer("a"));
+        assertTrue(ring.offer("b"));
+        assertFalse(ring.offer("c"));
+        assertEquals(2, ring.size());
+
+        assertEquals("a", ring.poll());
+        assertTrue(ring.offer("c"));
+    }
+
+    @Test
+    void concurrentProducers_shouldLoseNoEvent() throws InterruptedException {
+        EventRing<Integer> ring = new EventRing<>(1024);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        Set<Integer> seen = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+            Integer event = ring.poll();
+            if (event != null) {
+                assertTrue(seen.add(event), "duplicate " + event);
+            }
+        }
+        executor.shutdownNow();
+
+        assertEquals(producers * perProducer, seen.size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.nlwebspringai.limit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimitTest {
+
+    private static AdaptiveLimit limit(int initial, int min, int max, int maxQueue, Duration queueTimeout) {
+        return new AdaptiveLimit("test", new AdaptiveLimit.Settings(initial, min, max, maxQueue, queueTimeout,
+                HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void queueFull_shouldShedWithRetryAfter() {
+        AdaptiveLimit limit = limit(1, 1, 1, 1, Duration.ofSeconds(5));
+        Disposable running = limit.run(Mono.never()).subscribe();
+        Disposable queued = limit.run(Mono.never()).subscribe();
+
+        StepVerifier.create(limit.run(Mono.just("shed")))
+                .expectErrorSatisfies(error -> {
+                    LimitExceededException shed = (LimitExceededException) error;
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getStatusCode());
+                    assertEquals("test", shed.getStage());
+                    assertTrue(Long.parseLong(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) >= 1);
+                })
+                .verify();
+
+        queued.dispose();
+        running.dispose();
+        assertEquals(0, limit.getInFlight());
+        assertEquals(0, limit.getQueued());
+    }
+
+    @Test
+    void release_shouldAdmitTheOldestQueuedCall() {
+        AdaptiveLimit limit = limit(1, 1, 1, 10, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+
+        StepVerifier.create(Flux.merge(limit.run(first.asMono()), limit.run(Mono.just("second"))))
+                .then(() -> assertEquals(1, limit.getQueued()))
+                .then(() -> first.tryEmitValue("first"))
+                // The permit is released before "first" is delivered, so "second" may overtake it.
+                .recordWith(HashSet::new)
+                .expectNextCount(2)
+                .consumeRecordedWith(values -> assertEquals(Set.of("first", "second"), values))
+                .verifyComplete();
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void queueTimeout_shouldShedTheWaitingCall() {
+        AdaptiveLimit limit = limit(1, 1, 1, 10, Duration.ofMillis(100));
+        Disposable running = limit.run(Mono.never()).subscribe();
+
+        StepVerifier.create(limit.run(Mono.just("late")))
+                .expectError(LimitExceededException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, limit.getQueued());
+        running.dispose();
+    }
+
+    @Test
+    void cancelledWhileQueued_shouldLeaveTheQueue() {
+        AdaptiveLimit limit = limit(1, 1, 1, 10, Duration.ofSeconds(5));
+        Disposable running = limit.run(Mono.never()).subscribe();
+        Disposable queued = limit.run(Mono.just("never runs")).subscribe();
+        assertEquals(1, limit.getQueued());
+
+        queued.dispose();
+        assertEquals(0, limit.getQueued());
+        running.dispose();
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void timeout_shouldBackOff() {
+        AdaptiveLimit limit = limit(10, 1, 20, 10, Duration.ofSeconds(5));
+
+        StepVerifier.create(limit.run(Mono.error(new TimeoutException("NLWeb did not answer"))))
+                .verifyError(TimeoutException.class);
+
+        assertEquals(9, limit.getLimit());
+    }
+
+    @Test
+    void steadyLatencyAtFullUse_shouldRaiseTheLimit() {
+        AdaptiveLimit limit = limit(2, 1, 10, 10, Duration.ofSeconds(5));
+
+        for (int round = 0; round < 10; round++) {
+            Flux.merge(limit.run(Mono.delay(Duration.ofMillis(20))), limit.run(Mono.delay(Duration.ofMillis(20))))
+                    .blockLast();
+        }
+
+        assertTrue(limit.getLimit() > 2, "limit " + limit.getLimit());
+    }
+}
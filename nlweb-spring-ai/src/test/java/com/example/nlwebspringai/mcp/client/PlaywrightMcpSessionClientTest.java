@@ -0,0 +1,202 @@
+package com.example.nlwebspringai.mcp.client;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.NavigateRequest;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PlaywrightMcpSessionClientTest {
+
+    private static final String END_OF_STREAM = "";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<String> sessionEvents = new LinkedBlockingQueue<>();
+    private final List<String> postedTo = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    // What the adapter streams back on the session for each posted request id.
+    private volatile Function<String, List<String>> answer = id -> List.of();
+    private HttpServer server;
+    private PlaywrightMcpSessionClient client;
+
+    // A local adapter: GET /sse opens the session and names /message as the endpoint, POSTs are answered on the session.
+    @BeforeEach
+    void startAdapter() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/sse", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                write(out, "event:endpoint\ndata:/message?sessionId=s1\n\n");
+                for (String event = sessionEvents.take(); !END_OF_STREAM.equals(event); event = sessionEvents.take()) {
+                    write(out, "data:" + event + "\n\n");
+                }
+            } catch (InterruptedException | IOException e) {
+                // The client went away or the test is over.
+            }
+        });
+        server.createContext("/message", exchange -> {
+            postedTo.add(exchange.getRequestURI().toString());
+            String id = objectMapper.readTree(exchange.getRequestBody()).get("id").asText();
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+            sessionEvents.addAll(answer.apply(id));
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopAdapter() throws InterruptedException {
+        if (client != null) {
+            client.close();
+        }
+        sessionEvents.add(END_OF_STREAM);
+        server.stop(0);
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void sendCommand_shouldPostToTheDiscoveredEndpointAndRouteResponsesById() {
+        client = client(Duration.ofSeconds(5), Set.of("stream_end", "error"));
+        answer = id -> List.of(event("someone-else", "ack"), event(id, "ack"), event(id, "stream_end"));
+
+        StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")).map(McpResponse::getType))
+                .expectNext("ack", "stream_end")
+                .verifyComplete();
+
+        assertEquals(List.of("/message?sessionId=s1"), postedTo);
+        assertEquals(0, client.pendingCount());
+    }
+
+    @Test
+    void sendCommand_snapshotResponse_shouldKeepItsPayloadWithoutWritingItOut() throws IOException {
+        client = client(Duration.ofSeconds(5), Set.of("snapshot", "error"));
+        answer = id -> List.of(event(id, "snapshot"));
+
+        McpResponse snapshot = client.sendCommand(new NavigateRequest("http://example.com")).blockLast(Duration.ofSeconds(5));
+
+        assertEquals("snapshot", objectMapper.readTree(snapshot.getJson()).get("type").asText());
+        assertFalse(objectMapper.readTree(objectMapper.writeValueAsString(snapshot)).has("json"));
+    }
+
+    @Test
+    void sendCommand_shouldCompleteOnConfiguredTerminalTypesOnly() {
+        client = client(Duration.ofSeconds(5), Set.of("done"));
+        answer = id -> List.of(event(id, "ack"), event(id, "stream_end"), event(id, "done"), event(id, "late"));
+
+        StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")).map(McpResponse::getType))
+                .expectNext("ack", "stream_end", "done")
+                .verifyComplete();
+    }
+
+    @Test
+    void sendCommand_withoutTerminalResponse_shouldTimeOut() {
+        client = client(Duration.ofSeconds(1), Set.of("stream_end", "error"));
+        client.warmUp().block(Duration.ofSeconds(5));
+        answer = id -> List.of(event(id, "ack"));
+
+        StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")).map(McpResponse::getType))
+                .expectNext("ack")
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, client.pendingCount());
+    }
+
+    @Test
+    void sweepOrphans_shouldFailEntriesPastTheirDeadline() {
+        client = client(Duration.ofSeconds(30), Set.of("stream_end", "error"));
+        StepVerifier pendingCommand = StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")))
+                .expectErrorMatches(error -> error instanceof TimeoutException && error.getMessage().startsWith("Orphaned"))
+                .verifyLater();
+        assertEquals(1, client.pendingCount());
+
+        // Within the command's own timeout the entry is left alone.
+        client.sweepOrphans(System.nanoTime() + Duration.ofSeconds(30).toNanos());
+        assertEquals(1, client.pendingCount());
+        client.sweepOrphans(System.nanoTime() + Duration.ofMinutes(2).toNanos());
+
+        pendingCommand.verify(Duration.ofSeconds(5));
+        assertEquals(0, client.pendingCount());
+    }
+
+    @Test
+    void sendCommand_sessionClosedByServer_shouldFailPendingCommands() {
+        client = client(Duration.ofSeconds(30), Set.of("stream_end", "error"));
+        answer = id -> List.of(END_OF_STREAM);
+
+        StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")))
+                .expectErrorMatches(error -> error.getMessage().contains("closed by server"))
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, postedTo.size());
+        assertEquals(0, client.pendingCount());
+    }
+
+    @Test
+    void sendCommand_afterClose_shouldFailAtOnce() {
+        client = client(Duration.ofSeconds(30), Set.of("stream_end", "error"));
+        client.warmUp().block(Duration.ofSeconds(5));
+        client.close();
+
+        StepVerifier.create(client.sendCommand(new NavigateRequest("http://example.com")))
+                .expectErrorMatches(error -> error instanceof IllegalStateException
+                        && "Playwright-MCP session client closed".equals(error.getMessage()))
+                // Well within the 30s request timeout.
+                .verify(Duration.ofSeconds(2));
+
+        assertEquals(List.of(), postedTo);
+        assertEquals(0, client.pendingCount());
+    }
+
+    private PlaywrightMcpSessionClient client(Duration requestTimeout, Set<String> terminalTypes) {
+        return new PlaywrightMcpSessionClient(WebClient.builder(), HttpClient.create(), objectMapper,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/sse", "", requestTimeout, terminalTypes,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+    }
+
+    private String event(String id, String type) {
+        McpResponse response = new McpResponse();
+        response.setId(id);
+        response.setType(type);
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
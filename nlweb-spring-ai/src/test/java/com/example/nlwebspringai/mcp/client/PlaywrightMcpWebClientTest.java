@@ -0,0 +1,115 @@
+package com.example.nlwebspringai.mcp.client;
+
+import com.example.nlwebspringai.codec.SmileStreams;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.NavigateRequest;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PlaywrightMcpWebClientTest {
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    // A local adapter that answers in Smile when asked to, and with SSE otherwise.
+    @BeforeEach
+    void startAdapter() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sse", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            List<McpResponse> events = List.of(event("ack", null), event("snapshot", "{\"role\":\"document\"}"));
+            if (accept != null && accept.contains(SmileStreams.SMILE_STREAM_VALUE)) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try (SequenceWriter writer = smileMapper.writer().writeValues(body)) {
+                    writer.writeAll(events);
+                }
+                respond(exchange, SmileStreams.SMILE_STREAM_VALUE, body.toByteArray());
+            } else {
+                StringBuilder body = new StringBuilder();
+                for (McpResponse event : events) {
+                    body.append("data:").append(jsonMapper.writeValueAsString(event)).append("\n\n");
+                }
+                respond(exchange, "text/event-stream", body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopAdapter() {
+        server.stop(0);
+    }
+
+    @Test
+    void smileCodec_shouldDecodeTheAdaptersSmileStream() {
+        StepVerifier.create(client("smile").sendCommand(new NavigateRequest("http://example.com")))
+                .expectNextMatches(response -> "ack".equals(response.getType()))
+                .expectNextMatches(response -> "snapshot".equals(response.getType())
+                        && "document".equals(response.getData().get("role").asText()))
+                .verifyComplete();
+        assertEquals(List.of(SmileStreams.SMILE_STREAM_VALUE), contentTypes);
+    }
+
+    @Test
+    void jsonCodec_shouldOnlyAskForServerSentEvents() {
+        StepVerifier.create(client("json").sendCommand(new NavigateRequest("http://example.com")))
+                .expectNextMatches(response -> "ack".equals(response.getType()))
+                .expectNextMatches(response -> "document".equals(response.getData().get("role").asText()))
+                .verifyComplete();
+        assertEquals(List.of("text/event-stream"), contentTypes);
+    }
+
+    @Test
+    void unknownCodec_shouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> client("cbor"));
+    }
+
+    private PlaywrightMcpWebClient client(String codec) {
+        return new PlaywrightMcpWebClient(WebClient.builder(), HttpClient.create(),
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/sse", codec,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+    }
+
+    private McpResponse event(String type, String data) throws IOException {
+        McpResponse response = new McpResponse();
+        response.setId("req-1");
+        response.setType(type);
+        response.setData(data != null ? jsonMapper.readTree(data) : null);
+        return response;
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        contentTypes.add(contentType);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
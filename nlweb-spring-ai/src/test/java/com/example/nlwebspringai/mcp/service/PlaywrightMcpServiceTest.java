@@ -1,16 +1,41 @@
 package com.example.nlwebspringai.mcp.service;
 
+import com.example.nlwebspringai.journal.EventJournal;
+import com.example.nlwebspringai.journal.JournalEvent;
+import com.example.nlwebspringai.journal.JournalReader;
 import com.example.nlwebspringai.mcp.client.PlaywrightMcpClient;
 import com.example.nlwebspringai.mcp.model.*;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotStore;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
+import com.example.nlwebspringai.resilience.CircuitBreaker;
+import com.example.nlwebspringai.resilience.CircuitOpenException;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -20,9 +45,21 @@ class PlaywrightMcpServiceTest {
     @Mock
     private PlaywrightMcpClient mockPlaywrightMcpClient;
 
-    @InjectMocks
+    @Mock
+    private SnapshotStore mockSnapshotStore;
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("playwright-mcp",
+            new CircuitBreaker.Settings(0.5, 4, 2, Duration.ofMinutes(1), 1));
+
     private PlaywrightMcpService playwrightMcpService;
 
+    @BeforeEach
+    void setUp() {
+        playwrightMcpService = new PlaywrightMcpService(mockPlaywrightMcpClient, mockSnapshotStore,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), circuitBreaker,
+                Retry.backoff(2, Duration.ofMillis(1)), EventJournal.disabled());
+    }
+
     @Test
     void navigate_shouldCallClientWithNavigateRequest() {
         String testUrl = "http://example.com";
@@ -54,6 +91,62 @@ class PlaywrightMcpServiceTest {
         verify(mockPlaywrightMcpClient).sendCommand(any(SnapshotRequest.class));
     }
 
+    @Test
+    void takeSnapshot_concurrentCallersOnOneBrowser_shouldShareOneMcpStreamAndRecordPerSession() {
+        McpResponse snapshot = new McpResponse();
+        snapshot.setType("snapshot");
+        snapshot.setData(JsonNodeFactory.instance.objectNode().put("url", "http://example.com"));
+        Sinks.Many<McpResponse> mcpStream = Sinks.many().unicast().onBackpressureBuffer();
+        when(mockPlaywrightMcpClient.routeKey(any())).thenReturn("browser-1");
+        when(mockPlaywrightMcpClient.sendCommand(any(SnapshotRequest.class))).thenReturn(mcpStream.asFlux());
+
+        Flux<McpResponse> alice = playwrightMcpService.takeSnapshot().contextWrite(McpSessionContext.withSessionId("alice"));
+        Flux<McpResponse> anonymous = playwrightMcpService.takeSnapshot();
+        StepVerifier.create(Flux.merge(alice, anonymous))
+                .then(() -> {
+                    mcpStream.tryEmitNext(snapshot);
+                    mcpStream.tryEmitComplete();
+                })
+                .expectNext(snapshot, snapshot)
+                .verifyComplete();
+
+        verify(mockPlaywrightMcpClient, times(1)).sendCommand(any(SnapshotRequest.class));
+        verify(mockSnapshotStore).recordInBackground("alice", snapshot.getData());
+        verify(mockSnapshotStore).recordInBackground(null, snapshot.getData());
+    }
+
+    @Test
+    void takeSnapshot_afterClick_shouldNotJoinSnapshotStartedBeforeIt() {
+        McpResponse beforeClick = snapshotOf("Cart (0)");
+        McpResponse afterClick = snapshotOf("Cart (1)");
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        Sinks.Many<McpResponse> firstStream = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<McpResponse> secondStream = Sinks.many().unicast().onBackpressureBuffer();
+        when(mockPlaywrightMcpClient.routeKey(any())).thenReturn("browser-1");
+        when(mockPlaywrightMcpClient.sendCommand(any(SnapshotRequest.class))).thenReturn(firstStream.asFlux(), secondStream.asFlux());
+        when(mockPlaywrightMcpClient.sendCommand(any(ClickRequest.class))).thenReturn(Flux.just(ack));
+        List<McpResponse> other = new CopyOnWriteArrayList<>();
+        List<McpResponse> afterOwnClick = new CopyOnWriteArrayList<>();
+        List<McpResponse> concurrentWithIt = new CopyOnWriteArrayList<>();
+
+        // Another client's snapshot is still in flight while this client clicks and then asks for a snapshot.
+        playwrightMcpService.takeSnapshot().subscribe(other::add);
+        StepVerifier.create(playwrightMcpService.clickElement("e1", "Add to cart")).expectNext(ack).verifyComplete();
+        playwrightMcpService.takeSnapshot().subscribe(afterOwnClick::add);
+        playwrightMcpService.takeSnapshot().subscribe(concurrentWithIt::add);
+        firstStream.tryEmitNext(beforeClick);
+        firstStream.tryEmitComplete();
+        secondStream.tryEmitNext(afterClick);
+        secondStream.tryEmitComplete();
+
+        assertEquals(List.of(beforeClick), other);
+        assertEquals(List.of(afterClick), afterOwnClick);
+        // With no page change in between, a snapshot still joins the one in flight.
+        assertEquals(List.of(afterClick), concurrentWithIt);
+        verify(mockPlaywrightMcpClient, times(2)).sendCommand(any(SnapshotRequest.class));
+    }
+
     @Test
     void clickElement_shouldCallClientWithClickRequest() {
         String ref = "element123";
@@ -89,4 +182,112 @@ class PlaywrightMcpServiceTest {
 
         verify(mockPlaywrightMcpClient).sendCommand(any(TypeRequest.class));
     }
+
+    @Test
+    void navigate_failingBeforeFirstEvent_shouldBeRetried() {
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        List<McpBaseRequest> attempts = new CopyOnWriteArrayList<>();
+        when(mockPlaywrightMcpClient.sendCommand(any(NavigateRequest.class))).thenAnswer(invocation -> {
+            attempts.add(invocation.getArgument(0));
+            return attempts.size() == 1 ? Flux.error(new IOException("connection reset")) : Flux.just(ack);
+        });
+
+        StepVerifier.create(playwrightMcpService.navigate("http://example.com"))
+                .expectNext(ack)
+                .verifyComplete();
+
+        assertEquals(2, attempts.size());
+        // A late answer to the first attempt must not be taken for the retry's.
+        assertNotEquals(attempts.get(0).getId(), attempts.get(1).getId());
+        assertEquals(((NavigateRequest) attempts.get(0)).getParams(), ((NavigateRequest) attempts.get(1)).getParams());
+    }
+
+    @Test
+    void navigate_failingAfterFirstEvent_shouldNotBeRetried() {
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockPlaywrightMcpClient.sendCommand(any(NavigateRequest.class)))
+                .thenReturn(Flux.concat(Flux.just(ack), Flux.error(new IOException("connection reset"))));
+
+        StepVerifier.create(playwrightMcpService.navigate("http://example.com"))
+                .expectNext(ack)
+                .verifyError(IOException.class);
+
+        verify(mockPlaywrightMcpClient, times(1)).sendCommand(any(NavigateRequest.class));
+    }
+
+    @Test
+    void click_failing_shouldNotBeRetriedAndShouldOpenTheCircuit() {
+        when(mockPlaywrightMcpClient.sendCommand(any(ClickRequest.class)))
+                .thenReturn(Flux.error(new IOException("connection refused")));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(playwrightMcpService.clickElement("ref-1", "Login"))
+                    .verifyError(IOException.class);
+        }
+        StepVerifier.create(playwrightMcpService.clickElement("ref-1", "Login"))
+                .verifyError(CircuitOpenException.class);
+
+        verify(mockPlaywrightMcpClient, times(2)).sendCommand(any(ClickRequest.class));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void typeInElement_shouldBeJournaledWithoutTheText(@TempDir Path dir) throws Exception {
+        EventJournal journal = new EventJournal(true, dir, 64, DataSize.ofKilobytes(64), 1, 1.0, true, 1024);
+        PlaywrightMcpService journaled = new PlaywrightMcpService(mockPlaywrightMcpClient, mockSnapshotStore,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), circuitBreaker,
+                Retry.backoff(2, Duration.ofMillis(1)), journal);
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockPlaywrightMcpClient.sendCommand(any(TypeRequest.class))).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(journaled.typeInElement("e3", "Password", "hunter2", true))
+                .expectNext(ack)
+                .verifyComplete();
+        journal.close();
+
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        assertEquals(List.of(JournalEvent.Type.MCP_SENT, JournalEvent.Type.MCP_EVENT, JournalEvent.Type.MCP_DONE),
+                entries.stream().map(JournalReader.Entry::type).toList());
+        assertEquals("browser_type", entries.get(0).name());
+        assertEquals("e3", entries.get(0).fields().get("params.ref"));
+        assertEquals("[redacted 7 chars]", entries.get(0).fields().get("params.text"));
+        assertEquals("ack", entries.get(1).name());
+    }
+
+    @Test
+    void journal_shouldKeyEventsByCorrelationIdAndKeepWhatAFailedCommandSent(@TempDir Path dir) throws Exception {
+        // Sampling leaves every request out, so only the failure, and what it sent, are kept.
+        EventJournal journal = new EventJournal(true, dir, 64, DataSize.ofKilobytes(64), 1, 0.0, true, 1024);
+        PlaywrightMcpService journaled = new PlaywrightMcpService(mockPlaywrightMcpClient, mockSnapshotStore,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), circuitBreaker,
+                Retry.backoff(2, Duration.ofMillis(1)), journal);
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockPlaywrightMcpClient.sendCommand(any(WaitRequest.class))).thenReturn(Flux.just(ack));
+        when(mockPlaywrightMcpClient.sendCommand(any(ClickRequest.class))).thenReturn(Flux.error(new IOException("connection reset")));
+
+        StepVerifier.create(journaled.waitFor(1).contextWrite(Context.of(EventJournal.CORRELATION_ID_KEY, "request-1")))
+                .expectNext(ack)
+                .verifyComplete();
+        StepVerifier.create(journaled.clickElement("e3", "Login").contextWrite(Context.of(EventJournal.CORRELATION_ID_KEY, "request-2")))
+                .verifyError(IOException.class);
+        journal.close();
+
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        assertEquals(List.of(JournalEvent.Type.MCP_SENT, JournalEvent.Type.MCP_FAILED),
+                entries.stream().map(JournalReader.Entry::type).toList());
+        assertEquals(List.of("request-2", "request-2"), entries.stream().map(JournalReader.Entry::id).toList());
+        assertEquals("e3", entries.get(0).fields().get("params.ref"));
+        assertEquals(entries.get(0).fields().get("request"), entries.get(1).fields().get("request"));
+    }
+
+    private static McpResponse snapshotOf(String cartLabel) {
+        McpResponse snapshot = new McpResponse();
+        snapshot.setType("snapshot");
+        snapshot.setData(JsonNodeFactory.instance.objectNode().put("url", "http://example.com").put("title", cartLabel));
+        return snapshot;
+    }
 }
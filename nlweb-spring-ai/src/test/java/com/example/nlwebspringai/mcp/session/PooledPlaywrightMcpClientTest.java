@@ -0,0 +1,129 @@
+package com.example.nlwebspringai.mcp.session;
+
+import com.example.nlwebspringai.mcp.client.PlaywrightMcpClient;
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PooledPlaywrightMcpClientTest {
+
+    private PooledPlaywrightMcpClient pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void sendCommand_sameClientSession_shouldStickToOneEndpoint() {
+        pool = new PooledPlaywrightMcpClient(List.of("http://mcp-a/sse", "http://mcp-b/sse"), 1, 4, 0,
+                Duration.ofMinutes(10), false, url -> command -> Flux.just(responseFrom(url)));
+
+        String first = endpointFor("alice");
+        String again = endpointFor("alice");
+        String other = endpointFor("bob");
+
+        assertEquals(first, again);
+        assertNotEquals(first, other);
+        assertEquals(2, pool.bindingCount());
+    }
+
+    @Test
+    void sendCommand_anonymousRequest_shouldStayOnOneSessionWithoutBinding() {
+        Sinks.Many<McpResponse> streamA = Sinks.many().replay().all();
+        pool = new PooledPlaywrightMcpClient(List.of("http://mcp-a/sse", "http://mcp-b/sse"), 1, 4, 0, Duration.ofMinutes(10), false,
+                url -> command -> url.equals("http://mcp-a/sse") ? streamA.asFlux() : Flux.just(responseFrom(url)));
+
+        // Two pipelined commands of one request: the second is routed while the first still keeps its session busy.
+        StepVerifier.create(Flux.merge(pool.sendCommand(new SnapshotRequest()), pool.sendCommand(new SnapshotRequest()))
+                        .map(McpResponse::getId)
+                        .contextWrite(McpSessionContext.withRequestAffinity()))
+                .then(() -> {
+                    streamA.tryEmitNext(responseFrom("http://mcp-a/sse"));
+                    streamA.tryEmitComplete();
+                })
+                .expectNext("http://mcp-a/sse", "http://mcp-a/sse")
+                .verifyComplete();
+        assertEquals(0, pool.bindingCount());
+    }
+
+    @Test
+    void routeKey_perCommandSlotsOfOneEndpoint_shouldNameTheEndpoint() {
+        pool = new PooledPlaywrightMcpClient(List.of("http://mcp-a/sse"), 2, 4, 0, Duration.ofMinutes(10), false,
+                url -> command -> Flux.just(responseFrom(url)));
+
+        assertEquals("http://mcp-a/sse", pool.routeKey(Context.of(McpSessionContext.SESSION_ID_KEY, "alice")));
+        assertEquals("http://mcp-a/sse", pool.routeKey(Context.of(McpSessionContext.SESSION_ID_KEY, "bob")));
+    }
+
+    @Test
+    void sendCommand_beyondMaxInFlight_shouldQueueUntilSlotIsReleased() {
+        Sinks.Many<McpResponse> firstStream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger started = new AtomicInteger();
+        pool = new PooledPlaywrightMcpClient(List.of("http://mcp-a/sse"), 1, 1, 0, Duration.ofMinutes(10), false,
+                url -> command -> {
+                    int n = started.incrementAndGet();
+                    return n == 1 ? firstStream.asFlux() : Flux.just(responseFrom(url));
+                });
+
+        StepVerifier first = StepVerifier.create(pool.sendCommand(new SnapshotRequest())
+                        .contextWrite(McpSessionContext.withSessionId("alice")))
+                .expectNextCount(1)
+                .expectComplete()
+                .verifyLater();
+        StepVerifier second = StepVerifier.create(pool.sendCommand(new SnapshotRequest())
+                        .contextWrite(McpSessionContext.withSessionId("alice")))
+                .expectNextCount(1)
+                .expectComplete()
+                .verifyLater();
+
+        assertEquals(1, started.get());
+
+        firstStream.tryEmitNext(responseFrom("http://mcp-a/sse"));
+        firstStream.tryEmitComplete();
+
+        first.verify(Duration.ofSeconds(1));
+        second.verify(Duration.ofSeconds(1));
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void evictIdle_shouldReleaseBindingsOlderThanIdleTimeout() throws InterruptedException {
+        pool = new PooledPlaywrightMcpClient(List.of("http://mcp-a/sse"), 1, 4, 0, Duration.ofMillis(20), false,
+                url -> command -> Flux.just(responseFrom(url)));
+        endpointFor("alice");
+
+        Thread.sleep(50);
+        pool.evictIdle();
+
+        assertEquals(0, pool.bindingCount());
+    }
+
+    private String endpointFor(String sessionId) {
+        return pool.sendCommand(new SnapshotRequest())
+                .contextWrite(McpSessionContext.withSessionId(sessionId))
+                .blockLast()
+                .getId();
+    }
+
+    private static McpResponse responseFrom(String url) {
+        McpResponse response = new McpResponse();
+        response.setId(url);
+        response.setType("snapshot");
+        return response;
+    }
+}
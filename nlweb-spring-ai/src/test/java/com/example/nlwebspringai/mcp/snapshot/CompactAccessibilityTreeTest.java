@@ -0,0 +1,107 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.AccessibleNode;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactAccessibilityTreeTest {
+
+    @Test
+    void from_shouldPreserveTreeShapeAndFields() {
+        StringPool strings = new StringPool();
+        CompactAccessibilityTree tree = CompactAccessibilityTree.from(snapshot(), strings);
+
+        assertEquals(5, tree.size());
+        assertEquals("https://example.com", tree.getUrl());
+        List<AccessibleNode> roots = tree.roots();
+        assertEquals(List.of("r1", "r5"), roots.stream().map(AccessibleNode::getRef).toList());
+
+        AccessibleNode main = roots.get(0);
+        assertEquals("main", main.getRole());
+        assertEquals(List.of("r2", "r3"), main.getChildren().stream().map(AccessibleNode::getRef).toList());
+
+        AccessibleNode search = main.getChildren().get(0);
+        assertEquals("Search", search.getName());
+        assertEquals(Map.of("type", "search", "placeholder", "Search"), search.getAttributes());
+        assertEquals("search", tree.attributeOf(2, "type"));
+
+        AccessibleNode link = main.getChildren().get(1).getChildren().get(0);
+        assertEquals("Docs", link.getName(), "name should fall back to text, as AccessibleElement does");
+        assertNull(link.getAttributes().get("type"));
+        assertTrue(link.getChildren().isEmpty());
+        assertEquals(3, tree.parentOf(4));
+    }
+
+    @Test
+    void snapshotsInOneHistory_shouldShareThePool() {
+        SnapshotHistory history = new SnapshotHistory(2, 1_000);
+        history.record(snapshot());
+        CompactAccessibilityTree second = history.record(snapshot());
+        CompactAccessibilityTree third = history.record(snapshot());
+
+        assertEquals(2, history.size());
+        assertSame(third, history.latest());
+        assertEquals(List.of(third, second), history.snapshots());
+        // Both copies resolve to the same pooled instance.
+        assertSame(second.nameOf(2), third.nameOf(2));
+    }
+
+    @Test
+    void fingerprint_shouldIgnoreVolatileTextButNotStructure() {
+        long fingerprint = CompactAccessibilityTree.from(snapshot(), new StringPool()).fingerprint();
+
+        SnapshotData changedText = snapshot();
+        AccessibleElement footer = changedText.getAccessibleTree().get(1);
+        footer.setText("Last updated 12:04");
+        footer.setChildren(List.of(element("r6", "text", "3 items in your cart", null, null)));
+        SnapshotData changedCount = snapshot();
+        changedCount.getAccessibleTree().get(1).setChildren(List.of(element("r6", "text", "17 items in your cart", null, null)));
+        changedCount.setUrl("https://example.com/?session=42");
+        assertEquals(CompactAccessibilityTree.from(changedText, new StringPool()).fingerprint(),
+                CompactAccessibilityTree.from(changedCount, new StringPool()).fingerprint());
+
+        SnapshotData renamed = snapshot();
+        renamed.getAccessibleTree().get(0).setName("Checkout");
+        SnapshotData moved = snapshot();
+        moved.setAccessibleTree(List.of(moved.getAccessibleTree().get(1), moved.getAccessibleTree().get(0)));
+        assertNotEquals(fingerprint, CompactAccessibilityTree.from(renamed, new StringPool()).fingerprint());
+        assertNotEquals(fingerprint, CompactAccessibilityTree.from(moved, new StringPool()).fingerprint());
+        assertEquals(fingerprint, CompactAccessibilityTree.from(snapshot(), new StringPool()).fingerprint());
+    }
+
+    private static SnapshotData snapshot() {
+        AccessibleElement search = element("r2", "textbox", "Search", null, Map.of("type", "search", "placeholder", "Search"));
+        AccessibleElement docs = element("r4", "link", null, "Docs", null);
+        AccessibleElement nav = element("r3", "navigation", "Site", null, null);
+        nav.setChildren(List.of(docs));
+        AccessibleElement main = element("r1", "main", "Main", null, null);
+        main.setChildren(List.of(search, nav));
+        AccessibleElement footer = element("r5", "contentinfo", null, null, null);
+
+        SnapshotData snapshot = new SnapshotData();
+        snapshot.setUrl("https://example.com");
+        snapshot.setTitle("Example");
+        snapshot.setAccessibleTree(List.of(main, footer));
+        return snapshot;
+    }
+
+    private static AccessibleElement element(String ref, String role, String name, String text, Map<String, String> attributes) {
+        AccessibleElement element = new AccessibleElement();
+        element.setRef(ref);
+        element.setRole(role);
+        element.setName(name);
+        element.setText(text);
+        element.setAttributes(attributes);
+        return element;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.AccessibleNode;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotIndexTest {
+
+    private final SnapshotIndex index = CompactAccessibilityTree.from(snapshot(), new StringPool()).index();
+
+    @Test
+    void lookups_shouldFindNodesByRefRoleAndToken() {
+        assertEquals("Cancel", index.byRef("cancel").getName());
+        assertNull(index.byRef("nope"));
+        assertEquals(List.of("submit", "cancel", "hidden-submit"), refs(index.byRole("BUTTON")));
+        assertEquals(List.of("email", "submit", "submit-label", "hidden-submit"), refs(index.byToken("Submit")));
+    }
+
+    @Test
+    void resolve_shouldPreferTheInteractiveVisibleMatch() {
+        SnapshotIndex.ElementMatch match = index.resolve("the blue Submit button");
+
+        assertEquals("submit", match.ref());
+        assertFalse(match.ambiguous());
+    }
+
+    @Test
+    void resolve_byAttributeAndRoleWord_shouldFindTheField() {
+        SnapshotIndex.ElementMatch match = index.resolve("email field");
+
+        assertEquals("email", match.ref());
+        assertFalse(match.ambiguous());
+    }
+
+    @Test
+    void resolve_roleOnlyWithSeveralCandidates_shouldBeAmbiguous() {
+        assertTrue(index.resolve("button").ambiguous());
+        assertNull(index.resolve("nothing like this"));
+    }
+
+    private static List<String> refs(List<AccessibleNode> nodes) {
+        return nodes.stream().map(AccessibleNode::getRef).toList();
+    }
+
+    private static SnapshotData snapshot() {
+        AccessibleElement email = element("email", "textbox", "Email", Map.of("placeholder", "you@example.com", "form", "submit-form"));
+        AccessibleElement submit = element("submit", "button", "Submit", Map.of("class", "btn btn-blue"));
+        AccessibleElement cancel = element("cancel", "button", "Cancel", Map.of("class", "btn btn-grey"));
+        AccessibleElement label = element("submit-label", "text", "Submit", null);
+        AccessibleElement hiddenSubmit = element("hidden-submit", "button", "Submit", Map.of("class", "btn btn-blue"));
+        AccessibleElement dialog = element("dialog", "dialog", "Confirm", Map.of("aria-hidden", "true"));
+        dialog.setChildren(List.of(hiddenSubmit));
+        AccessibleElement form = element("form", "form", "Sign up", null);
+        form.setChildren(List.of(email, submit, cancel, label));
+
+        SnapshotData snapshot = new SnapshotData();
+        snapshot.setAccessibleTree(List.of(form, dialog));
+        return snapshot;
+    }
+
+    private static AccessibleElement element(String ref, String role, String name, Map<String, String> attributes) {
+        AccessibleElement element = new AccessibleElement();
+        element.setRef(ref);
+        element.setRole(role);
+        element.setName(name);
+        element.setAttributes(attributes);
+        return element;
+    }
+}
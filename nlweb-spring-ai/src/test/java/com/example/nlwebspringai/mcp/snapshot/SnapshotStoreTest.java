@@ -0,0 +1,161 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotDelta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SnapshotStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SnapshotStore store = new SnapshotStore(objectMapper, 5, 10_000, 10, Duration.ofMinutes(5), false, 0.5);
+
+    @Test
+    void recordAsDelta_firstSnapshot_shouldPassThroughWithVersion() throws Exception {
+        McpResponse response = snapshot("https://example.com", "Search", "Docs", "Blog", "About");
+
+        McpResponse result = store.recordAsDelta("s1", response);
+
+        assertEquals(1, result.getData().get("version").asLong());
+        assertSame(response.getData().get("accessibleTree"), result.getData().get("accessibleTree"));
+        assertFalse(response.getData().has("version"));
+    }
+
+    @Test
+    void recordAsDelta_smallChange_shouldSendOnlyTheDifference() throws Exception {
+        store.recordAsDelta("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About"));
+
+        McpResponse result = store.recordAsDelta("s1", snapshot("https://example.com", "Search results", "Docs", "Blog", null));
+
+        assertEquals(SnapshotStore.DELTA_TYPE, result.getType());
+        assertEquals("snap", result.getId());
+        SnapshotDelta delta = objectMapper.treeToValue(result.getData(), SnapshotDelta.class);
+        assertEquals(1, delta.getBaseVersion());
+        assertEquals(2, delta.getVersion());
+        assertEquals(List.of(), delta.getAdded());
+        assertEquals(List.of("e1"), delta.getChanged().stream().map(SnapshotDelta.NodeChange::getKey).toList());
+        assertEquals("Search results", delta.getChanged().get(0).getName());
+        assertEquals("root", delta.getChanged().get(0).getParent());
+        assertEquals(List.of("e4"), delta.getRemoved());
+    }
+
+    @Test
+    void recordAsDelta_addedSibling_shouldNotMarkLaterSiblingsAsChangedBeyondTheNextOne() throws Exception {
+        store.recordAsDelta("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About"));
+        McpResponse withExtra = response("https://example.com", """
+                {"ref":"root","role":"main","children":[
+                  {"ref":"e1","role":"link","name":"Search"},
+                  {"ref":"new","role":"link","name":"New"},
+                  {"ref":"e2","role":"link","name":"Docs"},
+                  {"ref":"e3","role":"link","name":"Blog"},
+                  {"ref":"e4","role":"link","name":"About"},
+                  {"ref":"e5","role":"link","name":"Contact"}]}""");
+        store.recordAsDelta("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About"));
+
+        McpResponse result = store.recordAsDelta("s1", withExtra);
+
+        SnapshotDelta delta = objectMapper.treeToValue(result.getData(), SnapshotDelta.class);
+        assertEquals(List.of("new", "e5"), delta.getAdded().stream().map(SnapshotDelta.NodeChange::getKey).toList());
+        assertEquals("e1", delta.getAdded().get(0).getAfter());
+        assertEquals(List.of("e2"), delta.getChanged().stream().map(SnapshotDelta.NodeChange::getKey).toList());
+    }
+
+    @Test
+    void recordAsDelta_navigation_shouldSendFullSnapshot() throws Exception {
+        store.recordAsDelta("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About"));
+        McpResponse next = snapshot("https://example.com/docs", "Search", "Docs", "Blog", "About");
+
+        McpResponse result = store.recordAsDelta("s1", next);
+
+        assertEquals("snapshot", result.getType());
+        assertEquals("https://example.com/docs", result.getData().get("url").asText());
+        assertEquals(2, result.getData().get("version").asLong());
+        assertFalse(next.getData().has("version"));
+    }
+
+    @Test
+    void record_nonSnapshotPayload_shouldRecordNothing() throws Exception {
+        assertNull(store.record("s1", objectMapper.readTree("{\"accessibleTree\":\"not a tree\"}")));
+        assertNull(store.record("s1", objectMapper.readTree("[1,2]")));
+
+        assertNull(store.history("s1"));
+    }
+
+    @Test
+    void recordInBackground_shouldKeepOrderWithDeltasAndBeAwaitedByLatestRecorded() throws Exception {
+        store.recordInBackground("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About").getData());
+        store.recordInBackground("s1", snapshot("https://example.com/docs", "Search", "Docs", "Blog", "About").getData());
+
+        assertEquals("https://example.com/docs", store.latestRecorded("s1").block(Duration.ofSeconds(5)).getUrl());
+
+        McpResponse result = store.recordAsDeltaInOrder("s1",
+                snapshot("https://example.com/docs", "Search", "Docs", "Blog", null)).block(Duration.ofSeconds(5));
+
+        assertEquals(SnapshotStore.DELTA_TYPE, result.getType());
+        assertEquals(2, objectMapper.treeToValue(result.getData(), SnapshotDelta.class).getBaseVersion());
+        assertNull(store.latestRecorded("s2").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void sessions_shouldKeepSeparateHistories() throws Exception {
+        store.record("s1", snapshot("https://example.com", "Search", "Docs", "Blog", "About").getData());
+
+        assertEquals(1, store.history("s1").size());
+        assertNull(store.history("s2"));
+        assertNull(store.latest(null));
+    }
+
+    @Test
+    void requestsWithoutSessionId_shouldShareTheDefaultHistory() throws Exception {
+        store.record(null, snapshot("https://example.com", "Search", "Docs", "Blog", "About").getData());
+
+        assertEquals(1, store.history(SnapshotStore.DEFAULT_SESSION).size());
+        assertSame(store.latest(SnapshotStore.DEFAULT_SESSION), store.latest(null));
+        assertEquals(1, store.sessionCount());
+    }
+
+    @Test
+    void recordAsDelta_anonymousClientsTakingTurns_shouldEachGetFullVersionedSnapshots() throws Exception {
+        // Client A, then client B, then A again, on the same page; neither has seen the other's snapshots.
+        McpResponse forA = store.recordAsDelta(null, snapshot("https://example.com", "Search", "Docs", "Blog", "About"));
+        McpResponse forB = store.recordAsDelta(null, snapshot("https://example.com", "Search results", "Docs", "Blog", "About"));
+        McpResponse forAAgain = store.recordAsDelta(" ", snapshot("https://example.com", "Search results", "Docs", "Blog", null));
+
+        assertEquals(List.of("snapshot", "snapshot", "snapshot"), List.of(forA.getType(), forB.getType(), forAAgain.getType()));
+        assertEquals(List.of(1L, 2L, 3L), List.of(forA.getData().get("version").asLong(), forB.getData().get("version").asLong(),
+                forAAgain.getData().get("version").asLong()));
+        // Still recorded, for ref resolution and the page memo.
+        assertEquals(3, store.history(SnapshotStore.DEFAULT_SESSION).size());
+        assertEquals(4, store.latest(null).size());
+    }
+
+    private McpResponse snapshot(String url, String... linkNames) throws Exception {
+        StringBuilder children = new StringBuilder();
+        for (int i = 0; i < linkNames.length; i++) {
+            if (linkNames[i] == null) {
+                continue;
+            }
+            if (children.length() > 0) {
+                children.append(',');
+            }
+            children.append("{\"ref\":\"e").append(i + 1).append("\",\"role\":\"link\",\"name\":\"").append(linkNames[i]).append("\"}");
+        }
+        return response(url, "{\"ref\":\"root\",\"role\":\"main\",\"children\":[" + children + "]}");
+    }
+
+    private McpResponse response(String url, String root) throws Exception {
+        McpResponse response = new McpResponse();
+        response.setId("snap");
+        response.setType("snapshot");
+        response.setData(objectMapper.readTree("{\"url\":\"" + url + "\",\"accessibleTree\":[" + root + "]}"));
+        return response;
+    }
+}
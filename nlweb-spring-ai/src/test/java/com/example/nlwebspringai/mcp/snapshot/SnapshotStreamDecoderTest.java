@@ -0,0 +1,135 @@
+package com.example.nlwebspringai.mcp.snapshot;
+
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotStreamDecoderTest {
+
+    private static final String SNAPSHOT = """
+            {"id":"snap-1","type":"snapshot","data":{"url":"https://example.com","accessibleTree":[
+              {"ref":"r1","role":"main","name":"Main","children":[
+                {"ref":"r2","role":"button","name":"Search","attributes":{"class":"primary"}},
+                {"ref":"r3","role":"group","attributes":{"aria-hidden":"true"},"children":[
+                  {"ref":"r4","role":"link","name":"Hidden link"}
+                ]},
+                {"ref":"r5","role":"list","children":[
+                  {"ref":"r6","role":"link","name":"Deep link","unknown":{"nested":[1,2]}}
+                ]}
+              ]}
+            ]}}
+            """;
+
+    private final SnapshotStreamDecoder decoder = new SnapshotStreamDecoder();
+
+    @Test
+    void decode_withoutFilter_shouldEmitEveryElementInPostOrder() {
+        List<AccessibleElement> elements = decode(SnapshotFilter.all());
+
+        assertEquals(List.of("r2", "r4", "r3", "r6", "r5", "r1"), elements.stream().map(AccessibleElement::getRef).toList());
+        assertNull(elements.get(5).getChildren());
+        assertEquals("primary", elements.get(0).getAttributes().get("class"));
+    }
+
+    @Test
+    void decode_interactive_shouldSkipHiddenSubtreesAndNonInteractiveRoles() {
+        List<AccessibleElement> elements = decode(SnapshotFilter.interactive());
+
+        assertEquals(List.of("r2", "r6"), elements.stream().map(AccessibleElement::getRef).toList());
+    }
+
+    @Test
+    void decode_withMaxDepth_shouldNotDescendBelowIt() {
+        List<AccessibleElement> elements = decode(SnapshotFilter.all().withRoles(Set.of("LINK")).withMaxDepth(1));
+
+        assertEquals(List.of(), elements);
+        assertEquals(List.of("r4", "r6"), decode(SnapshotFilter.all().withRoles(Set.of("link")))
+                .stream().map(AccessibleElement::getRef).toList());
+    }
+
+    @Test
+    void decode_bareTreeArray_shouldBeAccepted() {
+        byte[] json = "[{\"ref\":\"a\",\"role\":\"button\",\"hidden\":true},{\"ref\":\"b\",\"role\":\"button\"}]"
+                .getBytes(StandardCharsets.UTF_8);
+
+        StepVerifier.create(decoder.decode(json, SnapshotFilter.interactive()).map(AccessibleElement::getRef))
+                .expectNext("b")
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_hiddenAfterChildren_shouldDropTheAlreadyReadSubtree() {
+        String json = """
+                {"accessibleTree":[
+                  {"ref":"g1","role":"group","children":[
+                    {"ref":"a","role":"button","children":[{"ref":"b","role":"link"}]}
+                  ],"attributes":{"aria-hidden":"true"}},
+                  {"ref":"g2","role":"group","children":[{"ref":"c","role":"button"}],"hidden":true},
+                  {"ref":"g3","role":"group","children":[{"ref":"d","role":"button"}],"hidden":false}
+                ]}""";
+
+        StepVerifier.create(decoder.decode(json, SnapshotFilter.interactive()).map(AccessibleElement::getRef))
+                .expectNext("d")
+                .verifyComplete();
+        StepVerifier.create(decoder.decode(json, SnapshotFilter.all()).map(AccessibleElement::getRef))
+                .expectNext("b", "a", "g1", "c", "g2", "d", "g3")
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_nonScalarHidden_shouldBeSkippedWithoutLosingLaterFields() {
+        String json = """
+                [{"ref":"a","role":"button","hidden":{"reason":"x","name":"Wrong"},"name":"Right"},
+                 {"ref":"b","role":"button","hidden":[true],"text":"Still visible"}]""";
+
+        List<AccessibleElement> elements = decoder.decode(json, SnapshotFilter.interactive()).collectList().block();
+
+        assertEquals(List.of("a", "b"), elements.stream().map(AccessibleElement::getRef).toList());
+        assertEquals("Right", elements.get(0).getName());
+        assertEquals("Still visible", elements.get(1).getText());
+    }
+
+    @Test
+    void decodeTree_shouldBuildTheSameCompactTreeAsTheSnapshotData() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode data = objectMapper.readTree(SNAPSHOT).get("data");
+        SnapshotData snapshot = objectMapper.treeToValue(data, SnapshotData.class);
+
+        CompactAccessibilityTree streamed = decoder.decodeTree(data.get("accessibleTree").traverse(), "https://example.com", null, new StringPool());
+        CompactAccessibilityTree expected = CompactAccessibilityTree.from(snapshot, new StringPool());
+
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.refOf(i), streamed.refOf(i));
+            assertEquals(expected.nameOf(i), streamed.nameOf(i));
+            assertEquals(expected.parentOf(i), streamed.parentOf(i));
+            assertEquals(expected.attributesOf(i), streamed.attributesOf(i));
+            assertEquals(expected.node(i).getChildren().size(), streamed.node(i).getChildren().size());
+        }
+        assertEquals(expected.fingerprint(), streamed.fingerprint());
+        assertEquals("https://example.com", streamed.getUrl());
+    }
+
+    @Test
+    void decode_malformedJson_shouldError() {
+        byte[] json = "{\"accessibleTree\":[{\"ref\":\"a\",".getBytes(StandardCharsets.UTF_8);
+
+        StepVerifier.create(decoder.decode(json, SnapshotFilter.all()))
+                .expectError()
+                .verify();
+    }
+
+    private List<AccessibleElement> decode(SnapshotFilter filter) {
+        return decoder.decode(SNAPSHOT.getBytes(StandardCharsets.UTF_8), filter).collectList().block();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.nlwebspringai.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final PipelineMetrics metrics;
+
+    PipelineMetricsTest() {
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        metrics = new PipelineMetrics(registry, observationRegistry);
+    }
+
+    @Test
+    void timeCommand_shouldRecordFirstEventDurationAndEventCount() {
+        StepVerifier.create(metrics.timeCommand("browser_click", "r1", Flux.just("a", "b", "c")))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        assertEquals(1, registry.get("mcp.command.first.event").tag("command", "browser_click").timer().count());
+        assertEquals(1, registry.get("mcp.command.duration").tag("command", "browser_click")
+                .tag("outcome", "success").timer().count());
+        assertEquals(3.0, registry.get("mcp.command.events").tag("command", "browser_click").summary().totalAmount());
+        assertEquals(0.0, registry.get("mcp.commands.in.flight").gauge().value());
+    }
+
+    @Test
+    void timeCommand_error_shouldRecordErrorOutcome() {
+        StepVerifier.create(metrics.timeCommand("browser_navigate", "r2", Flux.error(new IllegalStateException("down"))))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(1, registry.get("mcp.command.duration").tag("command", "browser_navigate")
+                .tag("outcome", "error").timer().count());
+        assertEquals(0, registry.get("mcp.command.first.event").tag("command", "browser_navigate").timer().count());
+        assertEquals(0.0, registry.get("mcp.commands.in.flight").gauge().value());
+    }
+
+    @Test
+    void requestTiming_errorAction_shouldCountAsError() {
+        StepVerifier.create(metrics.observeRequest(timing -> {
+                    timing.action("ERROR");
+                    return Flux.just("error response");
+                }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, registry.get("nlweb.request").tag("action", "error").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void requestTiming_unknownAction_shouldBeTaggedOther() {
+        StepVerifier.create(metrics.observeTranslation(timing -> {
+                    timing.action("scroll-to-the-very-bottom");
+                    return Mono.just("command");
+                }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, registry.get("nlweb.translation").tag("action", "other").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void stages_shouldBeObservedAsChildrenOfTheRequest() {
+        StepVerifier.create(metrics.observeRequest(timing -> metrics.observeTranslation(translation -> Mono.just("navigate"))
+                        .flatMapMany(action -> metrics.timeCommand("browser_navigate", "r3", Flux.just("done")))))
+                .expectNext("done")
+                .verifyComplete();
+
+        assertEquals(3, stopped.size());
+        Observation.Context request = stopped("process-nl");
+        assertNull(request.getParentObservation());
+        assertSame(request, stopped("nlweb translate").getParentObservation().getContextView());
+        assertSame(request, stopped("mcp browser_navigate").getParentObservation().getContextView());
+        assertEquals("r3", stopped("mcp browser_navigate").getHighCardinalityKeyValue("mcp.request.id").getValue());
+    }
+
+    private Observation.Context stopped(String contextualName) {
+        return stopped.stream()
+                .filter(context -> contextualName.equals(context.getContextualName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
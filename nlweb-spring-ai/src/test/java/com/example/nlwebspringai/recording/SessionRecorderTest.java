@@ -0,0 +1,94 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.model.McpCommand;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRecorderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void record_shouldAppendQueryCommandAndResponsesAsOneLine(@TempDir Path dir) throws Exception {
+        SessionRecorder recorder = new SessionRecorder(true, dir.resolve("nightly"), "run.ndjson", true, objectMapper);
+        McpCommand command = new McpCommand("navigate", "https://example.com", Map.of());
+
+        StepVerifier.create(recorder.record("open example.com", command, Flux.just(response("ack"), response("stream_end")))
+                        .contextWrite(McpSessionContext.withSessionId("s1")))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        List<String> lines = readLines(recorder, dir.resolve("nightly").resolve("run.ndjson"), 1);
+        assertFalse(lines.get(0).contains("null"), lines.get(0));
+        SessionRecord record = objectMapper.readValue(lines.get(0), SessionRecord.class);
+        assertEquals("s1", record.sessionId());
+        assertEquals("open example.com", record.query());
+        assertEquals("https://example.com", record.command().getTarget());
+        assertFalse(record.redacted());
+        assertEquals(List.of("ack", "stream_end"), record.responses().stream().map(SessionRecord.RecordedResponse::type).toList());
+        assertEquals("complete", record.outcome());
+    }
+
+    @Test
+    void record_typingCommand_shouldRedactTheTextAndKeepOnlyDigestsOfTheData(@TempDir Path dir) throws Exception {
+        SessionRecorder recorder = new SessionRecorder(true, dir, "run.ndjson", true, objectMapper);
+        McpCommand type = new McpCommand("type", "e7", Map.of("text", "hunter2", "elementDescription", "password"));
+        McpCommand plan = McpCommand.plan(List.of(new McpCommand("click", "e3", Map.of()), type));
+        McpResponse snapshot = response("snapshot");
+        snapshot.setData(objectMapper.readTree("{\"url\":\"https://example.com\",\"accessibleTree\":[{\"ref\":\"e7\",\"name\":\"hunter2\"}]}"));
+
+        StepVerifier.create(recorder.record("type \"hunter2\" into e7 after clicking e3", plan, Flux.just(snapshot)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        List<String> lines = readLines(recorder, dir.resolve("run.ndjson"), 1);
+        assertFalse(lines.get(0).contains("hunter2"), lines.get(0));
+        SessionRecord record = objectMapper.readValue(lines.get(0), SessionRecord.class);
+        assertTrue(record.redacted());
+        assertEquals("[redacted 40 chars]", record.query());
+        assertEquals("[redacted 7 chars]", record.command().getSteps().get(1).getParams().get("text"));
+        assertEquals("password", record.command().getSteps().get(1).getParams().get("elementDescription"));
+        assertTrue(record.responses().get(0).digest().startsWith("page:"));
+        // The command being executed is left alone.
+        assertEquals("hunter2", type.getParams().get("text"));
+    }
+
+    @Test
+    void record_disabled_shouldPassResponsesThrough(@TempDir Path dir) {
+        SessionRecorder recorder = new SessionRecorder(false, dir, "run.ndjson", true, objectMapper);
+        Flux<McpResponse> responses = Flux.just(response("ack"));
+
+        assertEquals(responses, recorder.record("q", new McpCommand("snapshot", null, Map.of()), responses));
+    }
+
+    private static List<String> readLines(SessionRecorder recorder, Path file, int expected) throws Exception {
+        for (int i = 0; i < 100 && (!Files.exists(file) || Files.readAllLines(file).size() < expected); i++) {
+            Thread.sleep(20);
+        }
+        recorder.close();
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(expected, lines.size());
+        return lines;
+    }
+
+    private static McpResponse response(String type) {
+        McpResponse response = new McpResponse();
+        response.setId("r1");
+        response.setType(type);
+        return response;
+    }
+}
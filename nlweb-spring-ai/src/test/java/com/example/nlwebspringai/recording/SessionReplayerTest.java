@@ -0,0 +1,154 @@
+package com.example.nlwebspringai.recording;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.service.OrchestrationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionReplayerTest {
+
+    @Mock
+    private OrchestrationService mockOrchestrationService;
+
+    @TempDir
+    private Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SessionReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        replayer = new SessionReplayer(mockOrchestrationService, objectMapper, dir, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void replay_shouldExecuteRecordedCommandsAndReportDivergence() throws Exception {
+        McpCommand navigate = new McpCommand("navigate", "https://example.com", Map.of());
+        McpCommand snapshot = new McpCommand("snapshot", null, Map.of());
+        List<SessionRecord> records = List.of(
+                new SessionRecord(1_000, "s1", "open example.com", navigate, false, List.of(recorded("ack", null)), "complete"),
+                new SessionRecord(1_500, "s1", "take a snapshot", snapshot, false, List.of(recorded("snapshot", "Login")), "complete"),
+                new SessionRecord(2_000, "s1", "log in", new McpCommand("error", "nlweb_service", Map.of()), false, List.of(), "complete"),
+                new SessionRecord(2_500, "s1", "[redacted 22 chars]", new McpCommand("type", "e7", Map.of("text", "[redacted 7 chars]")),
+                        true, List.of(recorded("ack", null)), "complete"));
+        Files.write(dir.resolve("nightly.ndjson"), records.stream().map(this::json).toList());
+        when(mockOrchestrationService.execute(any(McpCommand.class))).thenAnswer(invocation -> {
+            McpCommand command = invocation.getArgument(0);
+            // Ids differ between runs and must not count as a divergence.
+            return "navigate".equals(command.getAction())
+                    ? Flux.just(response("other-id", "ack", null))
+                    : Flux.just(response("other-id", "snapshot", "Logout"));
+        });
+
+        StepVerifier.create(replayer.replay("nightly.ndjson", 0))
+                .consumeNextWith(report -> {
+                    assertEquals(2, report.replayed());
+                    assertEquals(2, report.skipped());
+                    assertEquals(1, report.divergences().size());
+                    ReplayReport.Divergence divergence = report.divergences().get(0);
+                    assertEquals(1, divergence.index());
+                    assertEquals("take a snapshot", divergence.query());
+                })
+                .verifyComplete();
+        verify(mockOrchestrationService).execute(argThat(command -> "https://example.com".equals(command.getTarget())));
+    }
+
+    @Test
+    void replay_withSpeed_shouldKeepCompressedSpacing() {
+        McpCommand snapshot = new McpCommand("snapshot", null, Map.of());
+        List<SessionRecord> records = List.of(
+                new SessionRecord(0, "s1", "snapshot", snapshot, false, List.of(recorded("snapshot", "a")), "complete"),
+                new SessionRecord(2_000, "s1", "snapshot", snapshot, false, List.of(recorded("snapshot", "a")), "complete"));
+        when(mockOrchestrationService.execute(any(McpCommand.class)))
+                .thenAnswer(invocation -> Flux.just(response("r", "snapshot", "a")));
+
+        StepVerifier.create(replayer.replay("test", records, 10))
+                .consumeNextWith(report -> {
+                    assertTrue(report.durationMillis() >= 190, "took " + report.durationMillis() + " ms");
+                    assertTrue(report.divergences().isEmpty());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void compare_shouldFindMissingAndExtraResponses() {
+        List<SessionRecord.RecordedResponse> recorded = List.of(recorded("ack", null), recorded("stream_end", null));
+
+        assertEquals("1 responses, recorded 2",
+                SessionReplayer.compare(recorded, List.of(response("x", "ack", null)), false).orElseThrow());
+        List<McpResponse> longer = List.of(response("x", "ack", null), response("x", "stream_end", null), response("x", "ack", null));
+        assertTrue(SessionReplayer.compare(recorded, longer, false).isPresent());
+        assertTrue(SessionReplayer.compare(recorded, longer, true).isEmpty());
+    }
+
+    @Test
+    void compare_snapshots_shouldIgnoreVersionsAndContentButNotStructure() throws Exception {
+        McpResponse recordedSnapshot = snapshot(1, "Cart (1)", "Checkout");
+        List<SessionRecord.RecordedResponse> recorded = List.of(SessionRecord.RecordedResponse.of(5, recordedSnapshot));
+
+        assertTrue(SessionReplayer.compare(recorded, List.of(snapshot(7, "Cart (3)", "Checkout")), false).isEmpty());
+        assertEquals("response 0 ('snapshot') has different data",
+                SessionReplayer.compare(recorded, List.of(snapshot(1, "Cart (1)", "Sign in")), false).orElseThrow());
+    }
+
+    @Test
+    void replay_recordingOutsideTheDirectory_shouldBeRejected() {
+        StepVerifier.create(replayer.replay("../etc/passwd", 0))
+                .verifyError(ResponseStatusException.class);
+    }
+
+    private String json(SessionRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SessionRecord.RecordedResponse recorded(String type, String data) {
+        return SessionRecord.RecordedResponse.of(5, response("recorded-id", type, data));
+    }
+
+    private McpResponse snapshot(long version, String cart, String button) throws Exception {
+        McpResponse response = new McpResponse();
+        response.setId("snap-" + version);
+        response.setType("snapshot");
+        response.setData(objectMapper.readTree("""
+                {"url":"https://shop.example.com","version":%d,"accessibleTree":[{"ref":"e1","role":"main","children":[
+                  {"ref":"e2","role":"link","name":"%s"},{"ref":"e3","role":"button","name":"%s"}]}]}
+                """.formatted(version, cart, button)));
+        return response;
+    }
+
+    private static McpResponse response(String id, String type, String data) {
+        McpResponse response = new McpResponse();
+        response.setId(id);
+        response.setType(type);
+        response.setData(data != null ? TextNode.valueOf(data) : null);
+        return response;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.nlwebspringai.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    private static CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker("test", new CircuitBreaker.Settings(0.5, 4, 4, openDuration, 2));
+    }
+
+    @Test
+    void failureRateReached_shouldOpenAndFailFast() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(breaker.protect(Mono.just("ok"))).expectNext("ok").verifyComplete();
+            StepVerifier.create(breaker.protect(Mono.error(new IOException("down")))).verifyError(IOException.class);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        StepVerifier.create(breaker.protect(Mono.just("not called"))).verifyError(CircuitOpenException.class);
+    }
+
+    @Test
+    void clientErrors_shouldNotOpen() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(Mono.error(WebClientResponseException.create(
+                    HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null)))).verifyError();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbesSucceeding_shouldClose() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(Mono.error(new IOException("down")))).verifyError(IOException.class);
+        }
+
+        StepVerifier.create(breaker.protect(Mono.just("probe"))).expectNext("probe").verifyComplete();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        StepVerifier.create(breaker.protect(Flux.just("probe", "more"))).expectNextCount(2).verifyComplete();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbeFailing_shouldReopen() {
+        CircuitBreaker breaker = new CircuitBreaker("test", new CircuitBreaker.Settings(0.5, 4, 4, Duration.ofMillis(50), 2));
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(breaker.protect(Mono.error(new IOException("down")))).verifyError(IOException.class);
+        }
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100)).then(breaker.protect(Mono.error(new IOException("still down")))))
+                .verifyError(IOException.class);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        StepVerifier.create(breaker.protect(Mono.just("not called"))).verifyError(CircuitOpenException.class);
+    }
+}
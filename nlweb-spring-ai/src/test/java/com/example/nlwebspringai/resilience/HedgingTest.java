@@ -0,0 +1,59 @@
+package com.example.nlwebspringai.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HedgingTest {
+
+    @Test
+    void slowCall_shouldBeHedgedAndTheHedgeShouldWin() {
+        Hedging hedging = new Hedging("test", new Hedging.Settings(0.5, Duration.ofMillis(20), 1, 1.0));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hedging.bindTo(registry);
+        assertNull(hedging.currentDelay());
+        hedging.hedge(() -> Mono.just("warm-up")).block();
+
+        AtomicInteger calls = new AtomicInteger();
+        StepVerifier.create(hedging.hedge(() -> calls.incrementAndGet() == 1 ? Mono.never() : Mono.just("hedge")))
+                .expectNext("hedge")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("nlweb.hedge.sent").functionCounter().count());
+        assertEquals(1.0, registry.get("nlweb.hedge.won").functionCounter().count());
+    }
+
+    @Test
+    void noBudget_shouldNotHedge() {
+        Hedging hedging = new Hedging("test", new Hedging.Settings(0.5, Duration.ofMillis(20), 1, 0));
+        hedging.hedge(() -> Mono.just("warm-up")).block();
+
+        AtomicInteger calls = new AtomicInteger();
+        StepVerifier.create(hedging.hedge(() -> {
+                    calls.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).thenReturn("primary");
+                }))
+                .expectNext("primary")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void bothCallsFailing_shouldSurfaceTheFailure() {
+        Hedging hedging = new Hedging("test", new Hedging.Settings(0.5, Duration.ofMillis(20), 1, 1.0));
+        hedging.hedge(() -> Mono.just("warm-up")).block();
+
+        StepVerifier.create(hedging.hedge(() -> Mono.delay(Duration.ofMillis(50))
+                        .then(Mono.<String>error(new IllegalStateException("down")))))
+                .verifyErrorMessage("down");
+    }
+}
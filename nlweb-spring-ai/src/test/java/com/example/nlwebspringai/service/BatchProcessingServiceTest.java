@@ -0,0 +1,82 @@
+package com.example.nlwebspringai.service;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.model.BatchMcpResponse;
+import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchProcessingServiceTest {
+
+    @Mock
+    private OrchestrationService mockOrchestrationService;
+
+    private BatchProcessingService batchProcessingService;
+
+    @BeforeEach
+    void setUp() {
+        batchProcessingService = new BatchProcessingService(mockOrchestrationService, new ObjectMapper(), 2, 100);
+    }
+
+    @Test
+    void processBatch_failingItem_shouldNotAbortOtherItems() {
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockOrchestrationService.processNaturalLanguageCommand("good")).thenReturn(Flux.just(ack));
+        when(mockOrchestrationService.processNaturalLanguageCommand("bad")).thenReturn(Flux.error(new RuntimeException("boom")));
+
+        NlWebQueryRequest tagged = new NlWebQueryRequest("good");
+        tagged.setId("tagged");
+        List<BatchMcpResponse> events = batchProcessingService.processBatch(List.of(tagged, new NlWebQueryRequest("bad")))
+                .collectSortedList(Comparator.comparingInt(BatchMcpResponse::getIndex))
+                .block();
+
+        assertEquals(4, events.size());
+        assertEquals("tagged", events.get(0).getRequestId());
+        assertEquals("ack", events.get(0).getResponse().getType());
+        assertEquals("item_end", events.get(1).getResponse().getType());
+        assertEquals("1", events.get(2).getRequestId());
+        assertEquals("error", events.get(2).getResponse().getType());
+        assertEquals("Failed to process query: boom", events.get(2).getResponse().getError());
+        assertEquals("item_end", events.get(3).getResponse().getType());
+    }
+
+    @Test
+    void processNdjsonBatch_malformedLine_shouldFailOnlyThatItem() {
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockOrchestrationService.processNaturalLanguageCommand("take a snapshot")).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(batchProcessingService.processNdjsonBatch("{not json\n\n{\"query\":\"take a snapshot\"}\n")
+                        .filter(event -> !"item_end".equals(event.getResponse().getType()))
+                        .collectSortedList(Comparator.comparingInt(BatchMcpResponse::getIndex)))
+                .consumeNextWith(events -> {
+                    assertEquals(2, events.size());
+                    assertEquals("error", events.get(0).getResponse().getType());
+                    assertEquals("ack", events.get(1).getResponse().getType());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void processBatch_overLimit_shouldBeRejected() {
+        BatchProcessingService limited = new BatchProcessingService(mockOrchestrationService, new ObjectMapper(), 2, 1);
+
+        StepVerifier.create(limited.processBatch(List.of(new NlWebQueryRequest("a"), new NlWebQueryRequest("b"))))
+                .expectError(org.springframework.web.server.ResponseStatusException.class)
+                .verify();
+    }
+}
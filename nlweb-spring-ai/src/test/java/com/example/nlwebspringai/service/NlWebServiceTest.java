@@ -1,19 +1,39 @@
 package com.example.nlwebspringai.service;
 
+import com.example.nlwebspringai.cache.TranslationCache;
 import com.example.nlwebspringai.client.NlWebClient;
+import com.example.nlwebspringai.client.ReactiveNlWebClient;
+import com.example.nlwebspringai.intent.FastPath;
+import com.example.nlwebspringai.intent.GrammarIntentMatcher;
+import com.example.nlwebspringai.limit.AdaptiveLimit;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
 import com.example.nlwebspringai.model.McpCommand;
 import com.example.nlwebspringai.model.NlWebQueryRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,9 +42,27 @@ class NlWebServiceTest {
     @Mock
     private NlWebClient mockNlWebClient;
 
-    @InjectMocks
+    @Mock
+    private ReactiveNlWebClient mockReactiveNlWebClient;
+
+    @Mock
+    private ObjectProvider<EmbeddingModel> mockEmbeddingModelProvider;
+
+    private TranslationCache translationCache;
+
     private NlWebService nlWebService;
 
+    @BeforeEach
+    void setUp() {
+        translationCache = new TranslationCache(true, 100, Duration.ofMinutes(10), false, 0.95, mockEmbeddingModelProvider);
+        nlWebService = service(new FastPath(true, List.of()));
+    }
+
+    private NlWebService service(FastPath fastPath) {
+        return new NlWebService(mockNlWebClient, mockReactiveNlWebClient, fastPath, translationCache,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), AdaptiveLimit.unlimited("translation"));
+    }
+
     @Test
     void processQuery_validQuery_shouldCallClientAndReturnResult() {
         String query = "Test query";
@@ -91,4 +129,139 @@ class NlWebServiceTest {
         assertTrue(errorCommand.getParams().containsKey("errorMessage"));
         assertEquals("Error processing query: " + exceptionMessage, errorCommand.getParams().get("errorMessage"));
     }
+
+    @Test
+    void processQueryReactive_validQuery_shouldCallReactiveClientAndReturnResult() {
+        String query = "Test query";
+        McpCommand expectedCommand = new McpCommand("action", "target", Collections.emptyMap());
+        when(mockReactiveNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(Mono.just(expectedCommand));
+
+        StepVerifier.create(nlWebService.processQueryReactive(query))
+                .expectNext(expectedCommand)
+                .verifyComplete();
+
+        verify(mockReactiveNlWebClient).translateNaturalLanguageToMcp(any(NlWebQueryRequest.class));
+    }
+
+    @Test
+    void processQueryReactive_emptyQuery_shouldReturnErrorCommandWithoutCallingClient() {
+        StepVerifier.create(nlWebService.processQueryReactive("   "))
+                .consumeNextWith(command -> {
+                    assertEquals("error", command.getAction());
+                    assertEquals("Query cannot be null or empty.", command.getParams().get("errorMessage"));
+                })
+                .verifyComplete();
+
+        verifyNoInteractions(mockReactiveNlWebClient);
+    }
+
+    @Test
+    void processQueryReactive_clientCompletesEmpty_shouldReturnErrorCommand() {
+        when(mockReactiveNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(nlWebService.processQueryReactive("Test query"))
+                .consumeNextWith(command -> {
+                    assertEquals("error", command.getAction());
+                    assertEquals("nlweb_service", command.getTarget());
+                    assertEquals("Failed to translate query to MCP command: client returned null.", command.getParams().get("errorMessage"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void processQueryReactive_clientSignalsError_shouldReturnErrorCommand() {
+        String exceptionMessage = "Client communication error";
+        when(mockReactiveNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(Mono.error(new RuntimeException(exceptionMessage)));
+
+        StepVerifier.create(nlWebService.processQueryReactive("Test query"))
+                .consumeNextWith(command -> {
+                    assertEquals("error", command.getAction());
+                    assertEquals("Error processing query: " + exceptionMessage, command.getParams().get("errorMessage"));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void processQueryReactive_repeatedQuery_shouldBeServedFromCache() {
+        McpCommand expectedCommand = new McpCommand("snapshot", null, Collections.emptyMap());
+        when(mockReactiveNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(Mono.just(expectedCommand));
+
+        StepVerifier.create(nlWebService.processQueryReactive("Take a snapshot"))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(nlWebService.processQueryReactive("  take a   SNAPSHOT. "))
+                .consumeNextWith(command -> assertEquals("snapshot", command.getAction()))
+                .verifyComplete();
+
+        verify(mockReactiveNlWebClient, times(1)).translateNaturalLanguageToMcp(any(NlWebQueryRequest.class));
+        assertEquals(1, translationCache.getHitCount());
+        assertEquals(1, translationCache.getMissCount());
+    }
+
+    @Test
+    void processQueryReactive_concurrentIdenticalQueries_shouldShareOneTranslation() {
+        Sinks.One<McpCommand> translation = Sinks.one();
+        when(mockReactiveNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(translation.asMono());
+
+        StepVerifier.create(Flux.merge(nlWebService.processQueryReactive("Take a snapshot"),
+                        nlWebService.processQueryReactive("take a snapshot.")))
+                .then(() -> translation.tryEmitError(new IllegalStateException("NLWeb down")))
+                .expectNextMatches(command -> "error".equals(command.getAction()))
+                .expectNextMatches(command -> "error".equals(command.getAction()))
+                .verifyComplete();
+
+        verify(mockReactiveNlWebClient, times(1)).translateNaturalLanguageToMcp(any(NlWebQueryRequest.class));
+    }
+
+    @Test
+    void processQuery_errorCommandFromClient_shouldNotBeCached() {
+        String query = "Test query";
+        McpCommand clientError = new McpCommand("error", "nlweb_client", Collections.singletonMap("errorMessage", "boom"));
+        when(mockNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class)))
+                .thenReturn(clientError);
+
+        nlWebService.processQuery(query);
+        nlWebService.processQuery(query);
+
+        verify(mockNlWebClient, times(2)).translateNaturalLanguageToMcp(any(NlWebQueryRequest.class));
+        assertEquals(0, translationCache.size());
+    }
+
+    @Test
+    void processQuery_unambiguousQuery_shouldBypassNlWeb() {
+        FastPath fastPath = new FastPath(true, List.of(new GrammarIntentMatcher(new ObjectMapper(),
+                new ClassPathResource("fast-path-rules.json"))));
+        NlWebService service = service(fastPath);
+
+        McpCommand navigate = service.processQuery("Navigate to https://example.com/Login");
+        assertEquals("navigate", navigate.getAction());
+        assertEquals("https://example.com/Login", navigate.getTarget());
+        StepVerifier.create(service.processQueryReactive("click e12"))
+                .consumeNextWith(command -> {
+                    assertEquals("click", command.getAction());
+                    assertEquals("e12", command.getTarget());
+                })
+                .verifyComplete();
+
+        verifyNoInteractions(mockNlWebClient, mockReactiveNlWebClient);
+        assertEquals(0, translationCache.size());
+        assertEquals(2, fastPath.getHitCount());
+    }
+
+    @Test
+    void processQuery_pageDependentCommand_shouldNotBeCached() {
+        McpCommand click = new McpCommand("click", "e12", Collections.singletonMap("elementDescription", "Submit"));
+        when(mockNlWebClient.translateNaturalLanguageToMcp(any(NlWebQueryRequest.class))).thenReturn(click);
+
+        nlWebService.processQuery("Click Submit");
+        nlWebService.processQuery("Click Submit");
+
+        verify(mockNlWebClient, times(2)).translateNaturalLanguageToMcp(any(NlWebQueryRequest.class));
+        assertEquals(0, translationCache.size());
+    }
 }
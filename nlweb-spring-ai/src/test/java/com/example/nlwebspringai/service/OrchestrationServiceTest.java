@@ -1,26 +1,56 @@
 package com.example.nlwebspringai.service;
 
+import com.example.nlwebspringai.cache.PageCommandMemo;
+import com.example.nlwebspringai.journal.EventJournal;
+import com.example.nlwebspringai.journal.JournalReader;
+import com.example.nlwebspringai.limit.AdaptiveLimit;
 import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.example.nlwebspringai.mcp.model.SnapshotData;
+import com.example.nlwebspringai.mcp.model.SnapshotData.AccessibleElement;
 import com.example.nlwebspringai.mcp.service.PlaywrightMcpService;
+import com.example.nlwebspringai.mcp.session.McpSessionContext;
+import com.example.nlwebspringai.mcp.snapshot.CompactAccessibilityTree;
+import com.example.nlwebspringai.mcp.snapshot.SnapshotIndex;
+import com.example.nlwebspringai.mcp.snapshot.StringPool;
+import com.example.nlwebspringai.metrics.PipelineMetrics;
 import com.example.nlwebspringai.model.McpCommand;
+import com.example.nlwebspringai.recording.SessionRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -33,9 +63,19 @@ class OrchestrationServiceTest {
     @Mock
     private PlaywrightMcpService mockPlaywrightMcpService;
 
-    @InjectMocks
+    private final PageCommandMemo commandMemo = new PageCommandMemo(true, 100, Duration.ofMinutes(10));
     private OrchestrationService orchestrationService;
 
+    @BeforeEach
+    void setUp() {
+        orchestrationService = new OrchestrationService(mockNlWebService, mockPlaywrightMcpService,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), AdaptiveLimit.unlimited("mcp"),
+                new SessionRecorder(false, Path.of("recordings"), "session.ndjson", true, new ObjectMapper()),
+                commandMemo, EventJournal.disabled());
+        // No snapshot taken yet, unless a test says otherwise.
+        lenient().when(mockPlaywrightMcpService.currentSnapshotIndex()).thenReturn(Mono.empty());
+    }
+
     @Test
     void processNaturalLanguageCommand_navigateAction_shouldCallPlaywrightNavigate() {
         String query = "go to example.com";
@@ -44,7 +84,7 @@ class OrchestrationServiceTest {
         McpResponse mockMcpResponse = new McpResponse();
         mockMcpResponse.setType("ack");
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
         when(mockPlaywrightMcpService.navigate(url)).thenReturn(Flux.just(mockMcpResponse));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
@@ -53,7 +93,7 @@ class OrchestrationServiceTest {
                 .expectNext(mockMcpResponse)
                 .verifyComplete();
 
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService).navigate(url);
     }
 
@@ -65,7 +105,7 @@ class OrchestrationServiceTest {
         mockMcpResponse.setType("snapshot");
 
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
         when(mockPlaywrightMcpService.takeSnapshot()).thenReturn(Flux.just(mockMcpResponse));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
@@ -74,7 +114,7 @@ class OrchestrationServiceTest {
                 .expectNext(mockMcpResponse)
                 .verifyComplete();
         
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService).takeSnapshot();
     }
 
@@ -87,7 +127,7 @@ class OrchestrationServiceTest {
         McpResponse mockMcpResponse = new McpResponse();
         mockMcpResponse.setType("ack");
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
         when(mockPlaywrightMcpService.clickElement(ref, elementDesc)).thenReturn(Flux.just(mockMcpResponse));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
@@ -96,7 +136,7 @@ class OrchestrationServiceTest {
                 .expectNext(mockMcpResponse)
                 .verifyComplete();
         
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService).clickElement(ref, elementDesc);
     }
 
@@ -112,7 +152,7 @@ class OrchestrationServiceTest {
         McpResponse mockMcpResponse = new McpResponse();
         mockMcpResponse.setType("ack");
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
         when(mockPlaywrightMcpService.typeInElement(ref, elementDesc, text, submit)).thenReturn(Flux.just(mockMcpResponse));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
@@ -121,7 +161,7 @@ class OrchestrationServiceTest {
                 .expectNext(mockMcpResponse)
                 .verifyComplete();
         
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService).typeInElement(ref, elementDesc, text, submit);
     }
     
@@ -137,7 +177,7 @@ class OrchestrationServiceTest {
         McpResponse mockMcpResponse = new McpResponse();
         mockMcpResponse.setType("ack");
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
         when(mockPlaywrightMcpService.typeInElement(ref, elementDesc, text, true)).thenReturn(Flux.just(mockMcpResponse));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
@@ -146,7 +186,7 @@ class OrchestrationServiceTest {
                 .expectNext(mockMcpResponse)
                 .verifyComplete();
         
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService).typeInElement(ref, elementDesc, text, true);
     }
 
@@ -156,7 +196,7 @@ class OrchestrationServiceTest {
         String query = "do something strange";
         McpCommand mcpCommand = new McpCommand("unknown_action", "target", null);
 
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
 
@@ -164,21 +204,21 @@ class OrchestrationServiceTest {
                 .expectError(IllegalArgumentException.class)
                 .verify();
         
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
         verify(mockPlaywrightMcpService, never()).navigate(anyString());
     }
 
     @Test
     void processNaturalLanguageCommand_nlWebServiceReturnsNull_shouldReturnFluxError() {
         String query = "a query that results in null from NlWebService";
-        when(mockNlWebService.processQuery(query)).thenReturn(null);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.empty());
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
 
         StepVerifier.create(result)
                 .expectError(IllegalStateException.class)
                 .verify();
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
     }
     
     @Test
@@ -186,7 +226,7 @@ class OrchestrationServiceTest {
         String query = "a query that results in error from NlWebService";
         McpCommand errorMcpCommand = new McpCommand("error", "nlweb_service", Map.of("errorMessage", "NL Service Error"));
         
-        when(mockNlWebService.processQuery(query)).thenReturn(errorMcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(errorMcpCommand));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
 
@@ -196,20 +236,236 @@ class OrchestrationServiceTest {
                 assertTrue(response.getError().contains("NL Service Error"));
             })
             .verifyComplete();
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
     }
 
     @Test
     void processNaturalLanguageCommand_navigateWithNullTarget_shouldReturnFluxError() {
         String query = "navigate to nowhere";
         McpCommand mcpCommand = new McpCommand("navigate", null, null); // Null target
-        when(mockNlWebService.processQuery(query)).thenReturn(mcpCommand);
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
 
         Flux<McpResponse> result = orchestrationService.processNaturalLanguageCommand(query);
 
         StepVerifier.create(result)
                 .expectError(IllegalArgumentException.class)
                 .verify();
-        verify(mockNlWebService).processQuery(query);
+        verify(mockNlWebService).processQueryReactive(query);
+    }
+
+    @Test
+    void processNaturalLanguageCommand_waitWithNonNumericSeconds_shouldReturnFluxError() {
+        String query = "wait a bit";
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(new McpCommand("wait", null, Map.of("seconds", "abc"))));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectErrorMessage("Seconds for wait action must be a non-negative number, got: abc")
+                .verify();
+        verify(mockPlaywrightMcpService, never()).waitFor(anyDouble());
+    }
+
+    @Test
+    void processNaturalLanguageCommand_waitWithNegativeSeconds_shouldReturnFluxError() {
+        String query = "wait minus one second";
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(new McpCommand("wait", null, Map.of("seconds", -1))));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(mockPlaywrightMcpService, never()).waitFor(anyDouble());
+    }
+
+    @Test
+    void processNaturalLanguageCommand_waitWithSecondsAsText_shouldWait() {
+        String query = "wait 1.5 seconds please";
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(new McpCommand("wait", null, Map.of("seconds", " 1.5 "))));
+        when(mockPlaywrightMcpService.waitFor(1.5)).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectNext(ack)
+                .verifyComplete();
+    }
+
+    @Test
+    void processNaturalLanguageCommand_planAction_shouldRunStepsInOrder() {
+        String query = "log in and take a snapshot";
+        McpCommand plan = McpCommand.plan(List.of(
+                new McpCommand("click", "login-ref", Map.of("elementDescription", "Login")),
+                new McpCommand("wait", null, Map.of("seconds", 2)),
+                new McpCommand("snapshot", null, null)));
+        McpResponse clickAck = new McpResponse();
+        clickAck.setType("ack");
+        McpResponse waitAck = new McpResponse();
+        waitAck.setType("ack");
+        McpResponse snapshot = new McpResponse();
+        snapshot.setType("snapshot");
+
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(plan));
+        when(mockPlaywrightMcpService.clickElement("login-ref", "Login")).thenReturn(Flux.just(clickAck));
+        when(mockPlaywrightMcpService.waitFor(2.0)).thenReturn(Flux.just(waitAck));
+        when(mockPlaywrightMcpService.takeSnapshot()).thenReturn(Flux.just(snapshot));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectNext(clickAck, waitAck, snapshot)
+                .verifyComplete();
+    }
+
+    @Test
+    void processNaturalLanguageCommand_planWithoutSessionId_shouldShareOneRequestAffinity() {
+        McpCommand plan = McpCommand.plan(List.of(
+                new McpCommand("navigate", "http://example.com", null),
+                new McpCommand("snapshot", null, null)));
+        List<Object> affinities = new CopyOnWriteArrayList<>();
+        Flux<McpResponse> recordContext = Flux.deferContextual(context -> {
+            assertNull(McpSessionContext.sessionId(context));
+            affinities.add(McpSessionContext.affinity(context));
+            return Flux.just(new McpResponse());
+        });
+
+        when(mockNlWebService.processQueryReactive(anyString())).thenReturn(Mono.just(plan));
+        when(mockPlaywrightMcpService.navigate("http://example.com")).thenReturn(recordContext);
+        when(mockPlaywrightMcpService.takeSnapshot()).thenReturn(recordContext);
+
+        orchestrationService.processNaturalLanguageCommand("open example and snapshot").blockLast();
+        orchestrationService.processNaturalLanguageCommand("open example and snapshot").blockLast();
+
+        assertEquals(4, affinities.size());
+        assertNotNull(affinities.get(0));
+        assertSame(affinities.get(0), affinities.get(1));
+        assertNotSame(affinities.get(1), affinities.get(2));
+    }
+
+    @Test
+    void processNaturalLanguageCommand_planStepReturnsError_shouldStopPlan() {
+        String query = "navigate and click";
+        McpCommand plan = McpCommand.plan(List.of(
+                new McpCommand("navigate", "http://example.com", null),
+                new McpCommand("click", "missing-ref", null)));
+        McpResponse navigateError = new McpResponse();
+        navigateError.setType("error");
+
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(plan));
+        when(mockPlaywrightMcpService.navigate("http://example.com")).thenReturn(Flux.just(navigateError));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectNext(navigateError)
+                .verifyComplete();
+
+        verify(mockPlaywrightMcpService, never()).clickElement(anyString(), any());
+    }
+
+    @Test
+    void processNaturalLanguageCommand_clickWithStaleRef_shouldResolveDescriptionLocally() {
+        String query = "click submit";
+        McpCommand mcpCommand = new McpCommand("click", "stale-ref", Map.of("elementDescription", "the Submit button"));
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
+        when(mockPlaywrightMcpService.currentSnapshotIndex()).thenReturn(Mono.just(formIndex()));
+        when(mockPlaywrightMcpService.clickElement("submit-ref", "the Submit button")).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectNext(ack)
+                .verifyComplete();
+    }
+
+    @Test
+    void processNaturalLanguageCommand_clickWithoutRefAndAmbiguousDescription_shouldAskNlWeb() {
+        String query = "click a link";
+        McpCommand mcpCommand = new McpCommand("click", null, Map.of("elementDescription", "link"));
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+
+        when(mockNlWebService.processQueryReactive(query)).thenReturn(Mono.just(mcpCommand));
+        when(mockNlWebService.processQueryReactive("click link"))
+                .thenReturn(Mono.just(new McpCommand("click", "docs-ref", null)));
+        when(mockPlaywrightMcpService.currentSnapshotIndex()).thenReturn(Mono.just(formIndex()));
+        when(mockPlaywrightMcpService.clickElement("docs-ref", "link")).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query))
+                .expectNext(ack)
+                .verifyComplete();
+    }
+
+    @Test
+    void processNaturalLanguageCommand_sameClickOnSamePageStructure_shouldReuseTranslation() {
+        String query = "Click Submit";
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+
+        when(mockNlWebService.processQueryReactive(query))
+                .thenReturn(Mono.just(new McpCommand("click", "submit-ref", Map.of("elementDescription", "the Submit button"))));
+        // A fresh but structurally identical snapshot each time, as after reloading the form.
+        when(mockPlaywrightMcpService.currentSnapshotIndex()).thenAnswer(invocation -> Mono.just(formIndex()));
+        when(mockPlaywrightMcpService.clickElement("submit-ref", "the Submit button")).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand(query)).expectNext(ack).verifyComplete();
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand("click submit.")).expectNext(ack).verifyComplete();
+
+        verify(mockNlWebService, times(1)).processQueryReactive(anyString());
+        assertEquals(1, commandMemo.getHitCount());
+        assertEquals(1, commandMemo.getMissCount());
+    }
+
+    @Test
+    void processNaturalLanguageCommand_queryNotDependingOnPage_shouldNotCountAsMemoMiss() {
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockNlWebService.processQueryReactive(anyString())).thenReturn(Mono.just(new McpCommand("navigate", "http://example.com", null)));
+        when(mockPlaywrightMcpService.currentSnapshotIndex()).thenReturn(Mono.just(formIndex()));
+        when(mockPlaywrightMcpService.navigate("http://example.com")).thenReturn(Flux.just(ack));
+
+        StepVerifier.create(orchestrationService.processNaturalLanguageCommand("open example.com")).expectNext(ack).verifyComplete();
+
+        assertEquals(0, commandMemo.getMissCount());
+        assertEquals(0, commandMemo.getHitCount());
+    }
+
+    @Test
+    void processNaturalLanguageCommand_typeAction_shouldJournalTheQueryRedacted(@TempDir Path dir) throws Exception {
+        EventJournal journal = new EventJournal(true, dir, 64, DataSize.ofKilobytes(64), 1, 1.0, true, 1024);
+        OrchestrationService journaled = new OrchestrationService(mockNlWebService, mockPlaywrightMcpService,
+                new PipelineMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), AdaptiveLimit.unlimited("mcp"),
+                new SessionRecorder(false, Path.of("recordings"), "session.ndjson", true, new ObjectMapper()), commandMemo, journal);
+        McpResponse ack = new McpResponse();
+        ack.setType("ack");
+        when(mockNlWebService.processQueryReactive("type hunter2 into the password box"))
+                .thenReturn(Mono.just(new McpCommand("type", "e7", Map.of("text", "hunter2"))));
+        when(mockNlWebService.processQueryReactive("open example.com"))
+                .thenReturn(Mono.just(new McpCommand("navigate", "http://example.com", null)));
+        when(mockPlaywrightMcpService.typeInElement("e7", null, "hunter2", false)).thenReturn(Flux.just(ack));
+        when(mockPlaywrightMcpService.navigate("http://example.com")).thenReturn(Flux.just(ack));
+
+        journaled.processNaturalLanguageCommand("type hunter2 into the password box").blockLast();
+        journaled.processNaturalLanguageCommand("open example.com").blockLast();
+        journal.close();
+
+        List<JournalReader.Entry> entries = JournalReader.readAll(dir);
+        assertEquals(2, entries.size());
+        assertEquals("[redacted 34 chars]", entries.get(0).fields().get("query"));
+        assertEquals("[redacted 7 chars]", entries.get(0).fields().get("params.text"));
+        assertEquals("open example.com", entries.get(1).fields().get("query"));
+        assertNotNull(entries.get(0).id());
+        assertNotEquals(entries.get(0).id(), entries.get(1).id());
+    }
+
+    private static SnapshotIndex formIndex() {
+        SnapshotData snapshot = new SnapshotData();
+        snapshot.setAccessibleTree(List.of(
+                element("submit-ref", "button", "Submit"),
+                element("docs-ref", "link", "Docs"),
+                element("blog-ref", "link", "Blog")));
+        return CompactAccessibilityTree.from(snapshot, new StringPool()).index();
+    }
+
+    private static AccessibleElement element(String ref, String role, String name) {
+        AccessibleElement element = new AccessibleElement();
+        element.setRef(ref);
+        element.setRole(role);
+        element.setName(name);
+        return element;
     }
 }
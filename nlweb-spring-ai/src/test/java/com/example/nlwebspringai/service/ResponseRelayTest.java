@@ -0,0 +1,144 @@
+package com.example.nlwebspringai.service;
+
+import com.example.nlwebspringai.mcp.model.McpResponse;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseRelayTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void relay_fastConsumer_shouldDeliverEverythingInOrder() {
+        ResponseRelay relay = relay(2, "drop-oldest");
+
+        StepVerifier.create(relay.relay(Flux.just(chunk("c1", "a"), chunk("c1", "b"), chunk("c1", "c"), event("stream_end"))))
+                .expectNextMatches(response -> "a".equals(response.getData().asText()))
+                .expectNextMatches(response -> "b".equals(response.getData().asText()))
+                .expectNextMatches(response -> "c".equals(response.getData().asText()))
+                .expectNextMatches(response -> "stream_end".equals(response.getType()))
+                .verifyComplete();
+        assertEquals(0.0, registry.get("nlweb.relay.events.dropped").counter().count());
+    }
+
+    @Test
+    void relay_coalesce_shouldMergeChunksForSlowConsumer() {
+        ResponseRelay relay = relay(3, "coalesce");
+
+        StepVerifier.create(relay.relay(Flux.just(event("ack"), chunk("c1", "a"), chunk("c1", "b"), chunk("c1", "c"), event("stream_end"))), 0)
+                // Nothing is read until everything has arrived.
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(3)
+                .expectNextMatches(response -> "ack".equals(response.getType()))
+                .expectNextMatches(response -> "abc".equals(response.getData().asText()))
+                .expectNextMatches(response -> "stream_end".equals(response.getType()))
+                .verifyComplete();
+        assertEquals(2.0, registry.get("nlweb.relay.events.coalesced").counter().count());
+    }
+
+    @Test
+    void relay_dropLatest_shouldKeepQueuedChunksAndControlEvents() {
+        ResponseRelay relay = relay(2, "drop-latest");
+
+        StepVerifier.create(relay.relay(Flux.just(chunk("c1", "a"), chunk("c1", "b"), chunk("c1", "c"), event("stream_end"))), 0)
+                // Nothing is read until everything has arrived.
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(3)
+                // stream_end pushes out the oldest chunk; "c" never made it into the buffer.
+                .expectNextMatches(response -> "b".equals(response.getData().asText()))
+                .expectNextMatches(response -> "stream_end".equals(response.getType()))
+                .verifyComplete();
+        assertEquals(2.0, registry.get("nlweb.relay.events.dropped").tag("overflow", "drop_latest").counter().count());
+    }
+
+    @Test
+    void relay_bufferFullOfControlEvents_shouldDisconnectAndCancelUpstream() {
+        ResponseRelay relay = relay(2, "drop-oldest");
+        TestPublisher<McpResponse> upstream = TestPublisher.create();
+
+        StepVerifier.create(relay.relay(upstream.flux()), 0)
+                .then(() -> upstream.next(event("snapshot"), event("snapshot"), event("snapshot")))
+                .expectErrorMessage("Client is 2 events behind")
+                .verify(Duration.ofSeconds(5));
+        upstream.assertCancelled();
+        assertEquals(1.0, registry.get("nlweb.relay.disconnects").counter().count());
+    }
+
+    @Test
+    void relay_stalledConsumer_shouldBeDisconnected() {
+        ResponseRelay relay = new ResponseRelay(16, "coalesce", Duration.ZERO, registry);
+        TestPublisher<McpResponse> upstream = TestPublisher.create();
+
+        StepVerifier.create(relay.relay(upstream.flux()), 0)
+                .then(() -> upstream.next(event("ack")))
+                .then(() -> upstream.next(event("snapshot")))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void relay_consumerStallingAfterUpstreamCompletes_shouldBeDisconnected() {
+        ResponseRelay relay = new ResponseRelay(16, "coalesce", Duration.ofMillis(100), registry);
+
+        StepVerifier.create(relay.relay(Flux.just(event("ack"), event("snapshot"), event("stream_end"))), 1)
+                .expectNextMatches(response -> "ack".equals(response.getType()))
+                // Nothing more arrives from upstream to notice the stall; the scheduled check has to.
+                .expectErrorMessage("Client has read nothing for PT0.1S")
+                .verify(Duration.ofSeconds(5));
+        assertEquals(1.0, registry.get("nlweb.relay.disconnects").counter().count());
+    }
+
+    @Test
+    void relay_consumerStallingAfterUpstreamGoesQuiet_shouldBeDisconnectedAndCancelUpstream() {
+        ResponseRelay relay = new ResponseRelay(16, "coalesce", Duration.ofMillis(100), registry);
+        TestPublisher<McpResponse> upstream = TestPublisher.create();
+
+        StepVerifier.create(relay.relay(upstream.flux()), 0)
+                .then(() -> upstream.next(event("ack")))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(5));
+        upstream.assertCancelled();
+    }
+
+    @Test
+    void relay_idleConsumerWithNothingQueued_shouldStayConnected() {
+        ResponseRelay relay = new ResponseRelay(16, "coalesce", Duration.ofMillis(20), registry);
+        TestPublisher<McpResponse> upstream = TestPublisher.create();
+
+        StepVerifier.create(relay.relay(upstream.flux()))
+                .then(() -> upstream.next(event("ack")))
+                .expectNextMatches(response -> "ack".equals(response.getType()))
+                .expectNoEvent(Duration.ofMillis(200))
+                .then(upstream::complete)
+                .verifyComplete();
+        assertEquals(0.0, registry.get("nlweb.relay.disconnects").counter().count());
+    }
+
+    private ResponseRelay relay(int bufferSize, String overflow) {
+        return new ResponseRelay(bufferSize, overflow, Duration.ofMinutes(1), registry);
+    }
+
+    private static McpResponse chunk(String id, String text) {
+        McpResponse response = event(ResponseRelay.CHUNK_TYPE);
+        response.setId(id);
+        response.setData(TextNode.valueOf(text));
+        return response;
+    }
+
+    private static McpResponse event(String type) {
+        McpResponse response = new McpResponse();
+        response.setId("c1");
+        response.setType(type);
+        return response;
+    }
+}